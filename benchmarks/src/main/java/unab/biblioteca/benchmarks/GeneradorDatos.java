@@ -0,0 +1,70 @@
+package unab.biblioteca.benchmarks;
+
+import unab.biblioteca.models.*;
+import unab.biblioteca.utils.ValidadorRUN;
+
+/**
+ * Generador de datos sintéticos para los benchmarks.
+ * Produce RUNs con dígito verificador válido e ISBN-13 únicos, de forma determinista
+ * para que distintas ejecuciones midan exactamente el mismo catálogo.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class GeneradorDatos {
+
+    private static final int CUERPO_RUN_INICIAL = 10_000_000;
+
+    private GeneradorDatos() {
+    }
+
+    /**
+     * Genera el i-ésimo RUN sintético en formato XXXXXXXX-X.
+     *
+     * @param i Índice del RUN (0 &lt;= i &lt; 89.999.999)
+     * @return RUN válido según ValidadorRUN
+     */
+    public static String run(int i) {
+        String cuerpo = Integer.toString(CUERPO_RUN_INICIAL + i);
+        return cuerpo + "-" + ValidadorRUN.calcularDigitoVerificador(cuerpo);
+    }
+
+    /**
+     * Genera el i-ésimo ISBN-13 sintético (prefijo 978 y dígito de control válido).
+     *
+     * @param i Índice del ISBN (0 &lt;= i &lt; 1.000.000.000)
+     * @return ISBN-13 sin guiones
+     */
+    public static String isbn(int i) {
+        String sinControl = "978" + String.format("%09d", i);
+        int suma = 0;
+        for (int j = 0; j < 12; j++) {
+            int digito = sinControl.charAt(j) - '0';
+            suma += (j % 2 == 0) ? digito : digito * 3;
+        }
+        return sinControl + ((10 - suma % 10) % 10);
+    }
+
+    /**
+     * Genera un usuario sintético; alterna entre estudiantes y docentes.
+     *
+     * @param i Índice del usuario
+     * @return Usuario con RUN run(i)
+     */
+    public static Usuario usuario(int i) {
+        char genero = (i % 2 == 0) ? 'F' : 'M';
+        if (i % 5 == 0) {
+            return new Docente("Docente " + i, run(i), genero, "Profesión " + (i % 50));
+        }
+        return new Estudiante("Estudiante " + i, run(i), genero, "Carrera " + (i % 80));
+    }
+
+    /**
+     * Genera un libro sintético con suficientes ejemplares para préstamos repetidos.
+     *
+     * @param i Índice del libro
+     * @return Libro con ISBN isbn(i)
+     */
+    public static Libro libro(int i) {
+        return new Libro(isbn(i), "Título " + i, "Autor " + (i % 10_000), 64, 64, "");
+    }
+}
@@ -0,0 +1,65 @@
+package unab.biblioteca.benchmarks;
+
+import unab.biblioteca.models.Libro;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de contención sobre un único libro.
+ * Todos los hilos prestan y devuelven ejemplares del mismo ISBN, que es el peor caso
+ * para el contador atómico de disponibilidad de {@link Libro}.
+ *
+ * Ejecutar el barrido de 1 a 64 hilos:
+ * java -cp target/benchmarks.jar unab.biblioteca.benchmarks.LibroContentionBenchmark
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LibroContentionBenchmark {
+
+    private static final int[] HILOS = {1, 2, 4, 8, 16, 32, 64};
+
+    private Libro libro;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        // Suficientes ejemplares para que ningún hilo encuentre el libro agotado
+        libro = new Libro("978-0-13-468599-1", "Clean Code", "Robert C. Martin", 1024, 1024, "");
+    }
+
+    /**
+     * Un préstamo seguido de su devolución: el contador vuelve a su valor inicial.
+     */
+    @Benchmark
+    public void prestarYDevolver() {
+        libro.prestar();
+        libro.devolver();
+    }
+
+    /**
+     * Lectura de disponibilidad, como la validación previa de realizarPrestamo.
+     */
+    @Benchmark
+    public boolean hayDisponible() {
+        return libro.hayDisponible();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int hilos : HILOS) {
+            Options opciones = new OptionsBuilder()
+                    .include(LibroContentionBenchmark.class.getSimpleName())
+                    .threads(hilos)
+                    .build();
+            new Runner(opciones).run();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package unab.biblioteca.benchmarks;
+
+import unab.biblioteca.controllers.OperacionCirculacion;
+import unab.biblioteca.controllers.Pagina;
+import unab.biblioteca.controllers.ResultadoCirculacion;
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import unab.biblioteca.models.*;
+import unab.biblioteca.utils.ValidadorISBN;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de las operaciones frecuentes de SistemaBiblioteca.
+ * Cada operación se mide sobre catálogos de 1.000 a 1.000.000 de libros
+ * (con la misma cantidad de usuarios) generados por {@link GeneradorDatos}.
+ *
+ * Ejecutar con reporte de operaciones por segundo y tasa de asignación:
+ * java -cp target/benchmarks.jar unab.biblioteca.benchmarks.SistemaBibliotecaBenchmark
+ * o bien: java -jar target/benchmarks.jar SistemaBibliotecaBenchmark -prof gc
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SistemaBibliotecaBenchmark {
+
+    private static final int TAMANO_CARRO = 50;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int tamanoCatalogo;
+
+    private SistemaBiblioteca sistema;
+    private String[] runs;
+    private String[] isbns;
+    private Usuario usuarioNuevo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        sistema = new SistemaBiblioteca();
+        runs = new String[tamanoCatalogo];
+        isbns = new String[tamanoCatalogo];
+
+        for (int i = 0; i < tamanoCatalogo; i++) {
+            Usuario usuario = GeneradorDatos.usuario(i);
+            sistema.crearUsuario(usuario);
+            runs[i] = usuario.getRun();
+
+            Libro libro = GeneradorDatos.libro(i);
+            sistema.crearLibro(libro);
+            isbns[i] = libro.getIsbn();
+        }
+
+        // Usuario fuera del catálogo para medir el alta
+        usuarioNuevo = GeneradorDatos.usuario(tamanoCatalogo);
+    }
+
+    private int indiceAleatorio() {
+        return ThreadLocalRandom.current().nextInt(tamanoCatalogo);
+    }
+
+    /**
+     * Alta de un usuario nuevo; se elimina a continuación para mantener constante el tamaño.
+     */
+    @Benchmark
+    public boolean crearUsuario() {
+        boolean creado = sistema.crearUsuario(usuarioNuevo);
+        sistema.eliminarUsuario(usuarioNuevo.getRun());
+        return creado;
+    }
+
+    @Benchmark
+    public Usuario buscarUsuarioPorRUN() {
+        return sistema.buscarUsuarioPorRUN(runs[indiceAleatorio()]);
+    }
+
+    @Benchmark
+    public Libro buscarLibroPorISBN() {
+        return sistema.buscarLibroPorISBN(isbns[indiceAleatorio()]);
+    }
+
+    /**
+     * Préstamo seguido de su devolución, de modo que el usuario quede habilitado
+     * para la siguiente invocación; mide el ciclo completo de circulación.
+     */
+    @Benchmark
+    public int realizarPrestamoYDevolucion() {
+        int i = indiceAleatorio();
+        sistema.realizarPrestamo(isbns[i], runs[i], 7);
+        return sistema.realizarDevolucion(isbns[i], runs[i]).getMulta();
+    }
+
+    /**
+     * Préstamo rechazado por exceder el período máximo; no debería costar más que uno aceptado.
+     */
+    @Benchmark
+    public ResultadoCirculacion realizarPrestamoRechazado() {
+        int i = indiceAleatorio();
+        return sistema.realizarPrestamo(isbns[i], runs[i], 1000);
+    }
+
+    /**
+     * Préstamo y devolución de un carro de libros consecutivos, en dos lotes.
+     */
+    @Benchmark
+    public List<ResultadoCirculacion> realizarLotePrestamoYDevolucion() {
+        int inicio = ThreadLocalRandom.current().nextInt(Math.max(1, tamanoCatalogo - TAMANO_CARRO));
+        int fin = Math.min(tamanoCatalogo, inicio + TAMANO_CARRO);
+        List<OperacionCirculacion> prestamos = new ArrayList<>(TAMANO_CARRO);
+        List<OperacionCirculacion> devoluciones = new ArrayList<>(TAMANO_CARRO);
+        for (int i = inicio; i < fin; i++) {
+            prestamos.add(OperacionCirculacion.prestamo(isbns[i], runs[i], 7));
+            devoluciones.add(OperacionCirculacion.devolucion(isbns[i], runs[i]));
+        }
+        sistema.procesarLote(prestamos);
+        return sistema.procesarLote(devoluciones);
+    }
+
+    @Benchmark
+    public ArrayList<Libro> listarLibros() {
+        return sistema.listarLibros();
+    }
+
+    @Benchmark
+    public Pagina<Libro> listarPaginaLibros() {
+        return sistema.listarLibros(ValidadorISBN.parsearISBN(isbns[indiceAleatorio()]), 20, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+                .include(SistemaBibliotecaBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opciones).run();
+    }
+}
@@ -1,20 +1,40 @@
 package unab.biblioteca;
 
+import unab.biblioteca.controllers.OperacionCirculacion;
+import unab.biblioteca.controllers.Pagina;
+import unab.biblioteca.controllers.ResultadoCirculacion;
 import unab.biblioteca.controllers.SistemaBiblioteca;
 import unab.biblioteca.models.*;
+import unab.biblioteca.persistencia.Bitacora;
+import unab.biblioteca.persistencia.RegistroAuditoria;
+import unab.biblioteca.servidor.ServidorBinario;
+import unab.biblioteca.servidor.ServidorHttp;
 import unab.biblioteca.views.MenuPrincipal;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Clase principal del Sistema de Biblioteca UNAB.
  * Punto de entrada de la aplicación.
  * Incluye datos de demostración y ejecución del menú principal.
  *
+ * Con el argumento --bitacora &lt;directorio&gt; el estado se guarda en una bitácora y se
+ * reconstruye desde ella al iniciar; los datos de demostración solo se cargan si
+ * la bitácora está vacía. La bitácora se compacta en una instantánea cada 10 minutos.
+ * Con --auditoria &lt;directorio&gt; los eventos de circulación se registran para auditoría
+ * en archivos de ese directorio. Con --http &lt;puerto&gt; se atienden además solicitudes
+ * HTTP de kioscos y terminales mientras el menú está en uso, y con --binario &lt;puerto&gt;
+ * préstamos y devoluciones con el protocolo binario de los kioscos.
+ *
  * @author @author Alan, Francisco, Sandrino y Sebastián
  */
 public class Biblioteca {
 
-    public static void main(String[] args) {
+    private static final long MINUTOS_ENTRE_COMPACTACIONES = 10;
+    private static final int MAXIMO_DATOS_INICIALES = 20; // Por tipo; con una bitácora grande se muestra solo el comienzo
+
+    public static void main(String[] args) throws IOException {
         System.out.println("╔═══════════════════════════════════════════════════════╗");
         System.out.println("║  SISTEMA DE BIBLIOTECA                                ║");
         System.out.println("║  UNIVERSIDAD NACIONAL ANDRÉS BELLO                    ║");
@@ -25,14 +45,29 @@ public class Biblioteca {
         // Crear instancia del sistema de biblioteca
         SistemaBiblioteca sistema = new SistemaBiblioteca();
 
-        // Cargar datos de demostración
-        cargarDatosDemostracion(sistema);
+        // Recuperar el estado desde la bitácora, si se indicó una
+        Bitacora bitacora = abrirBitacora(args, sistema);
+        boolean estadoRecuperado = bitacora != null && sistema.cantidadUsuarios() > 0;
+
+        // Auditar desde aquí en adelante, sin repetir lo recuperado
+        RegistroAuditoria auditoria = abrirAuditoria(args, sistema);
+
+        if (!estadoRecuperado) {
+            // Cargar datos de demostración
+            cargarDatosDemostracion(sistema);
+        }
 
         // Mostrar datos iniciales
         mostrarDatosIniciales(sistema);
 
-        // Ejecutar demostración de funcionalidades
-        ejecutarDemostracion(sistema);
+        if (!estadoRecuperado) {
+            // Ejecutar demostración de funcionalidades
+            ejecutarDemostracion(sistema);
+        }
+
+        // Atender solicitudes HTTP en paralelo al menú, si se indicó un puerto
+        ServidorHttp servidorHttp = iniciarServidorHttp(args, sistema);
+        ServidorBinario servidorBinario = iniciarServidorBinario(args, sistema);
 
         // Iniciar menú interactivo
         System.out.println("\n\n╔═══════════════════════════════════════════════════════╗");
@@ -41,6 +76,124 @@ public class Biblioteca {
 
         MenuPrincipal menu = new MenuPrincipal(sistema);
         menu.iniciar();
+
+        RuntimeException errorFusion = sistema.getErrorFusionIndices();
+        if (errorFusion != null) {
+            System.out.println("Falló una fusión de los índices de búsqueda: " + errorFusion);
+        }
+
+        if (servidorHttp != null) {
+            servidorHttp.close();
+            if (servidorHttp.getErrores() > 0) {
+                System.out.println("Servidor HTTP: " + servidorHttp.getErrores()
+                        + " solicitudes con error interno; el último: " + servidorHttp.getUltimoError());
+            }
+        }
+        if (servidorBinario != null) {
+            servidorBinario.close();
+            if (servidorBinario.getErrores() > 0) {
+                System.out.println("Servidor binario: " + servidorBinario.getErrores()
+                        + " conexiones cerradas por error; el último: " + servidorBinario.getUltimoError());
+            }
+        }
+        if (auditoria != null) {
+            try {
+                auditoria.close();
+            } catch (IOException e) {
+                System.out.println("Falló la escritura del registro de auditoría: " + e.getMessage());
+            }
+            System.out.println("Auditoría: " + auditoria.getEscritos() + " eventos registrados, "
+                    + auditoria.getDescartados() + " descartados.");
+        }
+        if (bitacora != null) {
+            Exception errorCompactacion = bitacora.getErrorCompactacion();
+            if (errorCompactacion != null) {
+                System.out.println("La última compactación de la bitácora falló: " + errorCompactacion);
+            }
+            bitacora.close();
+        }
+    }
+
+    /**
+     * Abre la bitácora indicada con --bitacora, reproduce su contenido sobre el
+     * sistema y la asocia para registrar las operaciones siguientes.
+     *
+     * @param args Argumentos de la línea de comandos
+     * @param sistema Sistema de biblioteca vacío
+     * @return Bitácora abierta, o null si no se indicó
+     * @throws IOException si no se puede leer o abrir la bitácora
+     */
+    private static Bitacora abrirBitacora(String[] args, SistemaBiblioteca sistema) throws IOException {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--bitacora")) {
+                Bitacora bitacora = new Bitacora(Path.of(args[i + 1]));
+                int registros = bitacora.reproducir(sistema);
+                sistema.setBitacora(bitacora);
+                bitacora.programarCompactacion(MINUTOS_ENTRE_COMPACTACIONES, TimeUnit.MINUTES);
+                System.out.println("Bitácora " + args[i + 1] + ": " + registros + " operaciones recuperadas.\n");
+                return bitacora;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Abre el registro de auditoría indicado con --auditoria y lo asocia al sistema.
+     *
+     * @param args Argumentos de la línea de comandos
+     * @param sistema Sistema de biblioteca
+     * @return Registro abierto, o null si no se indicó
+     * @throws IOException si no se puede crear el directorio o el archivo de auditoría
+     */
+    private static RegistroAuditoria abrirAuditoria(String[] args, SistemaBiblioteca sistema) throws IOException {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--auditoria")) {
+                RegistroAuditoria auditoria = new RegistroAuditoria(Path.of(args[i + 1]));
+                sistema.setAuditoria(auditoria);
+                return auditoria;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inicia el servidor HTTP en el puerto indicado con --http.
+     *
+     * @param args Argumentos de la línea de comandos
+     * @param sistema Sistema de biblioteca
+     * @return Servidor iniciado, o null si no se indicó
+     * @throws IOException si no se puede abrir el puerto
+     */
+    private static ServidorHttp iniciarServidorHttp(String[] args, SistemaBiblioteca sistema) throws IOException {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--http")) {
+                ServidorHttp servidor = new ServidorHttp(sistema, Integer.parseInt(args[i + 1]));
+                servidor.iniciar();
+                System.out.println("Servidor HTTP escuchando en el puerto " + servidor.getPuerto() + ".");
+                return servidor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inicia el servidor del protocolo binario en el puerto indicado con --binario.
+     *
+     * @param args Argumentos de la línea de comandos
+     * @param sistema Sistema de biblioteca
+     * @return Servidor iniciado, o null si no se indicó
+     * @throws IOException si no se puede abrir el puerto
+     */
+    private static ServidorBinario iniciarServidorBinario(String[] args, SistemaBiblioteca sistema) throws IOException {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--binario")) {
+                ServidorBinario servidor = new ServidorBinario(sistema, Integer.parseInt(args[i + 1]));
+                servidor.iniciar();
+                System.out.println("Servidor binario escuchando en el puerto " + servidor.getPuerto() + ".");
+                return servidor;
+            }
+        }
+        return null;
     }
 
     /**
@@ -111,7 +264,7 @@ public class Biblioteca {
             System.out.println("✓ Libro creado: " + libro2.getTitulo());
 
             Libro libro3 = new Libro(
-                    "978-0-13-597870-5",
+                    "978-0-13-595705-9",
                     "The Pragmatic Programmer",
                     "David Thomas, Andrew Hunt",
                     4,
@@ -138,7 +291,8 @@ public class Biblioteca {
     }
 
     /**
-     * Muestra los datos iniciales cargados en el sistema.
+     * Muestra los datos iniciales cargados en el sistema: la primera página de usuarios
+     * y de libros, y cuántos más hay.
      *
      * @param sistema Sistema de biblioteca
      */
@@ -147,36 +301,42 @@ public class Biblioteca {
         System.out.println("USUARIOS REGISTRADOS:");
         System.out.println("═══════════════════════════════════════════════════════");
 
-        ArrayList<Usuario> usuarios = sistema.listarUsuarios();
-        for (int i = 0; i < usuarios.size(); i++) {
-            Usuario u = usuarios.get(i);
+        Pagina<Usuario> usuarios = sistema.listarUsuarios(Pagina.INICIO, MAXIMO_DATOS_INICIALES, null);
+        for (int i = 0; i < usuarios.getElementos().size(); i++) {
+            FichaUsuario u = usuarios.getElementos().get(i).getFicha();
             System.out.println((i + 1) + ". " + u.getNombreCompleto() + " (RUN: " + u.getRun() + ")");
-            if (u instanceof Docente) {
-                Docente d = (Docente) u;
+            if (u instanceof FichaDocente) {
+                FichaDocente d = (FichaDocente) u;
                 System.out.println("   Tipo: Docente - Profesión: " + d.getProfesion());
                 System.out.println("   Grados: " + d.getGrados());
                 System.out.println("   Período máximo de préstamo: " + d.getPeriodoMaximoPrestamo() + " días");
-            } else if (u instanceof Estudiante) {
-                Estudiante e = (Estudiante) u;
+            } else if (u instanceof FichaEstudiante) {
+                FichaEstudiante e = (FichaEstudiante) u;
                 System.out.println("   Tipo: Estudiante - Carrera: " + e.getCarrera());
                 System.out.println("   Período máximo de préstamo: " + e.getPeriodoMaximoPrestamo() + " días");
             }
             System.out.println();
         }
+        if (usuarios.hayMas()) {
+            System.out.println("... y " + (sistema.cantidadUsuarios() - usuarios.getElementos().size()) + " usuarios más.\n");
+        }
 
         System.out.println("═══════════════════════════════════════════════════════");
         System.out.println("LIBROS REGISTRADOS:");
         System.out.println("═══════════════════════════════════════════════════════");
 
-        ArrayList<Libro> libros = sistema.listarLibros();
-        for (int i = 0; i < libros.size(); i++) {
-            Libro l = libros.get(i);
+        Pagina<Libro> libros = sistema.listarLibros(Pagina.INICIO, MAXIMO_DATOS_INICIALES, null);
+        for (int i = 0; i < libros.getElementos().size(); i++) {
+            FichaLibro l = libros.getElementos().get(i).getFicha();
             System.out.println((i + 1) + ". " + l.getTitulo());
             System.out.println("   ISBN: " + l.getIsbn());
             System.out.println("   Autor: " + l.getAutor());
             System.out.println("   Disponibles: " + l.getCantidadDisponible() + "/" + l.getCantidadBiblioteca());
             System.out.println();
         }
+        if (libros.hayMas()) {
+            System.out.println("... y " + (sistema.cantidadLibros() - libros.getElementos().size()) + " libros más.\n");
+        }
     }
 
     /**
@@ -192,50 +352,62 @@ public class Biblioteca {
 
         // Caso 1: Préstamo válido para estudiante
         System.out.println("--- CASO 1: Préstamo válido (Estudiante) ---");
-        Prestamo prestamo1 = sistema.realizarPrestamo("978-0-13-468599-1", "19876543-2", 7);
-        if (prestamo1 != null) {
-            System.out.println(prestamo1.generarTarjetaPrestamo());
-        }
+        demostrarPrestamo(sistema, "978-0-13-468599-1", "19876543-2", 7);
 
         // Caso 2: Intentar préstamo cuando usuario ya tiene libro
         System.out.println("\n--- CASO 2: Préstamo inválido (Usuario ya tiene préstamo) ---");
-        Prestamo prestamo2 = sistema.realizarPrestamo("978-0-13-235088-4", "19876543-2", 5);
+        demostrarPrestamo(sistema, "978-0-13-235088-4", "19876543-2", 5);
 
         // Caso 3: Préstamo válido para docente
         System.out.println("\n--- CASO 3: Préstamo válido (Docente) ---");
-        Prestamo prestamo3 = sistema.realizarPrestamo("978-0-13-235088-4", "12345678-5", 15);
-        if (prestamo3 != null) {
-            System.out.println(prestamo3.generarTarjetaPrestamo());
-        }
+        demostrarPrestamo(sistema, "978-0-13-235088-4", "12345678-5", 15);
 
         // Caso 4: Intentar préstamo excediendo período máximo
         System.out.println("\n--- CASO 4: Préstamo inválido (Excede período máximo) ---");
-        Prestamo prestamo4 = sistema.realizarPrestamo("978-0-13-597870-5", "20123456-K", 15);
+        demostrarPrestamo(sistema, "978-0-13-595705-9", "20123456-K", 15);
 
         // Caso 5: Devolución a tiempo (sin multa)
         System.out.println("\n--- CASO 5: Devolución a tiempo (Sin multa) ---");
-        int multa1 = sistema.realizarDevolucion("978-0-13-468599-1", "19876543-2");
-        if (multa1 >= 0) {
-            System.out.println("Multa: $" + multa1);
-        }
+        demostrarDevolucion(sistema, "978-0-13-468599-1", "19876543-2");
 
         // Caso 6: Préstamo con días máximos permitidos para estudiante
         System.out.println("\n--- CASO 6: Préstamo válido con período máximo (Estudiante - 10 días) ---");
-        Prestamo prestamo5 = sistema.realizarPrestamo("978-0-13-468599-1", "20123456-K", 10);
-        if (prestamo5 != null) {
-            System.out.println(prestamo5.generarTarjetaPrestamo());
-        }
+        demostrarPrestamo(sistema, "978-0-13-468599-1", "20123456-K", 10);
 
         // Caso 7: Intentar préstamo de libro que no existe
         System.out.println("\n--- CASO 7: Préstamo inválido (Libro no existe) ---");
-        Prestamo prestamo6 = sistema.realizarPrestamo("999-9-99-999999-9", "19876543-2", 5);
+        demostrarPrestamo(sistema, "999-9-99-999999-9", "19876543-2", 5);
 
         // Caso 8: Intentar préstamo con usuario que no existe
         System.out.println("\n--- CASO 8: Préstamo inválido (Usuario no existe) ---");
-        Prestamo prestamo7 = sistema.realizarPrestamo("978-0-13-235088-4", "11111111-1", 5);
+        demostrarPrestamo(sistema, "978-0-13-235088-4", "11111111-1", 5);
 
         System.out.println("\n╔═══════════════════════════════════════════════════════╗");
         System.out.println("║  FIN DE LA DEMOSTRACIÓN                               ║");
         System.out.println("╚═══════════════════════════════════════════════════════╝");
     }
+
+    /**
+     * Realiza un préstamo de la demostración y muestra la tarjeta o el motivo del rechazo.
+     */
+    private static void demostrarPrestamo(SistemaBiblioteca sistema, String isbn, String run, int dias) {
+        ResultadoCirculacion resultado = sistema.realizarPrestamo(isbn, run, dias);
+        if (resultado.esRealizado()) {
+            System.out.println(resultado.getPrestamo().generarTarjetaPrestamo());
+        } else {
+            System.out.println(resultado.describir(OperacionCirculacion.prestamo(isbn, run, dias), sistema));
+        }
+    }
+
+    /**
+     * Realiza una devolución de la demostración y muestra la multa o el motivo del rechazo.
+     */
+    private static void demostrarDevolucion(SistemaBiblioteca sistema, String isbn, String run) {
+        ResultadoCirculacion resultado = sistema.realizarDevolucion(isbn, run);
+        if (resultado.esRealizado()) {
+            System.out.println("Multa: $" + resultado.getMulta());
+        } else {
+            System.out.println(resultado.describir(OperacionCirculacion.devolucion(isbn, run), sistema));
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.*;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas de circulación mantenidas en vivo por {@link SistemaBiblioteca}.
+ *
+ * Cada contador es un LongAdder: las operaciones de préstamo y devolución suman en
+ * celdas repartidas entre hilos, sin competir por una misma variable, y la lectura
+ * solo suma las celdas. Así un panel puede consultarlas constantemente sin costo para
+ * la circulación. Las lecturas no son una foto atómica del conjunto: un contador puede
+ * reflejar una operación en curso que otro todavía no refleja.
+ *
+ * Los préstamos atrasados (activos y ya vencidos) no son un contador: dependen de la
+ * fecha, así que un préstamo pasa a estar atrasado sin que ocurra ninguna operación. Se
+ * cuentan al consultarlos con el índice de vencimientos del sistema, en tiempo
+ * proporcional a los días con préstamos atrasados. Las devoluciones atrasadas, en
+ * cambio, son un acumulado: cuántas devoluciones se hicieron con multa.
+ *
+ * Los cambios hechos directamente sobre un Libro (por ejemplo setCantidadBiblioteca)
+ * no pasan por el sistema; en ese caso se puede usar
+ * {@link SistemaBiblioteca#recalcularEstadisticas()}.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class EstadisticasCirculacion {
+
+    private final LongAdder totalEjemplares = new LongAdder();
+    private final LongAdder ejemplaresPrestados = new LongAdder();
+    private final LongAdder prestamosActivosDocentes = new LongAdder();
+    private final LongAdder prestamosActivosEstudiantes = new LongAdder();
+    private final LongAdder devolucionesAtrasadas = new LongAdder();
+    private final LongAdder multasRecaudadas = new LongAdder();
+    private final IndiceVencimientos vencimientos;
+    private final Clock reloj;
+
+    /**
+     * @param vencimientos Índice de préstamos activos del sistema, para contar los atrasados
+     * @param reloj Reloj del sistema, del que se toma la fecha actual
+     */
+    EstadisticasCirculacion(IndiceVencimientos vencimientos, Clock reloj) {
+        this.vencimientos = vencimientos;
+        this.reloj = reloj;
+    }
+
+    // ==================== ACTUALIZACIÓN ====================
+
+    void libroAgregado(Libro libro) {
+        totalEjemplares.add(libro.getCantidadBiblioteca());
+        ejemplaresPrestados.add(libro.getCantidadBiblioteca() - libro.getCantidadDisponible());
+    }
+
+    void libroEliminado(Libro libro) {
+        totalEjemplares.add(-libro.getCantidadBiblioteca());
+        ejemplaresPrestados.add(-(libro.getCantidadBiblioteca() - libro.getCantidadDisponible()));
+    }
+
+    void prestamoRealizado(Usuario usuario) {
+        ejemplaresPrestados.increment();
+        prestamosDelTipo(usuario).increment();
+    }
+
+    void devolucionRealizada(Usuario usuario, int multa) {
+        ejemplaresPrestados.decrement();
+        prestamosDelTipo(usuario).decrement();
+        if (multa > 0) {
+            devolucionesAtrasadas.increment();
+            multasRecaudadas.add(multa);
+        }
+    }
+
+    /**
+     * El usuario se eliminó con un préstamo activo: el préstamo deja de contarse como
+     * activo, pero el ejemplar sigue fuera de la biblioteca.
+     */
+    void usuarioConPrestamoEliminado(Usuario usuario) {
+        prestamosDelTipo(usuario).decrement();
+    }
+
+    private LongAdder prestamosDelTipo(Usuario usuario) {
+        return (usuario instanceof Docente) ? prestamosActivosDocentes : prestamosActivosEstudiantes;
+    }
+
+    /**
+     * Reemplaza los contadores de inventario y préstamos activos. Los acumulados
+     * (devoluciones atrasadas y multas) se conservan.
+     */
+    void reiniciarInventario(long total, long prestados, long docentes, long estudiantes) {
+        totalEjemplares.reset();
+        totalEjemplares.add(total);
+        ejemplaresPrestados.reset();
+        ejemplaresPrestados.add(prestados);
+        prestamosActivosDocentes.reset();
+        prestamosActivosDocentes.add(docentes);
+        prestamosActivosEstudiantes.reset();
+        prestamosActivosEstudiantes.add(estudiantes);
+    }
+
+    /**
+     * Suma acumulados guardados previamente, por ejemplo al cargar una instantánea,
+     * ya que el historial de devoluciones no se conserva en ella.
+     *
+     * @param devolucionesAtrasadas Devoluciones con atraso por agregar
+     * @param multasRecaudadas Multas por agregar
+     */
+    public void restaurarAcumulados(long devolucionesAtrasadas, long multasRecaudadas) {
+        if (devolucionesAtrasadas < 0 || multasRecaudadas < 0) {
+            throw new IllegalArgumentException("Los acumulados no pueden ser negativos");
+        }
+        this.devolucionesAtrasadas.add(devolucionesAtrasadas);
+        this.multasRecaudadas.add(multasRecaudadas);
+    }
+
+    // ==================== CONSULTA ====================
+
+    /**
+     * Retorna la suma de ejemplares de todos los libros.
+     *
+     * @return Total de ejemplares
+     */
+    public long getTotalEjemplares() {
+        return totalEjemplares.sum();
+    }
+
+    /**
+     * Retorna los ejemplares que no están disponibles en la biblioteca.
+     *
+     * @return Ejemplares prestados
+     */
+    public long getEjemplaresPrestados() {
+        return ejemplaresPrestados.sum();
+    }
+
+    public long getPrestamosActivosDocentes() {
+        return prestamosActivosDocentes.sum();
+    }
+
+    public long getPrestamosActivosEstudiantes() {
+        return prestamosActivosEstudiantes.sum();
+    }
+
+    public long getPrestamosActivos() {
+        return prestamosActivosDocentes.sum() + prestamosActivosEstudiantes.sum();
+    }
+
+    /**
+     * Retorna la cantidad de préstamos activos cuya fecha de devolución ya pasó, a la
+     * fecha del reloj del sistema. A diferencia de los demás valores, se calcula al
+     * consultarlo.
+     *
+     * @return Préstamos atrasados
+     */
+    public long getPrestamosAtrasados() {
+        return vencimientos.contarVencidosAntesDe(LocalDate.now(reloj));
+    }
+
+    /**
+     * Retorna la cantidad acumulada de devoluciones hechas con atraso (con multa); no
+     * baja cuando se devuelve un préstamo atrasado. Para los préstamos que están
+     * atrasados ahora, ver {@link #getPrestamosAtrasados()}.
+     *
+     * @return Devoluciones atrasadas acumuladas
+     */
+    public long getDevolucionesAtrasadas() {
+        return devolucionesAtrasadas.sum();
+    }
+
+    /**
+     * Retorna la suma de las multas cobradas en las devoluciones.
+     *
+     * @return Multas recaudadas
+     */
+    public long getMultasRecaudadas() {
+        return multasRecaudadas.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "EstadisticasCirculacion{" +
+                "totalEjemplares=" + getTotalEjemplares() +
+                ", ejemplaresPrestados=" + getEjemplaresPrestados() +
+                ", prestamosActivosDocentes=" + getPrestamosActivosDocentes() +
+                ", prestamosActivosEstudiantes=" + getPrestamosActivosEstudiantes() +
+                ", prestamosAtrasados=" + getPrestamosAtrasados() +
+                ", devolucionesAtrasadas=" + getDevolucionesAtrasadas() +
+                ", multasRecaudadas=" + getMultasRecaudadas() +
+                '}';
+    }
+}
@@ -0,0 +1,255 @@
+package unab.biblioteca.controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * Índice de claves numéricas (cuerpos de RUN o ISBN-13) que permite completarlas a partir
+ * de los primeros dígitos escritos y recorrerlas en orden, por páginas.
+ *
+ * Las claves se guardan en un arreglo long ordenado, sin objetos por entrada. Un prefijo
+ * decimal corresponde a un rango de claves por cada largo posible, por lo que completar
+ * es una búsqueda binaria por largo seguida de un recorrido de los primeros resultados.
+ *
+ * Las claves nuevas van primero a un conjunto ordenado pequeño, y cuando este crece se
+ * fusionan con el arreglo en el pool fork/join común, sin detener a quien agrega. Las
+ * consultas leen el conjunto antes que el arreglo: una clave que se fusiona mientras tanto
+ * se quita del conjunto solo después de publicar el arreglo nuevo, así que siempre se ve
+ * en alguno de los dos.
+ *
+ * Las claves no se quitan al eliminar un usuario o libro: las consultas filtran con un
+ * predicado de vigencia, y las claves que ya no son vigentes se descartan en la fusión.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+class IndicePrefijosNumerico {
+
+    private static final int MINIMO_PARA_FUSIONAR = 1024;
+
+    private final int digitosMinimos; // Las claves más cortas se completan con ceros a la izquierda
+    private final int digitosMaximos;
+    private final LongPredicate vigente;
+
+    private volatile long[] base = new long[0];
+    private final ConcurrentSkipListSet<Long> recientes = new ConcurrentSkipListSet<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final AtomicBoolean fusionando = new AtomicBoolean();
+    private volatile RuntimeException errorFusion; // De la última fusión fallida, o null
+
+    /**
+     * Constructor de IndicePrefijosNumerico.
+     *
+     * @param digitosMinimos Largo con que se escriben las claves cortas, rellenas con ceros
+     * @param digitosMaximos Largo máximo de una clave (a lo más 18)
+     * @param vigente Indica si una clave sigue existiendo; se usa al fusionar
+     */
+    IndicePrefijosNumerico(int digitosMinimos, int digitosMaximos, LongPredicate vigente) {
+        this.digitosMinimos = digitosMinimos;
+        this.digitosMaximos = digitosMaximos;
+        this.vigente = vigente;
+    }
+
+    /**
+     * Agrega una clave al índice. Agregar una clave que ya está no tiene efecto.
+     *
+     * @param clave Clave no negativa
+     */
+    void agregar(long clave) {
+        if (recientes.add(clave) && pendientes.incrementAndGet() >= Math.max(MINIMO_PARA_FUSIONAR, base.length / 8)) {
+            programarFusion();
+        }
+    }
+
+    /**
+     * Retorna las claves cuya representación decimal comienza con los dígitos dados, en
+     * orden ascendente.
+     *
+     * @param digitos Prefijo formado solo por dígitos
+     * @param maximo Cantidad máxima de claves
+     * @param filtro Condición que deben cumplir las claves retornadas, por ejemplo seguir existiendo
+     * @return Claves encontradas (a lo más maximo)
+     */
+    long[] completar(String digitos, int maximo, LongPredicate filtro) {
+        int largoPrefijo = digitos.length();
+        if (largoPrefijo == 0 || largoPrefijo > digitosMaximos || maximo <= 0) {
+            return new long[0];
+        }
+        long prefijo = Long.parseLong(digitos);
+
+        long[] encontradas = new long[maximo];
+        int cantidad = 0;
+        for (int largo = Math.max(largoPrefijo, digitosMinimos); largo <= digitosMaximos && cantidad < maximo; largo++) {
+            long escala = potenciaDeDiez(largo - largoPrefijo);
+            long desde = prefijo * escala;
+            long hasta = desde + escala - 1;
+            if (largo > digitosMinimos) {
+                // Con este largo la clave no lleva ceros a la izquierda
+                desde = Math.max(desde, potenciaDeDiez(largo - 1));
+            }
+            if (desde > hasta) {
+                continue;
+            }
+            cantidad = completarRango(desde, hasta, encontradas, cantidad, maximo, filtro);
+        }
+        return Arrays.copyOf(encontradas, cantidad);
+    }
+
+    /**
+     * Retorna las claves mayores que la dada, en orden ascendente. Sirve para listar por
+     * páginas usando la última clave de una página como cursor de la siguiente.
+     *
+     * @param despuesDe Clave desde la que se continúa (-1 para comenzar desde el inicio)
+     * @param maximo Cantidad máxima de claves
+     * @param filtro Condición que deben cumplir las claves retornadas
+     * @return Claves encontradas (a lo más maximo)
+     */
+    long[] siguientes(long despuesDe, int maximo, LongPredicate filtro) {
+        if (maximo <= 0 || despuesDe == Long.MAX_VALUE) {
+            return new long[0];
+        }
+        long[] encontradas = new long[maximo];
+        int cantidad = completarRango(despuesDe + 1, Long.MAX_VALUE, encontradas, 0, maximo, filtro);
+        return Arrays.copyOf(encontradas, cantidad);
+    }
+
+    /**
+     * Agrega a las encontradas las primeras claves del rango [desde, hasta] que cumplen el
+     * filtro. Como los rangos se recorren en orden, el resultado queda ordenado.
+     */
+    private int completarRango(long desde, long hasta, long[] encontradas, int cantidad, int maximo,
+                               LongPredicate filtro) {
+        int disponibles = maximo - cantidad;
+
+        // Primero las recientes, luego la base (ver comentario de la clase)
+        long[] deRecientes = new long[disponibles];
+        int n = 0;
+        Iterator<Long> iterador = recientes.subSet(desde, true, hasta, true).iterator();
+        while (n < disponibles && iterador.hasNext()) {
+            long clave = iterador.next();
+            if (filtro.test(clave)) {
+                deRecientes[n++] = clave;
+            }
+        }
+
+        long[] claves = base;
+        int m = 0;
+        long[] deBase = new long[disponibles];
+        for (int i = inicio(claves, desde); i < claves.length && claves[i] <= hasta && m < disponibles; i++) {
+            if (filtro.test(claves[i])) {
+                deBase[m++] = claves[i];
+            }
+        }
+
+        // Mezclar ambas listas ordenadas, sin repetir claves que están en las dos
+        int i = 0;
+        int j = 0;
+        while (cantidad < maximo && (i < n || j < m)) {
+            long siguiente;
+            if (j == m || (i < n && deRecientes[i] < deBase[j])) {
+                siguiente = deRecientes[i++];
+            } else if (i == n || deBase[j] < deRecientes[i]) {
+                siguiente = deBase[j++];
+            } else {
+                siguiente = deBase[j++];
+                i++;
+            }
+            encontradas[cantidad++] = siguiente;
+        }
+        return cantidad;
+    }
+
+    // ==================== FUSIÓN ====================
+
+    /**
+     * Retorna el error de la última fusión que falló. Una fusión fallida no pierde
+     * entradas: quedan en las recientes, donde las consultas las siguen viendo.
+     *
+     * @return Excepción de la última fusión fallida, o null si no ha fallado ninguna
+     */
+    RuntimeException getErrorFusion() {
+        return errorFusion;
+    }
+
+    private void programarFusion() {
+        if (fusionando.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    fusionar();
+                } catch (RuntimeException e) {
+                    // Las entradas siguen en las recientes y se fusionan en el próximo intento
+                    errorFusion = e;
+                } finally {
+                    fusionando.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Fusiona las claves recientes con la base en un arreglo nuevo, descartando las que ya
+     * no son vigentes, y luego las quita del conjunto de recientes.
+     *
+     * Una clave reciente descartada pudo volver a crearse durante la fusión (por ejemplo,
+     * un usuario eliminado y vuelto a registrar): su nuevo agregar no tuvo efecto porque
+     * la clave seguía en las recientes. Por eso, después de quitarla se vuelve a revisar
+     * su vigencia y, si está vigente, se agrega de nuevo. Como el registro se publica
+     * antes de agregar su clave, la revisión posterior a quitarla nunca lo pierde.
+     */
+    private void fusionar() {
+        ArrayList<Long> nuevas = new ArrayList<>(recientes);
+        ArrayList<Long> descartadas = new ArrayList<>();
+        long[] anterior = base;
+        long[] fusion = new long[anterior.length + nuevas.size()];
+        int cantidad = 0;
+        int i = 0;
+        int j = 0;
+        while (i < anterior.length || j < nuevas.size()) {
+            long clave;
+            boolean reciente = !(j == nuevas.size() || (i < anterior.length && anterior[i] < nuevas.get(j)));
+            if (reciente) {
+                clave = nuevas.get(j++);
+            } else {
+                clave = anterior[i++];
+            }
+            if (cantidad > 0 && fusion[cantidad - 1] == clave) {
+                continue;
+            }
+            if (vigente.test(clave)) {
+                fusion[cantidad++] = clave;
+            } else if (reciente) {
+                descartadas.add(clave);
+            }
+        }
+        base = Arrays.copyOf(fusion, cantidad);
+
+        for (Long clave : nuevas) {
+            recientes.remove(clave);
+        }
+        pendientes.addAndGet(-nuevas.size());
+
+        for (Long clave : descartadas) {
+            if (vigente.test(clave) && recientes.add(clave)) {
+                pendientes.incrementAndGet();
+            }
+        }
+    }
+
+    private static int inicio(long[] claves, long desde) {
+        int posicion = Arrays.binarySearch(claves, desde);
+        return (posicion >= 0) ? posicion : -posicion - 1;
+    }
+
+    private static long potenciaDeDiez(int exponente) {
+        long potencia = 1;
+        for (int i = 0; i < exponente; i++) {
+            potencia *= 10;
+        }
+        return potencia;
+    }
+}
@@ -0,0 +1,277 @@
+package unab.biblioteca.controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * Índice de palabras normalizadas (por ejemplo, de nombres de usuarios) que permite
+ * completarlas a partir de sus primeras letras. Cada palabra se asocia a las claves
+ * numéricas de los registros donde aparece.
+ *
+ * La base son arreglos ordenados: las palabras distintas, una sola vez cada una, y a
+ * continuación las claves de cada palabra en un arreglo long. Las palabras que comienzan
+ * con un prefijo quedan contiguas, por lo que completar es una búsqueda binaria seguida
+ * de un recorrido de los primeros resultados.
+ *
+ * Igual que en {@link IndicePrefijosNumerico}, las entradas nuevas van a un conjunto
+ * ordenado pequeño que se fusiona con la base en el pool fork/join común, y las consultas
+ * leen el conjunto antes que la base. Las entradas de registros eliminados se descartan
+ * en la fusión; las de palabras que un registro ya no tiene (por ejemplo, tras cambiar
+ * el nombre) quedan hasta entonces y las filtra la consulta.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+class IndicePrefijosTexto {
+
+    private static final int MINIMO_PARA_FUSIONAR = 1024;
+
+    private final LongPredicate vigente;
+
+    private volatile Base base = new Base(new String[0], new int[1], new long[0]);
+    private final ConcurrentSkipListSet<Entrada> recientes = new ConcurrentSkipListSet<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final AtomicBoolean fusionando = new AtomicBoolean();
+    private volatile RuntimeException errorFusion; // De la última fusión fallida, o null
+
+    /**
+     * Constructor de IndicePrefijosTexto.
+     *
+     * @param vigente Indica si la clave de un registro sigue existiendo; se usa al fusionar
+     */
+    IndicePrefijosTexto(LongPredicate vigente) {
+        this.vigente = vigente;
+    }
+
+    /**
+     * Asocia una palabra a la clave de un registro. Agregar una asociación que ya está no
+     * tiene efecto.
+     *
+     * @param palabra Palabra normalizada
+     * @param clave Clave del registro
+     */
+    void agregar(String palabra, long clave) {
+        if (recientes.add(new Entrada(palabra, clave))
+                && pendientes.incrementAndGet() >= Math.max(MINIMO_PARA_FUSIONAR, base.valores.length / 8)) {
+            programarFusion();
+        }
+    }
+
+    /**
+     * Retorna las claves de los registros que tienen alguna palabra que comienza con el
+     * prefijo dado, sin repetir. Se ordenan por palabra y luego por clave, de modo que las
+     * coincidencias exactas aparecen primero.
+     *
+     * @param prefijo Prefijo normalizado
+     * @param maximo Cantidad máxima de claves
+     * @param filtro Condición que deben cumplir las claves retornadas, por ejemplo que el
+     *               registro siga existiendo y conserve la palabra
+     * @return Claves encontradas (a lo más maximo)
+     */
+    long[] completar(String prefijo, int maximo, LongPredicate filtro) {
+        if (prefijo.isEmpty() || maximo <= 0) {
+            return new long[0];
+        }
+
+        // Primero las recientes, luego la base (ver IndicePrefijosNumerico)
+        Entrada[] deRecientes = new Entrada[maximo];
+        int n = 0;
+        Iterator<Entrada> iterador = recientes.tailSet(new Entrada(prefijo, Long.MIN_VALUE)).iterator();
+        while (n < maximo && iterador.hasNext()) {
+            Entrada entrada = iterador.next();
+            if (!entrada.palabra.startsWith(prefijo)) {
+                break;
+            }
+            if (!contiene(deRecientes, n, entrada.clave) && filtro.test(entrada.clave)) {
+                deRecientes[n++] = entrada;
+            }
+        }
+
+        Base actual = base;
+        Entrada[] deBase = new Entrada[maximo];
+        int m = 0;
+        for (int p = actual.inicio(prefijo); p < actual.palabras.length && m < maximo; p++) {
+            String palabra = actual.palabras[p];
+            if (!palabra.startsWith(prefijo)) {
+                break;
+            }
+            for (int i = actual.inicios[p]; i < actual.inicios[p + 1] && m < maximo; i++) {
+                long clave = actual.valores[i];
+                if (!contiene(deBase, m, clave) && filtro.test(clave)) {
+                    deBase[m++] = new Entrada(palabra, clave);
+                }
+            }
+        }
+
+        // Mezclar ambas listas ordenadas, sin repetir claves
+        long[] encontradas = new long[maximo];
+        int cantidad = 0;
+        int i = 0;
+        int j = 0;
+        while (cantidad < maximo && (i < n || j < m)) {
+            Entrada siguiente = (j == m || (i < n && deRecientes[i].compareTo(deBase[j]) <= 0))
+                    ? deRecientes[i++] : deBase[j++];
+            boolean repetida = false;
+            for (int k = 0; k < cantidad && !repetida; k++) {
+                repetida = encontradas[k] == siguiente.clave;
+            }
+            if (!repetida) {
+                encontradas[cantidad++] = siguiente.clave;
+            }
+        }
+        return Arrays.copyOf(encontradas, cantidad);
+    }
+
+    private static boolean contiene(Entrada[] entradas, int cantidad, long clave) {
+        for (int i = 0; i < cantidad; i++) {
+            if (entradas[i].clave == clave) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Asociación entre una palabra y una clave, ordenada por palabra y luego por clave.
+     */
+    private static final class Entrada implements Comparable<Entrada> {
+        final String palabra;
+        final long clave;
+
+        Entrada(String palabra, long clave) {
+            this.palabra = palabra;
+            this.clave = clave;
+        }
+
+        @Override
+        public int compareTo(Entrada otra) {
+            int porPalabra = palabra.compareTo(otra.palabra);
+            return (porPalabra != 0) ? porPalabra : Long.compare(clave, otra.clave);
+        }
+    }
+
+    /**
+     * Arreglos inmutables de la base: las claves de palabras[p] están en
+     * valores[inicios[p]] hasta valores[inicios[p + 1] - 1], en orden ascendente.
+     */
+    private static final class Base {
+        final String[] palabras;
+        final int[] inicios;
+        final long[] valores;
+
+        Base(String[] palabras, int[] inicios, long[] valores) {
+            this.palabras = palabras;
+            this.inicios = inicios;
+            this.valores = valores;
+        }
+
+        int inicio(String prefijo) {
+            int posicion = Arrays.binarySearch(palabras, prefijo);
+            return (posicion >= 0) ? posicion : -posicion - 1;
+        }
+    }
+
+    // ==================== FUSIÓN ====================
+
+    /**
+     * Retorna el error de la última fusión que falló. Una fusión fallida no pierde
+     * entradas: quedan en las recientes, donde las consultas las siguen viendo.
+     *
+     * @return Excepción de la última fusión fallida, o null si no ha fallado ninguna
+     */
+    RuntimeException getErrorFusion() {
+        return errorFusion;
+    }
+
+    private void programarFusion() {
+        if (fusionando.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    fusionar();
+                } catch (RuntimeException e) {
+                    // Las entradas siguen en las recientes y se fusionan en el próximo intento
+                    errorFusion = e;
+                } finally {
+                    fusionando.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Fusiona las entradas recientes con la base en arreglos nuevos, descartando las de
+     * registros que ya no existen, y luego las quita del conjunto de recientes. Las
+     * entradas recientes descartadas se revisan de nuevo al final, por si el registro se
+     * volvió a crear durante la fusión (ver {@link IndicePrefijosNumerico}).
+     */
+    private void fusionar() {
+        ArrayList<Entrada> nuevas = new ArrayList<>(recientes);
+        ArrayList<Entrada> descartadas = new ArrayList<>();
+        Base anterior = base;
+
+        ArrayList<String> palabras = new ArrayList<>();
+        int[] inicios = new int[anterior.palabras.length + nuevas.size() + 1];
+        long[] valores = new long[anterior.valores.length + nuevas.size()];
+        int cantidad = 0;
+
+        int p = 0; // Palabra actual de la base anterior
+        int i = 0; // Posición en los valores de la base anterior
+        int j = 0; // Posición en las nuevas
+        while (i < anterior.valores.length || j < nuevas.size()) {
+            while (p < anterior.palabras.length && anterior.inicios[p + 1] <= i) {
+                p++;
+            }
+            String palabra;
+            long clave;
+            boolean deAnterior = j == nuevas.size()
+                    || (i < anterior.valores.length && compararAnterior(anterior, p, i, nuevas.get(j)) < 0);
+            if (deAnterior) {
+                palabra = anterior.palabras[p];
+                clave = anterior.valores[i++];
+            } else {
+                palabra = nuevas.get(j).palabra;
+                clave = nuevas.get(j++).clave;
+            }
+            if (!vigente.test(clave)) {
+                if (!deAnterior) {
+                    descartadas.add(nuevas.get(j - 1));
+                }
+                continue;
+            }
+
+            int ultima = palabras.size() - 1;
+            if (ultima < 0 || !palabras.get(ultima).equals(palabra)) {
+                inicios[palabras.size()] = cantidad;
+                palabras.add(palabra);
+            } else if (valores[cantidad - 1] == clave) {
+                continue;
+            }
+            valores[cantidad++] = clave;
+        }
+        inicios[palabras.size()] = cantidad;
+
+        base = new Base(palabras.toArray(new String[0]), Arrays.copyOf(inicios, palabras.size() + 1),
+                Arrays.copyOf(valores, cantidad));
+
+        for (Entrada entrada : nuevas) {
+            recientes.remove(entrada);
+        }
+        pendientes.addAndGet(-nuevas.size());
+
+        for (Entrada entrada : descartadas) {
+            if (vigente.test(entrada.clave) && recientes.add(entrada)) {
+                pendientes.incrementAndGet();
+            }
+        }
+    }
+
+    private static int compararAnterior(Base anterior, int p, int i, Entrada nueva) {
+        int porPalabra = anterior.palabras[p].compareTo(nueva.palabra);
+        return (porPalabra != 0) ? porPalabra : Long.compare(anterior.valores[i], nueva.clave);
+    }
+}
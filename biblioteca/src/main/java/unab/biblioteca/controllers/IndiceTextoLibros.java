@@ -0,0 +1,439 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Libro;
+import unab.biblioteca.utils.MapaLongConcurrente;
+import unab.biblioteca.utils.NormalizadorTexto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Índice invertido de títulos y autores de libros.
+ *
+ * Cada palabra normalizada (ver {@link NormalizadorTexto}) tiene una lista de documentos
+ * donde aparece, y cada libro indexado es un documento con un número interno y las
+ * listas de las palabras de su título y de su autor. Una consulta exige todas sus
+ * palabras; la última se busca también como prefijo, para buscar mientras se escribe.
+ * Los candidatos salen de la lista más corta y se verifican comparando referencias
+ * con las palabras de cada documento, así que el costo depende de la palabra más rara
+ * y no del catálogo.
+ *
+ * El puntaje suma, por cada palabra de la consulta, su rareza (log(1 + N/df)) por el
+ * peso del mejor campo donde aparece: 2 el título y 1 el autor, divididos por la raíz
+ * de la cantidad de palabras del campo, para que un título corto que coincide en todo
+ * quede antes que uno largo que solo lo contiene. Como cada palabra aporta a lo más el
+ * mayor de los dos pesos, ese máximo por la rareza total acota el puntaje de un libro:
+ * una vez reunidos los mejores, los candidatos cuya cota no los supera se descartan
+ * sin leer el documento.
+ *
+ * Agregar y quitar libros es seguro desde varios hilos. Quitar un libro solo anula su
+ * documento: las listas no se reducen, y las consultas saltan los documentos anulados.
+ * Los cambios hechos con setTitulo o setAutor no se reflejan en el índice.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+class IndiceTextoLibros {
+
+    private static final int PESO_TITULO = 2;
+    private static final int PESO_AUTOR = 1;
+    private static final int LARGO_MINIMO_PREFIJO = 2;
+    private static final int MAXIMO_ALTERNATIVAS = 64;
+    private static final int BITS_PAGINA = 12;
+    private static final int TAMANO_PAGINA = 1 << BITS_PAGINA;
+
+    /**
+     * Lista de documentos de una palabra. Se agrega bajo el monitor de la lista y se
+     * publica con la cantidad, de modo que se puede leer sin bloqueo.
+     */
+    private static final class Postings {
+        final String palabra;
+        private int[] documentos = new int[2];
+        private volatile int cantidad;
+
+        Postings(String palabra) {
+            this.palabra = palabra;
+        }
+
+        synchronized void agregar(int documento) {
+            int n = cantidad;
+            if (n == documentos.length) {
+                int[] mayor = new int[n * 2];
+                System.arraycopy(documentos, 0, mayor, 0, n);
+                documentos = mayor;
+            }
+            documentos[n] = documento;
+            cantidad = n + 1;
+        }
+
+        int cantidad() {
+            return cantidad;
+        }
+
+        int[] documentos() {
+            return documentos;
+        }
+    }
+
+    /**
+     * Libro indexado y las listas de las palabras de su título y autor.
+     */
+    private static final class Documento {
+        final int numero;
+        final Libro libro;
+        final Postings[] titulo;
+        final Postings[] autor;
+        final double pesoTitulo;
+        final double pesoAutor;
+
+        Documento(int numero, Libro libro, Postings[] titulo, Postings[] autor) {
+            this.numero = numero;
+            this.libro = libro;
+            this.titulo = titulo;
+            this.autor = autor;
+            this.pesoTitulo = PESO_TITULO / Math.sqrt(Math.max(titulo.length, 1));
+            this.pesoAutor = PESO_AUTOR / Math.sqrt(Math.max(autor.length, 1));
+        }
+    }
+
+    /**
+     * Candidato con su puntaje, ordenado de menor a mayor puntaje y, a igual puntaje,
+     * los documentos más antiguos primero en el resultado.
+     */
+    private static final class Candidato implements Comparable<Candidato> {
+        final Documento documento;
+        final double puntaje;
+
+        Candidato(Documento documento, double puntaje) {
+            this.documento = documento;
+            this.puntaje = puntaje;
+        }
+
+        @Override
+        public int compareTo(Candidato otro) {
+            int comparacion = Double.compare(puntaje, otro.puntaje);
+            return (comparacion != 0) ? comparacion : Integer.compare(otro.documento.numero, documento.numero);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Postings> palabras = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> diccionario = new ConcurrentSkipListSet<>(); // Para prefijos
+    private final MapaLongConcurrente<Documento> porIsbn = new MapaLongConcurrente<>();
+    private final AtomicInteger siguienteDocumento = new AtomicInteger();
+    private final AtomicInteger vigentes = new AtomicInteger();
+    private volatile Pagina[] paginas = new Pagina[16];
+
+    // ==================== ACTUALIZACIÓN ====================
+
+    /**
+     * Indexa un libro. Si ya había un libro indexado con el mismo ISBN, lo reemplaza.
+     *
+     * @param libro Libro a indexar
+     */
+    void agregar(Libro libro) {
+        Documento documento = new Documento(siguienteDocumento.getAndIncrement(), libro,
+                listas(libro.getTitulo()), listas(libro.getAutor()));
+
+        Pagina pagina = pagina(documento.numero);
+        // Redondeada hacia arriba para que la cota nunca quede bajo el puntaje real
+        pagina.cotas[documento.numero & (TAMANO_PAGINA - 1)] =
+                Math.nextUp((float) Math.max(documento.pesoTitulo, documento.pesoAutor));
+        pagina.documentos.set(documento.numero & (TAMANO_PAGINA - 1), documento);
+        for (Postings lista : documento.titulo) {
+            lista.agregar(documento.numero);
+        }
+        for (Postings lista : documento.autor) {
+            if (!contiene(documento.titulo, lista)) {
+                lista.agregar(documento.numero);
+            }
+        }
+
+        vigentes.incrementAndGet();
+        Documento anterior = porIsbn.put(libro.getIsbnClave(), documento);
+        if (anterior != null) {
+            anular(anterior);
+        }
+    }
+
+    /**
+     * Quita un libro del índice, si es el indexado con su ISBN.
+     *
+     * @param libro Libro a quitar
+     */
+    void quitar(Libro libro) {
+        Documento documento = porIsbn.get(libro.getIsbnClave());
+        if (documento != null && documento.libro == libro && porIsbn.remove(libro.getIsbnClave(), documento)) {
+            anular(documento);
+        }
+    }
+
+    private void anular(Documento documento) {
+        if (pagina(documento.numero).documentos.compareAndSet(documento.numero & (TAMANO_PAGINA - 1), documento, null)) {
+            vigentes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Obtiene las listas de las palabras de un texto, sin repetir, creándolas si no existen.
+     */
+    private Postings[] listas(String texto) {
+        String[] separadas = NormalizadorTexto.palabras(texto);
+        ArrayList<Postings> resultado = new ArrayList<>(separadas.length);
+        for (String palabra : separadas) {
+            Postings lista = palabras.get(palabra);
+            if (lista == null) {
+                Postings nueva = new Postings(palabra);
+                lista = palabras.putIfAbsent(palabra, nueva);
+                if (lista == null) {
+                    lista = nueva;
+                    diccionario.add(palabra);
+                }
+            }
+            if (!resultado.contains(lista)) {
+                resultado.add(lista);
+            }
+        }
+        return resultado.toArray(new Postings[0]);
+    }
+
+    // ==================== CONSULTA ====================
+
+    /**
+     * Palabra de la consulta: una palabra exacta o las palabras del diccionario que
+     * comienzan con un prefijo. Si el prefijo tiene muchas palabras, se verifica con
+     * startsWith en vez de comparar contra cada una.
+     */
+    private static final class Termino {
+        final Postings[] alternativas; // null si se verifica por prefijo
+        final String prefijo;
+        final long documentos; // Suma de los largos de las listas
+        final double rareza;
+
+        Termino(Postings[] alternativas, String prefijo, long documentos, int total) {
+            this.alternativas = alternativas;
+            this.prefijo = prefijo;
+            this.documentos = documentos;
+            this.rareza = Math.log(1.0 + (double) total / Math.max(documentos, 1));
+        }
+
+        /**
+         * Retorna la primera palabra del documento (título y luego autor) que coincide.
+         */
+        Postings primera(Documento documento) {
+            Postings encontrada = primeraEn(documento.titulo);
+            return (encontrada != null) ? encontrada : primeraEn(documento.autor);
+        }
+
+        boolean aparece(Postings[] campo) {
+            return primeraEn(campo) != null;
+        }
+
+        private Postings primeraEn(Postings[] campo) {
+            for (Postings palabra : campo) {
+                if (coincide(palabra)) {
+                    return palabra;
+                }
+            }
+            return null;
+        }
+
+        private boolean coincide(Postings palabra) {
+            if (alternativas == null) {
+                return palabra.palabra.startsWith(prefijo);
+            }
+            for (Postings alternativa : alternativas) {
+                if (palabra == alternativa) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Busca libros que contienen todas las palabras de la consulta en su título o autor.
+     *
+     * @param consulta Texto de la consulta
+     * @param maximo Cantidad máxima de resultados
+     * @param vigente Condición que debe cumplir cada libro para incluirse
+     * @return Libros encontrados, de mayor a menor puntaje
+     */
+    ArrayList<Libro> buscar(String consulta, int maximo, Predicate<Libro> vigente) {
+        String[] palabrasConsulta = NormalizadorTexto.palabras(consulta);
+        if (palabrasConsulta.length == 0 || maximo <= 0) {
+            return new ArrayList<>();
+        }
+
+        int total = Math.max(vigentes.get(), 1);
+        Termino[] terminos = new Termino[palabrasConsulta.length];
+        Postings[][] fuentes = new Postings[palabrasConsulta.length][];
+        for (int i = 0; i < palabrasConsulta.length; i++) {
+            String palabra = palabrasConsulta[i];
+            boolean ultima = i == palabrasConsulta.length - 1;
+            Postings[] alternativas;
+            if (ultima && palabra.length() >= LARGO_MINIMO_PREFIJO) {
+                NavigableSet<String> expansion = diccionario.subSet(palabra, true, palabra + Character.MAX_VALUE, false);
+                ArrayList<Postings> listas = new ArrayList<>();
+                for (String completa : expansion) {
+                    listas.add(palabras.get(completa));
+                }
+                alternativas = listas.toArray(new Postings[0]);
+            } else {
+                Postings lista = palabras.get(palabra);
+                alternativas = (lista != null) ? new Postings[] {lista} : new Postings[0];
+            }
+            if (alternativas.length == 0) {
+                return new ArrayList<>(); // Una palabra sin coincidencias: ningún libro las tiene todas
+            }
+
+            long documentos = 0;
+            for (Postings lista : alternativas) {
+                documentos += lista.cantidad();
+            }
+            terminos[i] = (alternativas.length <= MAXIMO_ALTERNATIVAS)
+                    ? new Termino(alternativas, palabra, documentos, total)
+                    : new Termino(null, palabra, documentos, total);
+            fuentes[i] = alternativas;
+        }
+
+        // Los candidatos salen del término con menos documentos
+        int fuente = 0;
+        for (int i = 1; i < terminos.length; i++) {
+            if (terminos[i].documentos < terminos[fuente].documentos) {
+                fuente = i;
+            }
+        }
+
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(maximo + 1);
+        Postings[] listas = fuentes[fuente];
+        for (Postings lista : listas) {
+            evaluar(lista, (listas.length > 1) ? terminos[fuente] : null, terminos, maximo, vigente, mejores);
+        }
+
+        ArrayList<Libro> resultado = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            resultado.add(mejores.poll().documento.libro);
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    /**
+     * Verifica y puntúa los documentos de una lista, conservando los mejores. Si la fuente
+     * es una de varias alternativas de un término, cada documento se evalúa solo desde la
+     * lista de su primera palabra que coincide con el término, para no repetirlo.
+     */
+    private void evaluar(Postings fuente, Termino alternativo, Termino[] terminos, int maximo,
+                         Predicate<Libro> vigente, PriorityQueue<Candidato> mejores) {
+        double rarezaTotal = 0;
+        for (Termino termino : terminos) {
+            rarezaTotal += termino.rareza;
+        }
+        double umbral = (mejores.size() == maximo) ? mejores.peek().puntaje : -1;
+
+        Pagina[] actuales = paginas;
+        int n = fuente.cantidad();
+        int[] documentos = fuente.documentos();
+        for (int i = 0; i < n; i++) {
+            int numero = documentos[i];
+            int indice = numero >>> BITS_PAGINA;
+            Pagina pagina = (indice < actuales.length) ? actuales[indice] : null;
+            if (pagina == null) {
+                actuales = paginas; // Página creada después de leer el arreglo
+                pagina = (indice < actuales.length) ? actuales[indice] : null;
+                if (pagina == null) {
+                    continue;
+                }
+            }
+
+            // Con los mejores completos, descartar sin leer el documento si ni su cota supera al peor
+            if (umbral >= 0 && pagina.cotas[numero & (TAMANO_PAGINA - 1)] * rarezaTotal <= umbral) {
+                continue;
+            }
+            Documento documento = pagina.documentos.get(numero & (TAMANO_PAGINA - 1));
+            if (documento == null || (alternativo != null && alternativo.primera(documento) != fuente)) {
+                continue;
+            }
+
+            double puntaje = 0;
+            boolean coincide = true;
+            for (int t = 0; t < terminos.length && coincide; t++) {
+                double peso = 0;
+                if (terminos[t].aparece(documento.titulo)) {
+                    peso = documento.pesoTitulo;
+                }
+                if (peso < documento.pesoAutor && terminos[t].aparece(documento.autor)) {
+                    peso = documento.pesoAutor;
+                }
+                coincide = peso > 0;
+                puntaje += peso * terminos[t].rareza;
+            }
+
+            // La condición de vigencia se revisa solo si el candidato entra entre los mejores
+            if (coincide && puntaje > umbral && vigente.test(documento.libro)) {
+                if (mejores.size() == maximo) {
+                    mejores.poll();
+                }
+                mejores.add(new Candidato(documento, puntaje));
+                if (mejores.size() == maximo) {
+                    umbral = mejores.peek().puntaje;
+                }
+            }
+        }
+    }
+
+    private static boolean contiene(Postings[] campo, Postings lista) {
+        for (Postings palabra : campo) {
+            if (palabra == lista) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== DOCUMENTOS ====================
+
+    /**
+     * Página de documentos consecutivos, con la cota de puntaje de cada uno en un arreglo
+     * aparte: la cota se lee sin tocar el documento, lo que permite descartar candidatos
+     * recorriendo solo memoria contigua. La cota se escribe antes de publicar el documento.
+     */
+    private static final class Pagina {
+        final AtomicReferenceArray<Documento> documentos = new AtomicReferenceArray<>(TAMANO_PAGINA);
+        final float[] cotas = new float[TAMANO_PAGINA];
+    }
+
+    private Pagina paginaExistente(int numero) {
+        Pagina[] actuales = paginas;
+        int indice = numero >>> BITS_PAGINA;
+        return (indice < actuales.length) ? actuales[indice] : null;
+    }
+
+    /**
+     * Retorna la página del documento, creándola (y ampliando el arreglo de páginas) si no existe.
+     */
+    private Pagina pagina(int numero) {
+        Pagina pagina = paginaExistente(numero);
+        if (pagina != null) {
+            return pagina;
+        }
+        int indice = numero >>> BITS_PAGINA;
+        synchronized (this) {
+            Pagina[] actuales = paginas;
+            if (indice < actuales.length && actuales[indice] != null) {
+                return actuales[indice];
+            }
+            int largo = (indice < actuales.length) ? actuales.length : Math.max(actuales.length * 2, indice + 1);
+            actuales = Arrays.copyOf(actuales, largo);
+            actuales[indice] = new Pagina();
+            paginas = actuales;
+            return actuales[indice];
+        }
+    }
+}
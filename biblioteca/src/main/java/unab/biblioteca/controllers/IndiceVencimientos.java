@@ -0,0 +1,124 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Prestamo;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de préstamos activos ordenado por fecha de devolución.
+ *
+ * Los préstamos se agrupan en un casillero por día (el día de época de su fecha de
+ * devolución) y los casilleros se guardan en un mapa ordenado. Así, los préstamos
+ * atrasados a una fecha o los que vencen en un rango se obtienen recorriendo solo los
+ * casilleros del rango, en tiempo proporcional al resultado y no al historial.
+ *
+ * Agregar y quitar préstamos toma el bloqueo de lectura, por lo que varios mesones
+ * lo hacen a la vez; el de escritura se usa solo para descartar un casillero que quedó
+ * vacío, de modo que un préstamo nunca se agregue a un casillero ya descartado.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+class IndiceVencimientos {
+
+    private final ConcurrentSkipListMap<Long, Set<Prestamo>> casilleros = new ConcurrentSkipListMap<>();
+    private final ReentrantReadWriteLock descarte = new ReentrantReadWriteLock();
+
+    /**
+     * Agrega un préstamo activo al casillero de su fecha de devolución.
+     *
+     * @param prestamo Préstamo activo
+     */
+    void agregar(Prestamo prestamo) {
+        long dia = prestamo.getDiaDevolucion();
+        descarte.readLock().lock();
+        try {
+            casilleros.computeIfAbsent(dia, d -> ConcurrentHashMap.newKeySet()).add(prestamo);
+        } finally {
+            descarte.readLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un préstamo del índice y descarta su casillero si quedó vacío.
+     *
+     * @param prestamo Préstamo cerrado
+     */
+    void quitar(Prestamo prestamo) {
+        long dia = prestamo.getDiaDevolucion();
+        boolean vacio;
+        descarte.readLock().lock();
+        try {
+            Set<Prestamo> casillero = casilleros.get(dia);
+            if (casillero == null || !casillero.remove(prestamo)) {
+                return;
+            }
+            vacio = casillero.isEmpty();
+        } finally {
+            descarte.readLock().unlock();
+        }
+
+        if (vacio) {
+            descarte.writeLock().lock();
+            try {
+                Set<Prestamo> casillero = casilleros.get(dia);
+                if (casillero != null && casillero.isEmpty()) {
+                    casilleros.remove(dia, casillero);
+                }
+            } finally {
+                descarte.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Retorna los préstamos cuya fecha de devolución es anterior a la fecha dada.
+     *
+     * @param fecha Fecha de referencia
+     * @return Préstamos atrasados a esa fecha, ordenados por fecha de devolución
+     */
+    ArrayList<Prestamo> vencidosAntesDe(LocalDate fecha) {
+        return reunir(casilleros.headMap(fecha.toEpochDay(), false));
+    }
+
+    /**
+     * Cuenta los préstamos cuya fecha de devolución es anterior a la fecha dada, sin
+     * reunirlos: solo suma el tamaño de cada casillero atrasado.
+     *
+     * @param fecha Fecha de referencia
+     * @return Cantidad de préstamos atrasados a esa fecha
+     */
+    long contarVencidosAntesDe(LocalDate fecha) {
+        long cantidad = 0;
+        for (Set<Prestamo> casillero : casilleros.headMap(fecha.toEpochDay(), false).values()) {
+            cantidad += casillero.size();
+        }
+        return cantidad;
+    }
+
+    /**
+     * Retorna los préstamos cuya fecha de devolución está entre dos fechas, ambas incluidas.
+     *
+     * @param desde Primera fecha del rango
+     * @param hasta Última fecha del rango
+     * @return Préstamos que vencen en el rango, ordenados por fecha de devolución
+     */
+    ArrayList<Prestamo> vencenEntre(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            return new ArrayList<>();
+        }
+        return reunir(casilleros.subMap(desde.toEpochDay(), true, hasta.toEpochDay(), true));
+    }
+
+    private static ArrayList<Prestamo> reunir(Map<Long, Set<Prestamo>> rango) {
+        ArrayList<Prestamo> resultado = new ArrayList<>();
+        for (Set<Prestamo> casillero : rango.values()) {
+            resultado.addAll(casillero);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,70 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Prestamo;
+import java.time.LocalDate;
+
+/**
+ * Multas acumuladas por los préstamos atrasados a una fecha, calculadas por {@link MotorMultas}.
+ * Los préstamos se guardan del más antiguo al más reciente según su fecha de devolución,
+ * y la multa de cada uno en la misma posición de un arreglo de enteros.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class LiquidacionMultas {
+
+    private final LocalDate fecha;
+    private final Prestamo[] prestamos;
+    private final int[] multas;
+    private final long total;
+
+    LiquidacionMultas(LocalDate fecha, Prestamo[] prestamos, int[] multas, long total) {
+        this.fecha = fecha;
+        this.prestamos = prestamos;
+        this.multas = multas;
+        this.total = total;
+    }
+
+    /**
+     * Retorna la fecha a la que se calcularon las multas.
+     *
+     * @return Fecha de la liquidación
+     */
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    /**
+     * Retorna la cantidad de préstamos atrasados.
+     *
+     * @return Préstamos con multa
+     */
+    public int getCantidad() {
+        return prestamos.length;
+    }
+
+    public Prestamo getPrestamo(int indice) {
+        return prestamos[indice];
+    }
+
+    public int getMulta(int indice) {
+        return multas[indice];
+    }
+
+    /**
+     * Retorna la suma de las multas de todos los préstamos atrasados.
+     *
+     * @return Total adeudado a la fecha
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "LiquidacionMultas{" +
+                "fecha=" + fecha +
+                ", prestamosAtrasados=" + prestamos.length +
+                ", total=" + total +
+                '}';
+    }
+}
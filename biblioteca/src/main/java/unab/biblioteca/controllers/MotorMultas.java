@@ -0,0 +1,171 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Prestamo;
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Calcula en lote las multas de todos los préstamos activos a una fecha.
+ *
+ * Los préstamos atrasados se obtienen del índice de vencimientos del sistema, sin
+ * recorrer el historial, y la multa de cada uno se calcula en paralelo restando días
+ * de época, sin crear objetos de fecha. La fecha de la liquidación es un parámetro,
+ * por lo que se puede repetir para cualquier día pasado o futuro.
+ *
+ * Opcionalmente, ejecuta una liquidación diaria en un hilo de fondo, al cambiar el día
+ * según el reloj del sistema.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class MotorMultas implements Closeable {
+
+    private static final long MINUTOS_ENTRE_REVISIONES = 60;
+
+    private final SistemaBiblioteca sistema;
+
+    private LocalDate ultimaLiquidacion; // Solo la usa el hilo de la liquidación diaria
+    private ScheduledExecutorService liquidacionDiaria;
+    private volatile RuntimeException errorLiquidacion; // De la última revisión diaria, o null
+
+    /**
+     * Constructor de MotorMultas.
+     *
+     * @param sistema Sistema cuyos préstamos se liquidan
+     */
+    public MotorMultas(SistemaBiblioteca sistema) {
+        if (sistema == null) {
+            throw new IllegalArgumentException("El sistema no puede ser nulo");
+        }
+        this.sistema = sistema;
+    }
+
+    /**
+     * Calcula las multas de los préstamos activos atrasados a la fecha dada, es decir,
+     * lo que pagaría cada usuario si devolviera el libro ese día.
+     *
+     * @param fecha Fecha de la liquidación
+     * @return Liquidación con la multa de cada préstamo atrasado y el total
+     */
+    public LiquidacionMultas liquidar(LocalDate fecha) {
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha no puede ser nula");
+        }
+        Prestamo[] atrasados = sistema.listarPrestamosAtrasados(fecha).toArray(new Prestamo[0]);
+        int[] multas = new int[atrasados.length];
+        long total = ForkJoinPool.commonPool().invoke(
+                new CalculoMultas(atrasados, multas, fecha.toEpochDay(), 0, atrasados.length));
+        return new LiquidacionMultas(fecha, atrasados, multas, total);
+    }
+
+    /**
+     * Calcula las multas de un rango dividiéndolo en mitades hasta llegar a bloques
+     * pequeños, y retorna su suma.
+     */
+    @SuppressWarnings("serial")
+    private static final class CalculoMultas extends RecursiveTask<Long> {
+        private static final int UMBRAL = 8192;
+
+        private final Prestamo[] prestamos;
+        private final int[] multas;
+        private final long dia;
+        private final int desde;
+        private final int hasta;
+
+        CalculoMultas(Prestamo[] prestamos, int[] multas, long dia, int desde, int hasta) {
+            this.prestamos = prestamos;
+            this.multas = multas;
+            this.dia = dia;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hasta - desde > UMBRAL) {
+                int medio = (desde + hasta) >>> 1;
+                CalculoMultas izquierda = new CalculoMultas(prestamos, multas, dia, desde, medio);
+                izquierda.fork();
+                long derecha = new CalculoMultas(prestamos, multas, dia, medio, hasta).compute();
+                return izquierda.join() + derecha;
+            }
+
+            long suma = 0;
+            for (int i = desde; i < hasta; i++) {
+                int multa = Prestamo.multaPorRetraso(prestamos[i].getDiaDevolucion(), dia);
+                multas[i] = multa;
+                suma += multa;
+            }
+            return suma;
+        }
+    }
+
+    // ==================== LIQUIDACIÓN DIARIA ====================
+
+    /**
+     * Programa una liquidación diaria en un hilo de fondo. El hilo revisa cada hora si
+     * cambió el día y, en ese caso, liquida a la nueva fecha y entrega el resultado al
+     * destino. La primera liquidación ocurre de inmediato.
+     *
+     * @param destino Receptor de las liquidaciones; se invoca desde el hilo de fondo
+     */
+    public synchronized void programarLiquidacionDiaria(Consumer<LiquidacionMultas> destino) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El destino no puede ser nulo");
+        }
+        if (liquidacionDiaria != null) {
+            throw new IllegalStateException("La liquidación diaria ya está programada");
+        }
+        liquidacionDiaria = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "liquidacion-multas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        liquidacionDiaria.scheduleWithFixedDelay(() -> {
+            try {
+                LocalDate hoy = sistema.hoy();
+                if (ultimaLiquidacion == null || hoy.isAfter(ultimaLiquidacion)) {
+                    destino.accept(liquidar(hoy));
+                    ultimaLiquidacion = hoy;
+                }
+                errorLiquidacion = null;
+            } catch (RuntimeException e) {
+                // La liquidación del día se reintenta en la próxima revisión
+                errorLiquidacion = e;
+            }
+        }, 0, MINUTOS_ENTRE_REVISIONES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Retorna el error de la última revisión de la liquidación diaria, si falló. Una
+     * liquidación que falla se reintenta en la revisión siguiente.
+     *
+     * @return Excepción de la última revisión, o null si resultó bien o aún no se ejecuta
+     */
+    public RuntimeException getErrorLiquidacion() {
+        return errorLiquidacion;
+    }
+
+    /**
+     * Detiene la liquidación diaria, si estaba programada.
+     *
+     * @throws IllegalStateException si la última revisión diaria falló, con su error como causa
+     */
+    @Override
+    public synchronized void close() {
+        if (liquidacionDiaria != null) {
+            liquidacionDiaria.shutdown();
+            liquidacionDiaria = null;
+        }
+        RuntimeException error = errorLiquidacion;
+        if (error != null) {
+            errorLiquidacion = null;
+            throw new IllegalStateException("La última liquidación diaria de multas falló", error);
+        }
+    }
+}
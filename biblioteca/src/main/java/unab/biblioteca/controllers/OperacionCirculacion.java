@@ -0,0 +1,98 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+
+/**
+ * Préstamo o devolución que forma parte de un lote, ver
+ * {@link SistemaBiblioteca#procesarLote(java.util.List)}, o que se informa como rechazado
+ * a un {@link RegistroRechazos}.
+ *
+ * Las operaciones recibidas por clave (ISBN-13 y cuerpo del RUN como números) guardan las
+ * claves y las convierten a texto recién cuando se piden, de modo que informar un rechazo
+ * no arma texto en el hilo que atiende la operación.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class OperacionCirculacion {
+
+    private final boolean prestamo;
+    private final String isbn;
+    private final String run;
+    private final long isbnClave;
+    private final int runClave;
+    private final int dias;
+
+    private OperacionCirculacion(boolean prestamo, String isbn, String run, long isbnClave, int runClave, int dias) {
+        this.prestamo = prestamo;
+        this.isbn = isbn;
+        this.run = run;
+        this.isbnClave = isbnClave;
+        this.runClave = runClave;
+        this.dias = dias;
+    }
+
+    /**
+     * Crea la operación de prestar un libro a un usuario.
+     *
+     * @param isbn ISBN del libro
+     * @param run RUN del usuario
+     * @param dias Días por los que se presta
+     * @return Operación de préstamo
+     */
+    public static OperacionCirculacion prestamo(String isbn, String run, int dias) {
+        return new OperacionCirculacion(true, isbn, run, 0, 0, dias);
+    }
+
+    /**
+     * Crea la operación de devolver un libro prestado a un usuario.
+     *
+     * @param isbn ISBN del libro
+     * @param run RUN del usuario
+     * @return Operación de devolución
+     */
+    public static OperacionCirculacion devolucion(String isbn, String run) {
+        return new OperacionCirculacion(false, isbn, run, 0, 0, 0);
+    }
+
+    /**
+     * Crea la operación de préstamo recibida por clave, sin convertir las claves a texto.
+     */
+    static OperacionCirculacion prestamo(long isbnClave, int runClave, int dias) {
+        return new OperacionCirculacion(true, null, null, isbnClave, runClave, dias);
+    }
+
+    /**
+     * Crea la operación de devolución recibida por clave, sin convertir las claves a texto.
+     */
+    static OperacionCirculacion devolucion(long isbnClave, int runClave) {
+        return new OperacionCirculacion(false, null, null, isbnClave, runClave, 0);
+    }
+
+    public boolean esPrestamo() {
+        return prestamo;
+    }
+
+    public String getIsbn() {
+        return (isbn != null) ? isbn : ValidadorISBN.formatearISBN(isbnClave);
+    }
+
+    public String getRun() {
+        if (run != null) {
+            return run;
+        }
+        // La clave llega sin validar: solo se formatea si puede ser el cuerpo de un RUN
+        return (runClave > 0 && runClave <= 99_999_999)
+                ? ValidadorRUN.formatearRUN(runClave) : String.valueOf(runClave);
+    }
+
+    public int getDias() {
+        return dias;
+    }
+
+    @Override
+    public String toString() {
+        return prestamo ? "Prestamo{isbn='" + getIsbn() + "', run='" + getRun() + "', dias=" + dias + '}'
+                : "Devolucion{isbn='" + getIsbn() + "', run='" + getRun() + "'}";
+    }
+}
@@ -0,0 +1,55 @@
+package unab.biblioteca.controllers;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de un listado: los elementos de la página y el cursor para pedir la siguiente.
+ *
+ * El cursor es la clave del último elemento de la página (el RUN o el ISBN, según el
+ * listado) o su posición, de modo que la página siguiente comienza justo después aunque
+ * entretanto se agreguen o eliminen elementos, y pedirla no requiere recorrer las anteriores.
+ *
+ * @param <T> Tipo de los elementos
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class Pagina<T> {
+
+    /** Cursor para pedir la primera página de un listado. */
+    public static final long INICIO = -1;
+
+    private final List<T> elementos;
+    private final long siguiente;
+
+    public Pagina(List<T> elementos, long siguiente) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.siguiente = siguiente;
+    }
+
+    /**
+     * Retorna los elementos de la página, en el orden del listado.
+     *
+     * @return Lista de elementos (no modificable)
+     */
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Indica si hay más elementos después de esta página.
+     *
+     * @return true si la página no es la última
+     */
+    public boolean hayMas() {
+        return siguiente != INICIO;
+    }
+
+    /**
+     * Retorna el cursor con que se pide la página siguiente.
+     *
+     * @return Cursor, o {@link #INICIO} si esta es la última página
+     */
+    public long getSiguiente() {
+        return siguiente;
+    }
+}
@@ -0,0 +1,140 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Prestamo;
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Emite recordatorios diarios de préstamos por vencer y atrasados en un hilo de fondo.
+ *
+ * Cada día se avisa una sola vez por préstamo y motivo: "por vencer" el día que faltan
+ * los días de anticipación configurados, y "atrasado" el primer día de atraso. Ambos
+ * casos se consultan en el índice de vencimientos del sistema, por lo que el trabajo
+ * depende de los préstamos que vencen ese día y no del total de préstamos.
+ *
+ * El hilo revisa cada hora si cambió el día según el reloj del sistema. Si estuvo
+ * detenido o el equipo suspendido, al retomar emite también los recordatorios de los
+ * días que faltaron.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ProgramadorRecordatorios implements Closeable {
+
+    private static final long MINUTOS_ENTRE_REVISIONES = 60;
+
+    private final SistemaBiblioteca sistema;
+    private final int diasAnticipacion;
+    private final Consumer<Recordatorio> destino;
+
+    private LocalDate ultimoDiaEmitido; // null hasta la primera emisión
+    private ScheduledExecutorService revisionPeriodica;
+    private volatile RuntimeException errorRevision; // De la última revisión periódica, o null
+
+    /**
+     * Constructor de ProgramadorRecordatorios.
+     *
+     * @param sistema Sistema cuyos préstamos se revisan
+     * @param diasAnticipacion Días antes del vencimiento en que se avisa
+     * @param destino Receptor de los recordatorios; se invoca desde el hilo de fondo
+     */
+    public ProgramadorRecordatorios(SistemaBiblioteca sistema, int diasAnticipacion, Consumer<Recordatorio> destino) {
+        if (sistema == null || destino == null) {
+            throw new IllegalArgumentException("El sistema y el destino no pueden ser nulos");
+        }
+        if (diasAnticipacion < 0) {
+            throw new IllegalArgumentException("Los días de anticipación no pueden ser negativos");
+        }
+        this.sistema = sistema;
+        this.diasAnticipacion = diasAnticipacion;
+        this.destino = destino;
+    }
+
+    /**
+     * Inicia la revisión periódica. La primera emisión ocurre de inmediato.
+     */
+    public synchronized void iniciar() {
+        if (revisionPeriodica != null) {
+            throw new IllegalStateException("Los recordatorios ya están programados");
+        }
+        revisionPeriodica = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "recordatorios-prestamos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        revisionPeriodica.scheduleWithFixedDelay(() -> {
+            try {
+                emitirHasta(sistema.hoy());
+                errorRevision = null;
+            } catch (RuntimeException e) {
+                // Los días sin emitir se reintentan en la próxima revisión
+                errorRevision = e;
+            }
+        }, 0, MINUTOS_ENTRE_REVISIONES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Retorna el error de la última revisión periódica, si falló. Los días que no se
+     * alcanzaron a emitir se emiten en la revisión siguiente.
+     *
+     * @return Excepción de la última revisión, o null si resultó bien o aún no se ejecuta
+     */
+    public RuntimeException getErrorRevision() {
+        return errorRevision;
+    }
+
+    /**
+     * Emite los recordatorios de los días transcurridos desde la última emisión hasta
+     * la fecha dada, incluida. Si ya se emitieron los de esa fecha, no hace nada.
+     *
+     * @param hoy Fecha actual
+     * @return Cantidad de recordatorios emitidos
+     */
+    public synchronized int emitirHasta(LocalDate hoy) {
+        if (hoy == null) {
+            throw new IllegalArgumentException("La fecha no puede ser nula");
+        }
+        LocalDate desde = (ultimoDiaEmitido == null) ? hoy : ultimoDiaEmitido.plusDays(1);
+        if (desde.isAfter(hoy)) {
+            return 0;
+        }
+
+        int emitidos = 0;
+        // Por vencer: vencen entre desde + anticipación y hoy + anticipación
+        for (Prestamo prestamo : sistema.listarPrestamosPorVencer(desde.plusDays(diasAnticipacion),
+                (int) (hoy.toEpochDay() - desde.toEpochDay()))) {
+            destino.accept(new Recordatorio(Recordatorio.Tipo.POR_VENCER, prestamo, hoy));
+            emitidos++;
+        }
+        // Atrasados: el primer día de atraso es el siguiente a la fecha de devolución
+        for (Prestamo prestamo : sistema.listarPrestamosPorVencer(desde.minusDays(1),
+                (int) (hoy.toEpochDay() - desde.toEpochDay()))) {
+            destino.accept(new Recordatorio(Recordatorio.Tipo.ATRASADO, prestamo, hoy));
+            emitidos++;
+        }
+
+        ultimoDiaEmitido = hoy;
+        return emitidos;
+    }
+
+    /**
+     * Detiene la revisión periódica. Una emisión en curso termina normalmente.
+     *
+     * @throws IllegalStateException si la última revisión periódica falló, con su error como causa
+     */
+    @Override
+    public synchronized void close() {
+        if (revisionPeriodica != null) {
+            revisionPeriodica.shutdown();
+            revisionPeriodica = null;
+        }
+        RuntimeException error = errorRevision;
+        if (error != null) {
+            errorRevision = null;
+            throw new IllegalStateException("La última revisión de recordatorios falló", error);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Prestamo;
+import java.time.LocalDate;
+
+/**
+ * Aviso sobre un préstamo activo emitido por {@link ProgramadorRecordatorios}.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class Recordatorio {
+
+    /**
+     * Motivo del recordatorio.
+     */
+    public enum Tipo {
+        /** El préstamo vence dentro de los días de anticipación configurados. */
+        POR_VENCER,
+        /** El préstamo no se devolvió en su fecha de devolución. */
+        ATRASADO
+    }
+
+    private final Tipo tipo;
+    private final Prestamo prestamo;
+    private final LocalDate fecha;
+
+    public Recordatorio(Tipo tipo, Prestamo prestamo, LocalDate fecha) {
+        this.tipo = tipo;
+        this.prestamo = prestamo;
+        this.fecha = fecha;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Prestamo getPrestamo() {
+        return prestamo;
+    }
+
+    /**
+     * Retorna el día al que corresponde el recordatorio.
+     *
+     * @return Fecha de emisión
+     */
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    @Override
+    public String toString() {
+        return "Recordatorio{" +
+                "tipo=" + tipo +
+                ", fecha=" + fecha +
+                ", isbn='" + prestamo.getIsbn() + '\'' +
+                ", run='" + prestamo.getRun() + '\'' +
+                ", fechaDevolucion=" + prestamo.getFechaDevolucion() +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package unab.biblioteca.controllers;
+
+/**
+ * Destino de los préstamos y devoluciones rechazados, para registrarlos o mostrarlos
+ * fuera del controlador. Ver {@link SistemaBiblioteca#setRegistroRechazos(RegistroRechazos)}.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public interface RegistroRechazos {
+
+    /**
+     * Recibe una operación rechazada. Se llama desde el hilo que realizó la operación, por
+     * lo que no debería bloquearse ni hacer I/O.
+     *
+     * @param operacion Operación rechazada
+     * @param resultado Resultado con el motivo del rechazo
+     */
+    void rechazado(OperacionCirculacion operacion, ResultadoCirculacion resultado);
+}
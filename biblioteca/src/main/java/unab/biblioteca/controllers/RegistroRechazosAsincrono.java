@@ -0,0 +1,155 @@
+package unab.biblioteca.controllers;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de rechazos que escribe los mensajes desde un hilo de fondo.
+ *
+ * Quien realiza la operación solo deja el rechazo en una cola acotada, sin armar el
+ * mensaje ni escribir; el hilo de fondo arma los mensajes con
+ * {@link ResultadoCirculacion#describir(OperacionCirculacion, SistemaBiblioteca)} y los
+ * escribe por lotes. Si la cola está llena el rechazo se descarta y se cuenta, de modo
+ * que una ráfaga de rechazos no frena la circulación.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class RegistroRechazosAsincrono implements RegistroRechazos, Closeable {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 4096;
+
+    private final SistemaBiblioteca sistema;
+    private final PrintStream salida;
+    private final ArrayBlockingQueue<Rechazo> cola;
+    private final AtomicLong descartados = new AtomicLong();
+    private final Thread hiloEscritura;
+    private volatile boolean cerrado;
+
+    /**
+     * Constructor de RegistroRechazosAsincrono con una cola de 4096 rechazos.
+     *
+     * @param sistema Sistema cuyos rechazos se registran (para armar los mensajes)
+     * @param salida Donde se escriben los mensajes
+     */
+    public RegistroRechazosAsincrono(SistemaBiblioteca sistema, PrintStream salida) {
+        this(sistema, salida, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de RegistroRechazosAsincrono.
+     *
+     * @param sistema Sistema cuyos rechazos se registran (para armar los mensajes)
+     * @param salida Donde se escriben los mensajes
+     * @param capacidad Rechazos que pueden esperar en la cola antes de descartarse
+     */
+    public RegistroRechazosAsincrono(SistemaBiblioteca sistema, PrintStream salida, int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor a cero");
+        }
+        this.sistema = sistema;
+        this.salida = salida;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.hiloEscritura = new Thread(this::escribir, "registro-rechazos");
+        this.hiloEscritura.setDaemon(true);
+        this.hiloEscritura.start();
+    }
+
+    @Override
+    public void rechazado(OperacionCirculacion operacion, ResultadoCirculacion resultado) {
+        Rechazo rechazo = new Rechazo(operacion, resultado);
+        if (cerrado || !cola.offer(rechazo)) {
+            descartados.incrementAndGet();
+        } else if (cerrado && cola.remove(rechazo)) {
+            // Se cerró mientras se encolaba: puede que el hilo de fondo ya haya terminado y
+            // close() ya haya vaciado la cola, así que se cuenta aquí en vez de dejarlo
+            descartados.incrementAndGet();
+        }
+    }
+
+    /**
+     * Retorna la cantidad de rechazos descartados porque la cola estaba llena o el
+     * registro ya estaba cerrado.
+     *
+     * @return Rechazos no registrados
+     */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    /**
+     * Retorna la cantidad de rechazos que esperan ser escritos.
+     *
+     * @return Largo de la cola
+     */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    /**
+     * Escribe los rechazos pendientes y detiene el hilo de fondo. Los rechazos que
+     * quedan en la cola después de que el hilo termina se cuentan como descartados.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        try {
+            hiloEscritura.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!hiloEscritura.isAlive()) {
+            ArrayList<Rechazo> restantes = new ArrayList<>();
+            cola.drainTo(restantes);
+            descartados.addAndGet(restantes.size());
+        }
+    }
+
+    /**
+     * Ciclo del hilo de fondo: espera un rechazo, toma también los demás que haya en la
+     * cola y los escribe juntos.
+     */
+    private void escribir() {
+        ArrayList<Rechazo> lote = new ArrayList<>();
+        while (true) {
+            try {
+                Rechazo primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (cerrado && cola.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primero);
+            } catch (InterruptedException e) {
+                return;
+            }
+            cola.drainTo(lote);
+
+            StringBuilder texto = new StringBuilder();
+            for (Rechazo rechazo : lote) {
+                try {
+                    texto.append(rechazo.resultado.describir(rechazo.operacion, sistema)).append(System.lineSeparator());
+                } catch (RuntimeException e) {
+                    texto.append("Rechazo sin describir: ").append(rechazo.resultado).append(System.lineSeparator());
+                }
+            }
+            salida.print(texto);
+            salida.flush();
+            lote.clear();
+        }
+    }
+
+    private static final class Rechazo {
+        final OperacionCirculacion operacion;
+        final ResultadoCirculacion resultado;
+
+        Rechazo(OperacionCirculacion operacion, ResultadoCirculacion resultado) {
+            this.operacion = operacion;
+            this.resultado = resultado;
+        }
+    }
+}
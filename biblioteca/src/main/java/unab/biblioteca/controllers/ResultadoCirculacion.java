@@ -0,0 +1,215 @@
+package unab.biblioteca.controllers;
+
+import unab.biblioteca.models.Libro;
+import unab.biblioteca.models.Prestamo;
+import unab.biblioteca.models.Usuario;
+
+/**
+ * Resultado de un préstamo o una devolución: un código que indica si se realizó o por
+ * qué se rechazó, y los datos de la operación realizada.
+ *
+ * Los rechazos no llevan datos y se comparten (una instancia por código), de modo que
+ * rechazar una operación no crea objetos ni arma mensajes. El mensaje para el usuario
+ * se arma solo cuando se pide, con {@link #describir(OperacionCirculacion, SistemaBiblioteca)}.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class ResultadoCirculacion {
+
+    /**
+     * Código del resultado. Cada código tiene un número fijo, que es el que viaja en el
+     * protocolo binario de los kioscos: no depende del orden de declaración, y un código
+     * nuevo debe recibir un número que no se haya usado.
+     */
+    public enum Codigo {
+        /** La operación se realizó. */
+        REALIZADO(0),
+        /** El ISBN es inválido o el libro no existe (o fue eliminado). */
+        LIBRO_NO_EXISTE(1),
+        /** No quedan ejemplares disponibles del libro. */
+        SIN_EJEMPLARES(2),
+        /** El RUN es inválido o el usuario no existe (o fue eliminado). */
+        USUARIO_NO_EXISTE(3),
+        /** El usuario ya tiene un préstamo activo. */
+        USUARIO_CON_PRESTAMO(4),
+        /** Los días pedidos no son positivos. */
+        DIAS_INVALIDOS(5),
+        /** Los días pedidos exceden el período máximo del tipo de usuario. */
+        PERIODO_EXCEDIDO(6),
+        /** El usuario no tiene prestado ese libro. */
+        LIBRO_NO_PRESTADO(7),
+        /** El usuario tiene el libro, pero no se encontró el registro del préstamo. */
+        PRESTAMO_NO_ENCONTRADO(8),
+        /** Falló algo ajeno a los datos, por ejemplo la bitácora; ver {@link #getError()}. */
+        ERROR(9);
+
+        private static final Codigo[] POR_NUMERO = new Codigo[128];
+
+        static {
+            for (Codigo codigo : values()) {
+                if (POR_NUMERO[codigo.numero] != null) {
+                    throw new IllegalStateException("Número de código repetido: " + codigo.numero);
+                }
+                POR_NUMERO[codigo.numero] = codigo;
+            }
+        }
+
+        private final int numero;
+
+        Codigo(int numero) {
+            this.numero = numero;
+        }
+
+        /**
+         * Retorna el número fijo del código.
+         *
+         * @return Número entre 0 y 127
+         */
+        public int getNumero() {
+            return numero;
+        }
+
+        /**
+         * Retorna el código que corresponde a un número.
+         *
+         * @param numero Número del código
+         * @return Código con ese número
+         * @throws IllegalArgumentException si ningún código tiene ese número
+         */
+        public static Codigo desdeNumero(int numero) {
+            Codigo codigo = (numero >= 0 && numero < POR_NUMERO.length) ? POR_NUMERO[numero] : null;
+            if (codigo == null) {
+                throw new IllegalArgumentException("Código de resultado desconocido: " + numero);
+            }
+            return codigo;
+        }
+    }
+
+    private static final ResultadoCirculacion[] RECHAZOS = new ResultadoCirculacion[Codigo.values().length];
+
+    static {
+        for (Codigo codigo : Codigo.values()) {
+            RECHAZOS[codigo.ordinal()] = new ResultadoCirculacion(codigo, null, 0, null);
+        }
+    }
+
+    private final Codigo codigo;
+    private final Prestamo prestamo;
+    private final int multa;
+    private final RuntimeException error;
+
+    private ResultadoCirculacion(Codigo codigo, Prestamo prestamo, int multa, RuntimeException error) {
+        this.codigo = codigo;
+        this.prestamo = prestamo;
+        this.multa = multa;
+        this.error = error;
+    }
+
+    static ResultadoCirculacion rechazo(Codigo codigo) {
+        return RECHAZOS[codigo.ordinal()];
+    }
+
+    static ResultadoCirculacion error(RuntimeException error) {
+        return new ResultadoCirculacion(Codigo.ERROR, null, 0, error);
+    }
+
+    static ResultadoCirculacion prestamo(Prestamo prestamo) {
+        return new ResultadoCirculacion(Codigo.REALIZADO, prestamo, 0, null);
+    }
+
+    static ResultadoCirculacion devolucion(Prestamo prestamo, int multa) {
+        return new ResultadoCirculacion(Codigo.REALIZADO, prestamo, multa, null);
+    }
+
+    public Codigo getCodigo() {
+        return codigo;
+    }
+
+    public boolean esRealizado() {
+        return codigo == Codigo.REALIZADO;
+    }
+
+    /**
+     * Retorna el préstamo creado, o el préstamo cerrado en una devolución.
+     *
+     * @return Préstamo, o null si la operación se rechazó
+     */
+    public Prestamo getPrestamo() {
+        return prestamo;
+    }
+
+    /**
+     * Retorna la multa cobrada en una devolución.
+     *
+     * @return Multa (0 si se devolvió a tiempo o si no es una devolución realizada)
+     */
+    public int getMulta() {
+        return multa;
+    }
+
+    /**
+     * Retorna la excepción que causó un resultado {@link Codigo#ERROR}.
+     *
+     * @return Excepción, o null si el código es otro
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * Arma el mensaje que explica el resultado de una operación. Los datos que el resultado
+     * no guarda (título del libro, nombre y período máximo del usuario) se consultan en el
+     * sistema, por lo que pueden reflejar cambios posteriores a la operación.
+     *
+     * @param operacion Operación que produjo este resultado
+     * @param sistema Sistema donde se realizó
+     * @return Mensaje para mostrar o registrar
+     */
+    public String describir(OperacionCirculacion operacion, SistemaBiblioteca sistema) {
+        String isbn = operacion.getIsbn();
+        String run = operacion.getRun();
+        switch (codigo) {
+            case REALIZADO:
+                if (operacion.esPrestamo()) {
+                    return "Préstamo realizado: " + prestamo;
+                }
+                return "Devolución realizada" + ((multa > 0) ? ", multa por retraso: $" + multa : ", sin multa") + ".";
+            case LIBRO_NO_EXISTE:
+                return "Error: El libro con ISBN " + isbn + " no existe.";
+            case SIN_EJEMPLARES: {
+                Libro libro = sistema.buscarLibroPorISBN(isbn);
+                return "Error: No hay ejemplares disponibles del libro " + ((libro != null) ? libro.getTitulo() : isbn) + ".";
+            }
+            case USUARIO_NO_EXISTE:
+                return "Error: El usuario con RUN " + run + " no existe.";
+            case USUARIO_CON_PRESTAMO: {
+                Usuario usuario = sistema.buscarUsuarioPorRUN(run);
+                return "Error: El usuario " + ((usuario != null) ? usuario.getNombreCompleto() : run)
+                        + " ya tiene un préstamo activo.";
+            }
+            case DIAS_INVALIDOS:
+                return "Error: Los días de préstamo deben ser mayor a cero.";
+            case PERIODO_EXCEDIDO: {
+                Usuario usuario = sistema.buscarUsuarioPorRUN(run);
+                return "Error: Los días solicitados (" + operacion.getDias() + ") exceden el período máximo"
+                        + ((usuario != null) ? " de " + usuario.getPeriodoMaximoPrestamo() + " días" : "")
+                        + " para este tipo de usuario.";
+            }
+            case LIBRO_NO_PRESTADO:
+                return "Error: El usuario no tiene prestado el libro con ISBN " + isbn + ".";
+            case PRESTAMO_NO_ENCONTRADO:
+                return "Error: No se encontró el registro del préstamo.";
+            default:
+                return "Error al realizar " + (operacion.esPrestamo() ? "el préstamo" : "la devolución") + ": "
+                        + error.getMessage();
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (codigo == Codigo.ERROR) {
+            return codigo + ": " + error.getMessage();
+        }
+        return esRealizado() ? codigo + " " + prestamo + (multa > 0 ? ", multa=" + multa : "") : codigo.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package unab.biblioteca.controllers;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de un registro masivo: cuántas solicitudes se aceptaron y el motivo de
+ * cada una de las rechazadas, identificadas por su posición en la lista original.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ResultadoRegistro {
+
+    /**
+     * Solicitud rechazada y el motivo.
+     */
+    public static class Falla {
+        private final int indice;
+        private final String motivo;
+
+        public Falla(int indice, String motivo) {
+            this.indice = indice;
+            this.motivo = motivo;
+        }
+
+        public int getIndice() {
+            return indice;
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+
+        @Override
+        public String toString() {
+            return "Fila " + indice + ": " + motivo;
+        }
+    }
+
+    private final int aceptados;
+    private final List<Falla> fallas;
+
+    public ResultadoRegistro(int aceptados, List<Falla> fallas) {
+        this.aceptados = aceptados;
+        this.fallas = Collections.unmodifiableList(fallas);
+    }
+
+    public int getAceptados() {
+        return aceptados;
+    }
+
+    /**
+     * Retorna las solicitudes rechazadas, ordenadas por índice.
+     *
+     * @return Lista de fallas (no modificable)
+     */
+    public List<Falla> getFallas() {
+        return fallas;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoRegistro{" +
+                "aceptados=" + aceptados +
+                ", rechazados=" + fallas.size() +
+                '}';
+    }
+}
@@ -1,29 +1,247 @@
 package unab.biblioteca.controllers;
 
 import unab.biblioteca.models.*;
+import unab.biblioteca.persistencia.ArchivoPrestamos;
+import unab.biblioteca.persistencia.Bitacora;
+import unab.biblioteca.persistencia.RegistroAuditoria;
+import unab.biblioteca.utils.MapaLongConcurrente;
+import unab.biblioteca.utils.NormalizadorTexto;
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /**
  * Controlador principal del sistema de biblioteca.
  * Gestiona usuarios, libros, préstamos y devoluciones.
  *
+ * Es seguro para uso concurrente desde varios mesones de atención: los índices son
+ * mapas concurrentes y las operaciones de préstamo y devolución bloquean solo al
+ * usuario involucrado, por lo que operaciones sobre usuarios distintos no compiten
+ * entre sí. La disponibilidad de cada libro es un contador atómico del propio
+ * {@link Libro}, por lo que prestar un título muy solicitado no requiere bloqueo.
+ *
+ * Si se asocia una {@link Bitacora}, cada operación exitosa que modifica el estado
+ * se registra en ella antes de liberar el bloqueo correspondiente, de modo que el
+ * orden de la bitácora respeta el orden de las operaciones sobre cada usuario. Los
+ * cambios sobre libros (crear, eliminar, prestar y devolver ejemplares) se ejecutan
+ * dentro de la propia bitácora, para que su orden coincida también entre usuarios.
+ * Aparte, un {@link RegistroAuditoria} opcional recibe los eventos de circulación para
+ * auditoría, sin que la operación espere su escritura.
+ *
+ * La fecha actual de préstamos y devoluciones se toma de un {@link Clock}, que puede
+ * fijarse al crear el sistema para reproducir operaciones o calcular multas a otra fecha.
+ *
  * @author Alan, Francisco, Sandrino y Sebastián
  */
 public class SistemaBiblioteca {
 
-    private ArrayList<Usuario> usuarios;
-    private ArrayList<Libro> libros;
-    private ArrayList<Prestamo> prestamos;
+    // Índices por clave primaria (cuerpo del RUN e ISBN-13 normalizado)
+    private final MapaLongConcurrente<Usuario> usuarios;
+    private final MapaLongConcurrente<Libro> libros;
+    private final ArchivoPrestamos archivo; // Historial de préstamos cerrados, por columnas
+
+    // Índices de préstamos activos: un usuario tiene a lo más uno, un libro tantos como ejemplares prestados
+    private final MapaLongConcurrente<Prestamo> prestamosActivosPorRun;
+    private final MapaLongConcurrente<Set<Prestamo>> prestamosActivosPorIsbn;
+    private final ConcurrentSkipListSet<Long> runsConPrestamo; // Claves de prestamosActivosPorRun, en orden, para paginar
+    private final IndiceVencimientos vencimientos; // Préstamos activos por fecha de devolución
+    private final IndiceTextoLibros indiceTexto; // Palabras de títulos y autores
+
+    // Índices para completar RUN, ISBN y nombres a partir de lo que se lleva escrito
+    private final IndicePrefijosNumerico prefijosRUN;
+    private final IndicePrefijosNumerico prefijosISBN;
+    private final IndicePrefijosTexto prefijosNombres;
+
+    private final Clock reloj;
+    private volatile Bitacora bitacora; // Opcional: null si el estado no es persistente
+    private volatile RegistroRechazos registroRechazos; // Opcional: null si los rechazos no se registran
+    private volatile RegistroAuditoria auditoria; // Opcional: null si no se auditan las operaciones
+    private final EstadisticasCirculacion estadisticas;
 
     /**
      * Constructor del sistema de biblioteca.
-     * Inicializa las listas de usuarios, libros y préstamos.
+     * Inicializa los índices de usuarios, libros y préstamos activos, y el historial de préstamos.
+     * Usa el reloj del sistema en la zona horaria por defecto.
      */
     public SistemaBiblioteca() {
-        this.usuarios = new ArrayList<>();
-        this.libros = new ArrayList<>();
-        this.prestamos = new ArrayList<>();
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor del sistema de biblioteca con un reloj dado.
+     *
+     * @param reloj Reloj del que se toma la fecha actual
+     */
+    public SistemaBiblioteca(Clock reloj) {
+        this(reloj, new ArchivoPrestamos());
+    }
+
+    /**
+     * Constructor del sistema de biblioteca con un reloj y un archivo histórico dados,
+     * por ejemplo uno que desborda a archivos mapeados.
+     *
+     * @param reloj Reloj del que se toma la fecha actual
+     * @param archivo Archivo donde se guardan los préstamos cerrados (vacío)
+     */
+    public SistemaBiblioteca(Clock reloj, ArchivoPrestamos archivo) {
+        if (reloj == null) {
+            throw new IllegalArgumentException("El reloj no puede ser nulo");
+        }
+        if (archivo == null) {
+            throw new IllegalArgumentException("El archivo de préstamos no puede ser nulo");
+        }
+        this.reloj = reloj;
+        this.usuarios = new MapaLongConcurrente<>();
+        this.libros = new MapaLongConcurrente<>();
+        this.archivo = archivo;
+        this.prestamosActivosPorRun = new MapaLongConcurrente<>();
+        this.prestamosActivosPorIsbn = new MapaLongConcurrente<>();
+        this.runsConPrestamo = new ConcurrentSkipListSet<>();
+        this.vencimientos = new IndiceVencimientos();
+        this.estadisticas = new EstadisticasCirculacion(vencimientos, reloj);
+        this.indiceTexto = new IndiceTextoLibros();
+        this.prefijosRUN = new IndicePrefijosNumerico(7, 8, clave -> usuarios.get(clave) != null);
+        this.prefijosISBN = new IndicePrefijosNumerico(13, 13, clave -> libros.get(clave) != null);
+        this.prefijosNombres = new IndicePrefijosTexto(clave -> usuarios.get(clave) != null);
+    }
+
+    /**
+     * Retorna el reloj del que el sistema toma la fecha actual.
+     *
+     * @return Reloj del sistema
+     */
+    public Clock getReloj() {
+        return reloj;
+    }
+
+    /**
+     * Retorna la fecha actual según el reloj del sistema.
+     *
+     * @return Fecha de hoy
+     */
+    public LocalDate hoy() {
+        return LocalDate.now(reloj);
+    }
+
+    /**
+     * Asocia una bitácora donde registrar las operaciones que modifican el estado.
+     * Debe llamarse después de reproducir la bitácora con {@link Bitacora#reproducir}.
+     *
+     * @param bitacora Bitácora a usar, o null para dejar de registrar
+     */
+    public void setBitacora(Bitacora bitacora) {
+        this.bitacora = bitacora;
+    }
+
+    /**
+     * Ejecuta varias operaciones como un lote de la bitácora: con bitácora sincrónica se
+     * espera una sola vez, al final, a que todos sus registros estén en disco, en vez de
+     * esperar tras cada operación. Sin bitácora solo las ejecuta.
+     *
+     * @param operaciones Operaciones del lote
+     */
+    public void ejecutarEnLote(Runnable operaciones) {
+        Bitacora b = bitacora;
+        if (b != null) {
+            b.enLote(operaciones);
+        } else {
+            operaciones.run();
+        }
+    }
+
+    /**
+     * Asocia un registro que recibe los préstamos y devoluciones rechazados, por ejemplo
+     * un {@link RegistroRechazosAsincrono} que los escribe desde un hilo de fondo.
+     *
+     * @param registroRechazos Registro a usar, o null para dejar de registrar
+     */
+    public void setRegistroRechazos(RegistroRechazos registroRechazos) {
+        this.registroRechazos = registroRechazos;
+    }
+
+    /**
+     * Asocia un registro de auditoría donde publicar los préstamos, devoluciones, multas,
+     * ediciones de usuarios y eliminaciones de libros. Publicar no espera la escritura
+     * (salvo que el registro esté lleno y su política sea esperar). Debe llamarse después
+     * de reproducir la bitácora, para no auditar de nuevo las operaciones recuperadas.
+     *
+     * @param auditoria Registro a usar, o null para dejar de auditar
+     */
+    public void setAuditoria(RegistroAuditoria auditoria) {
+        this.auditoria = auditoria;
+    }
+
+    // ==================== ESTADÍSTICAS ====================
+
+    /**
+     * Retorna las estadísticas de circulación, que se actualizan en cada operación.
+     *
+     * @return Estadísticas en vivo del sistema
+     */
+    public EstadisticasCirculacion getEstadisticas() {
+        return estadisticas;
+    }
+
+    /**
+     * Retorna el archivo histórico de préstamos cerrados, para respaldarlo y restaurarlo.
+     *
+     * @return Archivo histórico del sistema
+     */
+    public ArchivoPrestamos getArchivoPrestamos() {
+        return archivo;
+    }
+
+    /**
+     * Retorna el error de la última fusión fallida de los índices de prefijos (RUN, ISBN
+     * y nombres). Una fusión fallida no pierde entradas ni afecta las búsquedas; solo
+     * deja sin fusionar las entradas recientes hasta la fusión siguiente.
+     *
+     * @return Excepción de una fusión fallida, o null si no ha fallado ninguna
+     */
+    public RuntimeException getErrorFusionIndices() {
+        RuntimeException error = prefijosRUN.getErrorFusion();
+        if (error == null) {
+            error = prefijosISBN.getErrorFusion();
+        }
+        return (error != null) ? error : prefijosNombres.getErrorFusion();
+    }
+
+    /**
+     * Recalcula el inventario y los préstamos activos de las estadísticas recorriendo
+     * libros y usuarios. Solo es necesario si se modificaron libros directamente, sin
+     * pasar por el sistema, o tras restaurar el estado.
+     */
+    public void recalcularEstadisticas() {
+        long total = 0;
+        long prestados = 0;
+        for (Libro libro : libros.valores()) {
+            total += libro.getCantidadBiblioteca();
+            prestados += libro.getCantidadBiblioteca() - libro.getCantidadDisponible();
+        }
+
+        long docentes = 0;
+        long estudiantes = 0;
+        for (Usuario usuario : usuarios.valores()) {
+            if (usuario.tienePrestamo()) {
+                if (usuario instanceof Docente) {
+                    docentes++;
+                } else {
+                    estudiantes++;
+                }
+            }
+        }
+        estadisticas.reiniciarInventario(total, prestados, docentes, estudiantes);
     }
 
     // ==================== MÉTODOS CRUD USUARIOS ====================
@@ -40,12 +258,131 @@ public class SistemaBiblioteca {
             return false;
         }
 
-        // Validar que el RUN no esté repetido
-        if (buscarUsuarioPorRUN(usuario.getRun()) != null) {
-            return false;
+        synchronized (usuario) {
+            // Validar que el RUN no esté repetido
+            if (usuarios.putIfAbsent(usuario.getRunClave(), usuario) != null) {
+                return false;
+            }
+            indexarPrefijos(usuario);
+
+            Bitacora b = bitacora;
+            if (b != null) {
+                b.registrarCrearUsuario(usuario);
+            }
+            return true;
         }
+    }
 
-        return usuarios.add(usuario);
+    /**
+     * Registra muchos usuarios de una vez (por ejemplo, al inicio de un semestre).
+     *
+     * La validación de cada solicitud (incluido el RUN) se hace en paralelo en el pool
+     * fork/join común. Luego los usuarios válidos se publican de forma atómica: ningún
+     * lector ve solo una parte del grupo. Los RUN repetidos, ya sea contra usuarios
+     * existentes o dentro de la misma lista, se detectan en esa misma pasada y solo se
+     * acepta la primera aparición.
+     *
+     * @param solicitudes Datos de los usuarios por registrar
+     * @return Cantidad de aceptados y motivo de cada solicitud rechazada
+     */
+    public ResultadoRegistro registrarUsuarios(List<SolicitudUsuario> solicitudes) {
+        int cantidad = solicitudes.size();
+        Usuario[] validados = new Usuario[cantidad];
+        String[] errores = new String[cantidad];
+        ForkJoinPool.commonPool().invoke(new ValidacionUsuarios(solicitudes, validados, errores, 0, cantidad));
+
+        // Compactar los válidos conservando su índice original
+        int validos = 0;
+        for (Usuario usuario : validados) {
+            if (usuario != null) {
+                validos++;
+            }
+        }
+        long[] claves = new long[validos];
+        ArrayList<Usuario> grupo = new ArrayList<>(validos);
+        int[] indices = new int[validos];
+        for (int i = 0, j = 0; i < cantidad; i++) {
+            if (validados[i] != null) {
+                claves[j] = validados[i].getRunClave();
+                grupo.add(validados[i]);
+                indices[j++] = i;
+            }
+        }
+
+        // Publicación atómica; el registro en la bitácora ocurre antes de que otro hilo pueda
+        // ver al usuario. Se hace en un lote de la bitácora para no esperar el disco por cada
+        // usuario con todos los segmentos del mapa bloqueados: la espera ocurre una sola vez,
+        // al terminar el lote, después de liberarlos.
+        Bitacora b = bitacora;
+        boolean[] insertados;
+        if (b != null) {
+            boolean[][] resultado = new boolean[1][];
+            b.enLote(() -> resultado[0] = usuarios.putAllIfAbsent(claves, grupo, b::registrarCrearUsuario));
+            insertados = resultado[0];
+        } else {
+            insertados = usuarios.putAllIfAbsent(claves, grupo, null);
+        }
+
+        for (int j = 0; j < validos; j++) {
+            if (insertados[j]) {
+                indexarPrefijos(grupo.get(j));
+            } else {
+                errores[indices[j]] = "RUN duplicado: " + validados[indices[j]].getRun();
+            }
+        }
+
+        ArrayList<ResultadoRegistro.Falla> fallas = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            if (errores[i] != null) {
+                fallas.add(new ResultadoRegistro.Falla(i, errores[i]));
+            }
+        }
+        return new ResultadoRegistro(cantidad - fallas.size(), fallas);
+    }
+
+    /**
+     * Valida un rango de solicitudes dividiéndolo en mitades hasta llegar a bloques pequeños.
+     */
+    @SuppressWarnings("serial")
+    private static final class ValidacionUsuarios extends RecursiveAction {
+        private static final int UMBRAL = 1024;
+
+        private final List<SolicitudUsuario> solicitudes;
+        private final Usuario[] validados;
+        private final String[] errores;
+        private final int desde;
+        private final int hasta;
+
+        ValidacionUsuarios(List<SolicitudUsuario> solicitudes, Usuario[] validados, String[] errores, int desde, int hasta) {
+            this.solicitudes = solicitudes;
+            this.validados = validados;
+            this.errores = errores;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > UMBRAL) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new ValidacionUsuarios(solicitudes, validados, errores, desde, medio),
+                        new ValidacionUsuarios(solicitudes, validados, errores, medio, hasta));
+                return;
+            }
+
+            for (int i = desde; i < hasta; i++) {
+                SolicitudUsuario solicitud = solicitudes.get(i);
+                if (solicitud == null) {
+                    errores[i] = "Solicitud vacía";
+                    continue;
+                }
+                try {
+                    validados[i] = solicitud.crearUsuario();
+                } catch (IllegalArgumentException e) {
+                    errores[i] = e.getMessage();
+                }
+            }
+        }
     }
 
     /**
@@ -63,28 +400,59 @@ public class SistemaBiblioteca {
             return false;
         }
 
-        // Si se cambia el RUN, validar que el nuevo no exista
-        if (!runActual.equals(datosNuevos.getRun())) {
-            if (buscarUsuarioPorRUN(datosNuevos.getRun()) != null) {
+        synchronized (usuario) {
+            // El usuario pudo ser eliminado o editado por otro mesón mientras se esperaba el bloqueo
+            int claveActual = usuario.getRunClave();
+            if (usuarios.get(claveActual) != usuario) {
                 return false;
             }
-        }
 
-        // Actualizar datos
-        usuario.setNombreCompleto(datosNuevos.getNombreCompleto());
-        usuario.setRun(datosNuevos.getRun());
-        usuario.setGenero(datosNuevos.getGenero());
+            // Si se cambia el RUN, reservar el nuevo validando que no exista
+            int claveNueva = datosNuevos.getRunClave();
+            boolean cambiaRUN = claveActual != claveNueva;
+            if (cambiaRUN && usuarios.putIfAbsent(claveNueva, usuario) != null) {
+                return false;
+            }
+
+            // Actualizar datos
+            usuario.setNombreCompleto(datosNuevos.getNombreCompleto());
+            usuario.setRun(datosNuevos.getRun());
+            usuario.setGenero(datosNuevos.getGenero());
+
+            // Actualizar datos específicos según tipo
+            if (usuario instanceof Docente && datosNuevos instanceof Docente) {
+                Docente docente = (Docente) usuario;
+                Docente nuevosDocente = (Docente) datosNuevos;
+                docente.setProfesion(nuevosDocente.getProfesion());
+                docente.setGrados(nuevosDocente.getGrados());
+            } else if (usuario instanceof Estudiante && datosNuevos instanceof Estudiante) {
+                Estudiante estudiante = (Estudiante) usuario;
+                Estudiante nuevosEstudiante = (Estudiante) datosNuevos;
+                estudiante.setCarrera(nuevosEstudiante.getCarrera());
+            }
+
+            // Liberar el RUN anterior y mover su préstamo activo al nuevo RUN
+            if (cambiaRUN) {
+                usuarios.remove(claveActual, usuario);
+
+                Prestamo prestamoActivo = prestamosActivosPorRun.remove(claveActual);
+                if (prestamoActivo != null) {
+                    prestamosActivosPorRun.put(claveNueva, prestamoActivo);
+                    runsConPrestamo.add((long) claveNueva);
+                    runsConPrestamo.remove((long) claveActual);
+                }
+            }
+            indexarPrefijos(usuario);
 
-        // Actualizar datos específicos según tipo
-        if (usuario instanceof Docente && datosNuevos instanceof Docente) {
-            Docente docente = (Docente) usuario;
-            Docente nuevosDocente = (Docente) datosNuevos;
-            docente.setProfesion(nuevosDocente.getProfesion());
-            docente.setGrados(nuevosDocente.getGrados());
-        } else if (usuario instanceof Estudiante && datosNuevos instanceof Estudiante) {
-            Estudiante estudiante = (Estudiante) usuario;
-            Estudiante nuevosEstudiante = (Estudiante) datosNuevos;
-            estudiante.setCarrera(nuevosEstudiante.getCarrera());
+            Bitacora b = bitacora;
+            if (b != null) {
+                b.registrarEditarUsuario(claveActual, datosNuevos);
+            }
+
+            RegistroAuditoria a = auditoria;
+            if (a != null) {
+                a.usuarioEditado(claveActual, claveNueva);
+            }
         }
 
         return true;
@@ -104,7 +472,20 @@ public class SistemaBiblioteca {
             return false;
         }
 
-        return usuarios.remove(usuario);
+        synchronized (usuario) {
+            if (!usuarios.remove(usuario.getRunClave(), usuario)) {
+                return false;
+            }
+            if (usuario.tienePrestamo()) {
+                estadisticas.usuarioConPrestamoEliminado(usuario);
+            }
+
+            Bitacora b = bitacora;
+            if (b != null) {
+                b.registrarEliminarUsuario(usuario.getRunClave());
+            }
+            return true;
+        }
     }
 
     /**
@@ -114,25 +495,68 @@ public class SistemaBiblioteca {
      * @return Usuario encontrado o null si no existe
      */
     public Usuario buscarUsuarioPorRUN(String run) {
-        if (run == null) {
-            return null;
-        }
-
-        for (Usuario usuario : usuarios) {
-            if (usuario.getRun().equals(run)) {
-                return usuario;
-            }
-        }
-        return null;
+        int clave = claveRUN(run);
+        return (clave >= 0) ? usuarios.get(clave) : null;
     }
 
     /**
-     * Lista todos los usuarios del sistema.
+     * Lista todos los usuarios del sistema en una copia. Para mostrarlos conviene listarlos
+     * por páginas con {@link #listarUsuarios(long, int, Predicate)}.
      *
      * @return ArrayList con todos los usuarios
      */
     public ArrayList<Usuario> listarUsuarios() {
-        return new ArrayList<>(usuarios);
+        return usuarios.valores();
+    }
+
+    /**
+     * Lista los usuarios por páginas, en orden de RUN. Cada página se obtiene del índice
+     * ordenado de RUN, sin copiar ni recorrer la colección completa.
+     *
+     * @param cursor Cursor de la página anterior, o {@link Pagina#INICIO} para la primera
+     * @param maximo Cantidad máxima de usuarios por página
+     * @param filtro Condición que deben cumplir los usuarios listados (por ejemplo
+     *               {@code Docente.class::isInstance}), o null para listarlos todos
+     * @return Página de usuarios
+     */
+    public Pagina<Usuario> listarUsuarios(long cursor, int maximo, Predicate<? super Usuario> filtro) {
+        return paginar(prefijosRUN, usuarios, cursor, maximo, filtro);
+    }
+
+    /**
+     * Retorna la cantidad de usuarios registrados.
+     *
+     * @return Cantidad de usuarios
+     */
+    public int cantidadUsuarios() {
+        return usuarios.size();
+    }
+
+    /**
+     * Obtiene la clave primitiva de un RUN para los índices de usuarios y préstamos:
+     * el cuerpo del RUN, de modo que "12.345.678-5" y "12345678-5" correspondan al mismo usuario.
+     *
+     * @param run RUN con o sin formato
+     * @return Cuerpo del RUN, o -1 si el RUN es null o inválido
+     */
+    private static int claveRUN(String run) {
+        if (run == null) {
+            return -1;
+        }
+        int runParseado = ValidadorRUN.parsearRUN(run.trim());
+        return (runParseado >= 0) ? ValidadorRUN.cuerpoRUN(runParseado) : -1;
+    }
+
+    /**
+     * Agrega el RUN y las palabras del nombre de un usuario a los índices de prefijos.
+     * Al editar un usuario se agregan los datos nuevos; los anteriores los filtran las consultas.
+     */
+    private void indexarPrefijos(Usuario usuario) {
+        int clave = usuario.getRunClave();
+        prefijosRUN.agregar(clave);
+        for (String palabra : NormalizadorTexto.palabras(usuario.getNombreCompleto())) {
+            prefijosNombres.agregar(palabra, clave);
+        }
     }
 
     // ==================== MÉTODOS CRUD LIBROS ====================
@@ -149,12 +573,17 @@ public class SistemaBiblioteca {
             return false;
         }
 
-        // Validar que el ISBN no esté repetido
-        if (buscarLibroPorISBN(libro.getIsbn()) != null) {
-            return false;
-        }
+        // Validar que el ISBN no esté repetido (en cualquiera de sus formas)
+        BooleanSupplier insertar = () -> libros.putIfAbsent(libro.getIsbnClave(), libro) == null;
 
-        return libros.add(libro);
+        Bitacora b = bitacora;
+        boolean creado = (b != null) ? b.registrarCrearLibro(libro, insertar) : insertar.getAsBoolean();
+        if (creado) {
+            indiceTexto.agregar(libro);
+            prefijosISBN.agregar(libro.getIsbnClave());
+            estadisticas.libroAgregado(libro);
+        }
+        return creado;
     }
 
     /**
@@ -171,35 +600,242 @@ public class SistemaBiblioteca {
             return false;
         }
 
-        return libros.remove(libro);
+        BooleanSupplier quitar = () -> libros.remove(libro.getIsbnClave(), libro);
+
+        Bitacora b = bitacora;
+        boolean eliminado = (b != null) ? b.registrarEliminarLibro(libro.getIsbnClave(), quitar) : quitar.getAsBoolean();
+        if (eliminado) {
+            indiceTexto.quitar(libro);
+            estadisticas.libroEliminado(libro);
+
+            RegistroAuditoria a = auditoria;
+            if (a != null) {
+                a.libroEliminado(libro.getIsbnClave());
+            }
+        }
+        return eliminado;
     }
 
     /**
      * Busca un libro por su ISBN.
+     * Acepta el ISBN con o sin guiones, como ISBN-13 o ISBN-10.
      *
      * @param isbn ISBN del libro a buscar
-     * @return Libro encontrado o null si no existe
+     * @return Libro encontrado o null si no existe o el ISBN es inválido
      */
     public Libro buscarLibroPorISBN(String isbn) {
-        if (isbn == null) {
+        long clave = ValidadorISBN.parsearISBN(isbn);
+        if (clave == ValidadorISBN.ISBN_INVALIDO) {
             return null;
         }
 
-        for (Libro libro : libros) {
-            if (libro.getIsbn().equals(isbn)) {
-                return libro;
-            }
+        return libros.get(clave);
+    }
+
+    /**
+     * Busca libros por palabras de su título o autor, sin distinguir mayúsculas ni tildes.
+     * Deben aparecer todas las palabras; la última puede estar incompleta (por ejemplo
+     * "cien años sole" encuentra "Cien años de soledad"). Los resultados se ordenan por
+     * relevancia: pesan más las palabras poco comunes y las que aparecen en el título.
+     *
+     * @param consulta Palabras a buscar
+     * @param maximo Cantidad máxima de resultados
+     * @return ArrayList con los libros encontrados, del más al menos relevante
+     */
+    public ArrayList<Libro> buscarLibros(String consulta, int maximo) {
+        if (consulta == null) {
+            return new ArrayList<>();
         }
-        return null;
+        // Un libro recién eliminado puede seguir en el índice por un instante
+        return indiceTexto.buscar(consulta, maximo, libro -> libros.get(libro.getIsbnClave()) == libro);
     }
 
     /**
-     * Lista todos los libros del sistema.
+     * Lista todos los libros del sistema en una copia. Para mostrarlos conviene listarlos
+     * por páginas con {@link #listarLibros(long, int, Predicate)}.
      *
      * @return ArrayList con todos los libros
      */
     public ArrayList<Libro> listarLibros() {
-        return new ArrayList<>(libros);
+        return libros.valores();
+    }
+
+    /**
+     * Lista los libros por páginas, en orden de ISBN. Cada página se obtiene del índice
+     * ordenado de ISBN, sin copiar ni recorrer el catálogo completo.
+     *
+     * @param cursor Cursor de la página anterior, o {@link Pagina#INICIO} para la primera
+     * @param maximo Cantidad máxima de libros por página
+     * @param filtro Condición que deben cumplir los libros listados (por ejemplo
+     *               {@code Libro::hayDisponible}), o null para listarlos todos
+     * @return Página de libros
+     */
+    public Pagina<Libro> listarLibros(long cursor, int maximo, Predicate<? super Libro> filtro) {
+        return paginar(prefijosISBN, libros, cursor, maximo, filtro);
+    }
+
+    /**
+     * Retorna la cantidad de libros del catálogo.
+     *
+     * @return Cantidad de libros
+     */
+    public int cantidadLibros() {
+        return libros.size();
+    }
+
+    /**
+     * Arma una página con los valores de las claves que siguen al cursor en un índice
+     * ordenado. Se pide una clave de más para saber si hay otra página.
+     */
+    private static <T> Pagina<T> paginar(IndicePrefijosNumerico indice, MapaLongConcurrente<T> mapa, long cursor,
+                                         int maximo, Predicate<? super T> filtro) {
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("El tamaño de la página debe ser mayor que cero");
+        }
+        long[] claves = indice.siguientes(cursor, maximo + 1, clave -> {
+            T valor = mapa.get(clave);
+            return valor != null && (filtro == null || filtro.test(valor));
+        });
+
+        int enPagina = Math.min(claves.length, maximo);
+        ArrayList<T> elementos = new ArrayList<>(enPagina);
+        for (int i = 0; i < enPagina; i++) {
+            T valor = mapa.get(claves[i]);
+            if (valor != null) { // Pudo eliminarse recién
+                elementos.add(valor);
+            }
+        }
+        return new Pagina<>(elementos, (claves.length > maximo) ? claves[maximo - 1] : Pagina.INICIO);
+    }
+
+    // ==================== AUTOCOMPLETADO ====================
+
+    /**
+     * Completa un RUN a partir de sus primeros dígitos, con o sin puntos (por ejemplo
+     * "12.34" encuentra "12.345.678-5"). Lo que sigue al guión se ignora.
+     *
+     * @param prefijo Primeros dígitos del RUN
+     * @param maximo Cantidad máxima de resultados
+     * @return ArrayList con los usuarios cuyo RUN comienza con esos dígitos, en orden de RUN
+     */
+    public ArrayList<Usuario> completarRUN(String prefijo, int maximo) {
+        ArrayList<Usuario> encontrados = new ArrayList<>();
+        if (prefijo == null) {
+            return encontrados;
+        }
+        int guion = prefijo.indexOf('-');
+        String digitos = soloDigitos((guion >= 0) ? prefijo.substring(0, guion) : prefijo, '.');
+        if (digitos == null) {
+            return encontrados;
+        }
+
+        for (long clave : prefijosRUN.completar(digitos, maximo, clave -> usuarios.get(clave) != null)) {
+            Usuario usuario = usuarios.get(clave);
+            if (usuario != null) {
+                encontrados.add(usuario);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Completa el nombre de un usuario, sin distinguir mayúsculas ni tildes. Cada palabra
+     * escrita debe estar en el nombre, en cualquier orden, y la última puede estar incompleta
+     * (por ejemplo "gonzalez mar" encuentra a "María José González").
+     *
+     * @param texto Palabras del nombre
+     * @param maximo Cantidad máxima de resultados
+     * @return ArrayList con los usuarios encontrados; primero los que tienen la última
+     *         palabra completa
+     */
+    public ArrayList<Usuario> completarNombre(String texto, int maximo) {
+        ArrayList<Usuario> encontrados = new ArrayList<>();
+        String[] palabras = NormalizadorTexto.palabras(texto);
+        if (palabras.length == 0) {
+            return encontrados;
+        }
+
+        // El índice da los candidatos por la última palabra; el resto se verifica en el nombre
+        for (long clave : prefijosNombres.completar(palabras[palabras.length - 1], maximo,
+                clave -> tieneNombre(usuarios.get(clave), palabras))) {
+            Usuario usuario = usuarios.get(clave);
+            if (usuario != null) {
+                encontrados.add(usuario);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Completa un ISBN a partir de sus primeros dígitos, con o sin guiones. Si los dígitos
+     * no pueden ser el inicio de un ISBN-13 se toman como el inicio de un ISBN-10.
+     *
+     * @param prefijo Primeros dígitos del ISBN
+     * @param maximo Cantidad máxima de resultados
+     * @return ArrayList con los libros cuyo ISBN comienza con esos dígitos, en orden de ISBN
+     */
+    public ArrayList<Libro> completarISBN(String prefijo, int maximo) {
+        ArrayList<Libro> encontrados = new ArrayList<>();
+        String digitos = (prefijo != null) ? soloDigitos(prefijo, '-') : null;
+        if (digitos == null) {
+            return encontrados;
+        }
+        // Un ISBN-10 equivale al ISBN-13 con prefijo 978 y otro dígito verificador
+        boolean esISBN13 = digitos.startsWith("978") || digitos.startsWith("979")
+                || "978".startsWith(digitos) || "979".startsWith(digitos);
+        if (!esISBN13) {
+            digitos = "978" + digitos.substring(0, Math.min(digitos.length(), 9));
+        }
+
+        for (long clave : prefijosISBN.completar(digitos, maximo, clave -> libros.get(clave) != null)) {
+            Libro libro = libros.get(clave);
+            if (libro != null) {
+                encontrados.add(libro);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Quita de un texto los espacios y el separador dado.
+     *
+     * @return Los dígitos del texto, o null si tiene otros caracteres
+     */
+    private static String soloDigitos(String texto, char separador) {
+        StringBuilder digitos = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            } else if (c != separador && !Character.isWhitespace(c)) {
+                return null;
+            }
+        }
+        return digitos.toString();
+    }
+
+    /**
+     * Verifica que el nombre del usuario contenga todas las palabras dadas, la última como prefijo.
+     */
+    private static boolean tieneNombre(Usuario usuario, String[] palabras) {
+        if (usuario == null) {
+            return false;
+        }
+        String[] delNombre = NormalizadorTexto.palabras(usuario.getNombreCompleto());
+        for (int i = 0; i < palabras.length; i++) {
+            boolean esUltima = i == palabras.length - 1;
+            boolean encontrada = false;
+            for (String palabra : delNombre) {
+                if (esUltima ? palabra.startsWith(palabras[i]) : palabra.equals(palabras[i])) {
+                    encontrada = true;
+                    break;
+                }
+            }
+            if (!encontrada) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // ==================== MÉTODOS DE PRÉSTAMO ====================
@@ -207,65 +843,175 @@ public class SistemaBiblioteca {
     /**
      * Realiza un préstamo de libro.
      * Valida todas las condiciones del enunciado.
+     * Las validaciones del usuario y la reserva del ejemplar se hacen con el usuario
+     * bloqueado, de modo que dos mesones no puedan entregarle dos préstamos ni
+     * prestar un ejemplar que ya no existe. La fecha del préstamo es la del reloj del sistema.
+     *
+     * No muestra nada por pantalla: el motivo de un rechazo viene en el resultado, y se
+     * informa además al registro de rechazos, si hay uno.
      *
      * @param isbn ISBN del libro a prestar
      * @param run RUN del usuario que solicita el préstamo
      * @param diasPrestados Días por los que se presta el libro
-     * @return Objeto Prestamo si fue exitoso, null si falló alguna validación
+     * @return Resultado con el préstamo creado, o el motivo por el que se rechazó
+     */
+    public ResultadoCirculacion realizarPrestamo(String isbn, String run, int diasPrestados) {
+        return realizarPrestamo(isbn, run, diasPrestados, hoy());
+    }
+
+    /**
+     * Realiza un préstamo de libro con fecha de préstamo explícita.
+     * Se usa al reconstruir el estado desde la bitácora.
+     *
+     * @param isbn ISBN del libro a prestar
+     * @param run RUN del usuario que solicita el préstamo
+     * @param diasPrestados Días por los que se presta el libro
+     * @param fechaPrestamo Fecha del préstamo
+     * @return Resultado con el préstamo creado, o el motivo por el que se rechazó
+     */
+    public ResultadoCirculacion realizarPrestamo(String isbn, String run, int diasPrestados, LocalDate fechaPrestamo) {
+        ResultadoCirculacion resultado = prestar(ValidadorISBN.parsearISBN(isbn), claveRUN(run), diasPrestados,
+                fechaPrestamo);
+
+        RegistroRechazos registro = registroRechazos;
+        if (registro != null && !resultado.esRealizado()) {
+            registro.rechazado(OperacionCirculacion.prestamo(isbn, run, diasPrestados), resultado);
+        }
+        return resultado;
+    }
+
+    /**
+     * Restaura un préstamo activo cuyo libro ya fue eliminado. Eliminar un libro no cierra
+     * sus préstamos activos, y la instantánea los guarda para que cargarla deje el mismo
+     * estado que reproducir la bitácora. Solo se usa al cargar una instantánea.
+     *
+     * @param isbn ISBN del libro eliminado
+     * @param run RUN del usuario que tiene el préstamo
+     * @param diasPrestados Días por los que se prestó el libro
+     * @param fechaPrestamo Fecha del préstamo
+     * @return true si se restauró, false si el usuario no existe, ya tiene un préstamo o
+     *         el libro sigue en el catálogo
+     */
+    public boolean restaurarPrestamoDeLibroEliminado(String isbn, String run, int diasPrestados,
+                                                     LocalDate fechaPrestamo) {
+        Usuario usuario = buscarUsuarioPorRUN(run);
+        if (usuario == null || buscarLibroPorISBN(isbn) != null) {
+            return false;
+        }
+        synchronized (usuario) {
+            if (usuario.tienePrestamo()) {
+                return false;
+            }
+            Prestamo prestamo = new Prestamo(isbn, usuario.getRun(), diasPrestados, fechaPrestamo);
+            usuario.setPrestamo(prestamo.getIsbnClave());
+            registrarPrestamoActivo(prestamo);
+            estadisticas.prestamoRealizado(usuario);
+            return true;
+        }
+    }
+
+    /**
+     * Realiza un préstamo de libro identificando al libro y al usuario por sus claves
+     * (ISBN-13 y cuerpo del RUN), por ejemplo las recibidas de un kiosco en formato
+     * binario, sin armar ni interpretar texto. La fecha del préstamo es la del reloj del sistema.
+     *
+     * @param isbnClave ISBN-13 del libro
+     * @param runClave Cuerpo del RUN del usuario
+     * @param diasPrestados Días por los que se presta el libro
+     * @return Resultado con el préstamo creado, o el motivo por el que se rechazó
      */
-    public Prestamo realizarPrestamo(String isbn, String run, int diasPrestados) {
+    public ResultadoCirculacion realizarPrestamo(long isbnClave, int runClave, int diasPrestados) {
+        ResultadoCirculacion resultado = prestar(isbnClave, runClave, diasPrestados, hoy());
+
+        RegistroRechazos registro = registroRechazos;
+        if (registro != null && !resultado.esRealizado()) {
+            // Las claves se pasan a texto en el registro, no en el hilo que atiende el préstamo
+            registro.rechazado(OperacionCirculacion.prestamo(isbnClave, runClave, diasPrestados), resultado);
+        }
+        return resultado;
+    }
+
+    private ResultadoCirculacion prestar(long isbnClave, int runClave, int diasPrestados, LocalDate fechaPrestamo) {
         // Validación 1: El libro debe existir
-        Libro libro = buscarLibroPorISBN(isbn);
+        Libro libro = (isbnClave >= 0) ? libros.get(isbnClave) : null;
         if (libro == null) {
-            System.out.println("Error: El libro con ISBN " + isbn + " no existe.");
-            return null;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.LIBRO_NO_EXISTE);
         }
 
         // Validación 2: El libro debe tener al menos un ejemplar disponible
         if (!libro.hayDisponible()) {
-            System.out.println("Error: No hay ejemplares disponibles del libro " + libro.getTitulo() + ".");
-            return null;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.SIN_EJEMPLARES);
         }
 
         // Validación 3: El usuario debe existir
-        Usuario usuario = buscarUsuarioPorRUN(run);
+        Usuario usuario = (runClave >= 0) ? usuarios.get(runClave) : null;
         if (usuario == null) {
-            System.out.println("Error: El usuario con RUN " + run + " no existe.");
-            return null;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.USUARIO_NO_EXISTE);
+        }
+
+        synchronized (usuario) {
+            return prestarBloqueado(libro, usuario, diasPrestados, fechaPrestamo);
+        }
+    }
+
+    /**
+     * Valida y realiza un préstamo sobre un libro y un usuario ya resueltos.
+     * Debe llamarse con el usuario bloqueado; no informa nada por pantalla.
+     *
+     * @return Resultado con el préstamo creado, o el motivo del rechazo
+     */
+    private ResultadoCirculacion prestarBloqueado(Libro libro, Usuario usuario, int diasPrestados,
+                                                  LocalDate fechaPrestamo) {
+        // Revalidar existencia: el usuario pudo ser eliminado mientras se esperaba el bloqueo
+        if (usuarios.get(usuario.getRunClave()) != usuario) {
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.USUARIO_NO_EXISTE);
         }
 
         // Validación 4: El usuario debe estar habilitado para préstamo (no tener préstamo activo)
         if (usuario.tienePrestamo()) {
-            System.out.println("Error: El usuario " + usuario.getNombreCompleto() + " ya tiene un préstamo activo.");
-            return null;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.USUARIO_CON_PRESTAMO);
         }
 
-        // Validación 5: Los días prestados no deben exceder el período máximo según tipo de usuario
+        // Validación 5: Los días prestados deben ser positivos y no exceder el período máximo según tipo de usuario
+        if (diasPrestados <= 0) {
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.DIAS_INVALIDOS);
+        }
         if (diasPrestados > usuario.getPeriodoMaximoPrestamo()) {
-            System.out.println("Error: Los días solicitados (" + diasPrestados +
-                             ") exceden el período máximo de " + usuario.getPeriodoMaximoPrestamo() +
-                             " días para este tipo de usuario.");
-            return null;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.PERIODO_EXCEDIDO);
         }
 
         // Todas las validaciones pasaron, realizar el préstamo
+        Prestamo prestamo;
         try {
-            // Actualizar estado del usuario
-            usuario.setPrestamo(isbn);
+            // Crear objeto Prestamo (valida los datos antes de modificar estado)
+            prestamo = new Prestamo(libro.getIsbn(), usuario.getRun(), diasPrestados, fechaPrestamo);
 
-            // Actualizar disponibilidad del libro
-            libro.prestar();
+            // Actualizar disponibilidad del libro; no se toma si otro mesón se llevó el último
+            // ejemplar o si el libro fue eliminado. Con bitácora, el registro se agrega en el mismo paso.
+            BooleanSupplier prestar = () -> libros.get(libro.getIsbnClave()) == libro && libro.intentarPrestar();
+            Bitacora b = bitacora;
+            boolean prestado = (b != null) ? b.registrarPrestamo(prestamo, prestar) : prestar.getAsBoolean();
+            if (!prestado) {
+                return ResultadoCirculacion.rechazo((libros.get(libro.getIsbnClave()) != libro)
+                        ? ResultadoCirculacion.Codigo.LIBRO_NO_EXISTE : ResultadoCirculacion.Codigo.SIN_EJEMPLARES);
+            }
 
-            // Crear objeto Prestamo
-            Prestamo prestamo = new Prestamo(isbn, run, diasPrestados);
-            prestamos.add(prestamo);
+            // Actualizar estado del usuario
+            usuario.setPrestamo(libro.getIsbnClave());
 
-            return prestamo;
+            registrarPrestamoActivo(prestamo);
+            estadisticas.prestamoRealizado(usuario);
 
-        } catch (Exception e) {
-            System.out.println("Error al realizar el préstamo: " + e.getMessage());
-            return null;
+            RegistroAuditoria a = auditoria;
+            if (a != null) {
+                a.prestamoCreado(libro.getIsbnClave(), usuario.getRunClave(), diasPrestados, fechaPrestamo);
+            }
+
+        } catch (RuntimeException e) {
+            return ResultadoCirculacion.error(e);
         }
+
+        return ResultadoCirculacion.prestamo(prestamo);
     }
 
     // ==================== MÉTODOS DE DEVOLUCIÓN ====================
@@ -273,87 +1019,459 @@ public class SistemaBiblioteca {
     /**
      * Realiza la devolución de un libro.
      * Valida todas las condiciones del enunciado.
-     * Calcula y retorna la multa si corresponde.
+     * Calcula la multa si corresponde, a la fecha del reloj del sistema.
+     *
+     * No muestra nada por pantalla: el motivo de un rechazo viene en el resultado, y se
+     * informa además al registro de rechazos, si hay uno.
      *
      * @param isbn ISBN del libro a devolver
      * @param run RUN del usuario que devuelve
-     * @return Multa a pagar (0 si está a tiempo), -1 si falló alguna validación
+     * @return Resultado con el préstamo cerrado y la multa a pagar (0 si está a tiempo),
+     *         o el motivo por el que se rechazó
+     */
+    public ResultadoCirculacion realizarDevolucion(String isbn, String run) {
+        return realizarDevolucion(isbn, run, hoy());
+    }
+
+    /**
+     * Realiza la devolución de un libro en una fecha explícita.
+     * Se usa al reconstruir el estado desde la bitácora.
+     *
+     * @param isbn ISBN del libro a devolver
+     * @param run RUN del usuario que devuelve
+     * @param fechaDevolucion Fecha de la devolución, usada para calcular la multa
+     * @return Resultado con el préstamo cerrado y la multa a pagar, o el motivo por el que se rechazó
+     * @throws IllegalArgumentException si la fecha es nula
+     */
+    public ResultadoCirculacion realizarDevolucion(String isbn, String run, LocalDate fechaDevolucion) {
+        if (fechaDevolucion == null) {
+            throw new IllegalArgumentException("La fecha de devolución no puede ser nula");
+        }
+        ResultadoCirculacion resultado = devolver(ValidadorISBN.parsearISBN(isbn), claveRUN(run), fechaDevolucion);
+
+        RegistroRechazos registro = registroRechazos;
+        if (registro != null && !resultado.esRealizado()) {
+            registro.rechazado(OperacionCirculacion.devolucion(isbn, run), resultado);
+        }
+        return resultado;
+    }
+
+    /**
+     * Realiza la devolución de un libro identificando al libro y al usuario por sus claves
+     * (ISBN-13 y cuerpo del RUN), a la fecha del reloj del sistema.
+     *
+     * @param isbnClave ISBN-13 del libro
+     * @param runClave Cuerpo del RUN del usuario
+     * @return Resultado con el préstamo cerrado y la multa a pagar, o el motivo por el que se rechazó
      */
-    public int realizarDevolucion(String isbn, String run) {
+    public ResultadoCirculacion realizarDevolucion(long isbnClave, int runClave) {
+        ResultadoCirculacion resultado = devolver(isbnClave, runClave, hoy());
+
+        RegistroRechazos registro = registroRechazos;
+        if (registro != null && !resultado.esRealizado()) {
+            registro.rechazado(OperacionCirculacion.devolucion(isbnClave, runClave), resultado);
+        }
+        return resultado;
+    }
+
+    private ResultadoCirculacion devolver(long isbnClave, int runClave, LocalDate fechaDevolucion) {
         // Validación 1: El libro debe existir
-        Libro libro = buscarLibroPorISBN(isbn);
+        Libro libro = (isbnClave >= 0) ? libros.get(isbnClave) : null;
         if (libro == null) {
-            System.out.println("Error: El libro con ISBN " + isbn + " no existe.");
-            return -1;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.LIBRO_NO_EXISTE);
         }
 
         // Validación 2: El usuario debe existir
-        Usuario usuario = buscarUsuarioPorRUN(run);
+        Usuario usuario = (runClave >= 0) ? usuarios.get(runClave) : null;
         if (usuario == null) {
-            System.out.println("Error: El usuario con RUN " + run + " no existe.");
-            return -1;
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.USUARIO_NO_EXISTE);
         }
 
-        // Validación 3: El ISBN del libro a devolver debe coincidir con el préstamo del usuario
-        if (!usuario.getPrestamo().equals(isbn)) {
-            System.out.println("Error: El usuario no tiene prestado el libro con ISBN " + isbn + ".");
-            return -1;
+        synchronized (usuario) {
+            return devolverBloqueado(libro, usuario, fechaDevolucion);
         }
+    }
 
-        // Buscar el préstamo correspondiente
-        Prestamo prestamoActual = null;
-        for (Prestamo p : prestamos) {
-            if (p.getIsbn().equals(isbn) && p.getRun().equals(run)) {
-                prestamoActual = p;
-                break;
-            }
+    /**
+     * Valida y realiza una devolución sobre un libro y un usuario ya resueltos.
+     * Debe llamarse con el usuario bloqueado; no informa nada por pantalla.
+     *
+     * @return Resultado con el préstamo cerrado y la multa, o el motivo del rechazo
+     */
+    private ResultadoCirculacion devolverBloqueado(Libro libro, Usuario usuario, LocalDate fechaDevolucion) {
+        // Validación 3: El ISBN del libro a devolver debe coincidir con el préstamo del usuario
+        if (usuario.getPrestamo() != libro.getIsbnClave()) {
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.LIBRO_NO_PRESTADO);
         }
 
-        if (prestamoActual == null) {
-            System.out.println("Error: No se encontró el registro del préstamo.");
-            return -1;
+        // Buscar el préstamo activo correspondiente
+        Prestamo prestamoActual = prestamosActivosPorRun.get(usuario.getRunClave());
+
+        if (prestamoActual == null || prestamoActual.getIsbnClave() != libro.getIsbnClave()) {
+            return ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.PRESTAMO_NO_ENCONTRADO);
         }
 
+        int multa;
         try {
-            // Calcular multa (usa fecha actual)
-            int multa = prestamoActual.calcularMulta(LocalDate.now());
+            // Calcular multa a la fecha de devolución
+            multa = prestamoActual.calcularMulta(fechaDevolucion);
 
-            // Habilitar usuario para nuevo préstamo
-            usuario.setPrestamo("0");
+            // Reponer el ejemplar, cerrar el préstamo y habilitar al usuario en un solo paso;
+            // con bitácora, dentro del registro, para que el cambio y el registro ocurran
+            // juntos o no ocurra ninguno. La reposición va primero porque es lo único que
+            // puede fallar, y así no deja cambios a medias.
+            BooleanSupplier devolver = () -> {
+                libro.devolver();
+                prestamoActual.cerrar();
+                quitarPrestamoActivo(prestamoActual, usuario.getRunClave());
+                usuario.setPrestamo(Usuario.SIN_PRESTAMO);
+                return true;
+            };
+            Bitacora b = bitacora;
+            try {
+                if (b != null) {
+                    b.registrarDevolucion(libro.getIsbnClave(), usuario.getRunClave(), fechaDevolucion, devolver);
+                } else {
+                    devolver.getAsBoolean();
+                }
+            } finally {
+                // Si el cambio se aplicó (aunque después falle la espera del disco), el
+                // préstamo pasa al archivo histórico; el archivo puede escribir a disco, así
+                // que no se hace dentro del registro
+                if (!prestamoActual.estaActivo()) {
+                    archivo.agregar(usuario.getRunClave(), libro.getIsbnClave(),
+                            (int) prestamoActual.getFechaPrestamo().toEpochDay(), prestamoActual.getDiaDevolucion(),
+                            (int) fechaDevolucion.toEpochDay(), multa);
+                }
+            }
+            estadisticas.devolucionRealizada(usuario, multa);
 
-            // Incrementar disponibilidad del libro
-            libro.devolver();
+            RegistroAuditoria a = auditoria;
+            if (a != null) {
+                a.prestamoCerrado(libro.getIsbnClave(), usuario.getRunClave(), fechaDevolucion);
+                if (multa > 0) {
+                    a.multaAplicada(libro.getIsbnClave(), usuario.getRunClave(), multa, fechaDevolucion);
+                }
+            }
 
-            return multa;
+        } catch (RuntimeException e) {
+            return ResultadoCirculacion.error(e);
+        }
 
-        } catch (Exception e) {
-            System.out.println("Error al realizar la devolución: " + e.getMessage());
-            return -1;
+        return ResultadoCirculacion.devolucion(prestamoActual, multa);
+    }
+
+    // ==================== CIRCULACIÓN EN LOTE ====================
+
+    /**
+     * Realiza un lote de préstamos y devoluciones, por ejemplo el carro de libros que
+     * se entrega o recibe en un mesón, con las mismas validaciones que
+     * {@link #realizarPrestamo(String, String, int)} y {@link #realizarDevolucion(String, String)}
+     * y a la fecha del reloj del sistema.
+     *
+     * Los ISBN y RUN se interpretan una sola vez y el lote se ordena: primero todas las
+     * devoluciones y luego todos los préstamos, y dentro de cada grupo por RUN. Cada usuario
+     * se bloquea una sola vez para todas sus operaciones del grupo y nunca se tienen dos
+     * usuarios bloqueados a la vez, de modo que lotes concurrentes no pueden bloquearse
+     * entre sí. Como las devoluciones van primero, un lote puede devolver un libro y
+     * prestar otro al mismo usuario, o prestar un ejemplar que se devuelve en el mismo lote.
+     *
+     * Cada operación se realiza o se rechaza por separado. Con bitácora sincrónica se
+     * espera una sola vez, al final, a que todo el lote quede en disco. Los rechazos se
+     * informan al registro de rechazos, si hay uno, después de aplicar el lote.
+     *
+     * @param operaciones Operaciones del lote
+     * @return Resultado de cada operación, en el mismo orden del lote
+     */
+    public List<ResultadoCirculacion> procesarLote(List<OperacionCirculacion> operaciones) {
+        int cantidad = operaciones.size();
+        ResultadoCirculacion[] resultados = new ResultadoCirculacion[cantidad];
+        Libro[] librosLote = new Libro[cantidad];
+        int[] runs = new int[cantidad];
+
+        // Interpretar las claves y ordenar: grupo (devolución o préstamo), RUN y posición en el lote
+        long[] orden = new long[cantidad];
+        int pendientes = 0;
+        for (int i = 0; i < cantidad; i++) {
+            OperacionCirculacion operacion = operaciones.get(i);
+            long isbnClave = ValidadorISBN.parsearISBN(operacion.getIsbn());
+            librosLote[i] = (isbnClave != ValidadorISBN.ISBN_INVALIDO) ? libros.get(isbnClave) : null;
+            runs[i] = claveRUN(operacion.getRun());
+            if (librosLote[i] == null) {
+                resultados[i] = ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.LIBRO_NO_EXISTE);
+            } else if (runs[i] < 0) {
+                resultados[i] = ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.USUARIO_NO_EXISTE);
+            } else {
+                long grupo = operacion.esPrestamo() ? 1 : 0;
+                orden[pendientes++] = (grupo << 62) | ((long) runs[i] << 31) | i;
+            }
         }
+        Arrays.sort(orden, 0, pendientes);
+
+        final int aplicar = pendientes;
+        Runnable lote = () -> {
+            LocalDate fecha = hoy();
+            int inicio = 0;
+            while (inicio < aplicar) {
+                // Operaciones del mismo grupo y RUN
+                long grupoYRun = orden[inicio] >>> 31;
+                int fin = inicio + 1;
+                while (fin < aplicar && (orden[fin] >>> 31) == grupoYRun) {
+                    fin++;
+                }
+
+                Usuario usuario = usuarios.get(runs[(int) (orden[inicio] & Integer.MAX_VALUE)]);
+                if (usuario == null) {
+                    for (int k = inicio; k < fin; k++) {
+                        resultados[(int) (orden[k] & Integer.MAX_VALUE)] =
+                                ResultadoCirculacion.rechazo(ResultadoCirculacion.Codigo.USUARIO_NO_EXISTE);
+                    }
+                } else {
+                    synchronized (usuario) {
+                        for (int k = inicio; k < fin; k++) {
+                            int i = (int) (orden[k] & Integer.MAX_VALUE);
+                            OperacionCirculacion operacion = operaciones.get(i);
+                            resultados[i] = operacion.esPrestamo()
+                                    ? prestarBloqueado(librosLote[i], usuario, operacion.getDias(), fecha)
+                                    : devolverBloqueado(librosLote[i], usuario, fecha);
+                        }
+                    }
+                }
+                inicio = fin;
+            }
+        };
+
+        Bitacora b = bitacora;
+        if (b != null) {
+            b.enLote(lote);
+        } else {
+            lote.run();
+        }
+
+        RegistroRechazos registro = registroRechazos;
+        if (registro != null) {
+            for (int i = 0; i < cantidad; i++) {
+                if (!resultados[i].esRealizado()) {
+                    registro.rechazado(operaciones.get(i), resultados[i]);
+                }
+            }
+        }
+        return Arrays.asList(resultados);
     }
 
     /**
-     * Busca un préstamo por ISBN y RUN.
+     * Busca el préstamo activo de un usuario para un libro.
+     * Los préstamos ya devueltos no se consideran.
      *
      * @param isbn ISBN del libro
      * @param run RUN del usuario
-     * @return Prestamo encontrado o null
+     * @return Prestamo activo encontrado o null
      */
     public Prestamo buscarPrestamo(String isbn, String run) {
-        for (Prestamo p : prestamos) {
-            if (p.getIsbn().equals(isbn) && p.getRun().equals(run)) {
-                return p;
-            }
+        int clave = claveRUN(run);
+        long isbnClave = ValidadorISBN.parsearISBN(isbn);
+        if (clave < 0 || isbnClave == ValidadorISBN.ISBN_INVALIDO) {
+            return null;
+        }
+
+        Prestamo prestamo = prestamosActivosPorRun.get(clave);
+        if (prestamo != null && prestamo.getIsbnClave() == isbnClave) {
+            return prestamo;
         }
         return null;
     }
 
     /**
-     * Lista todos los préstamos del sistema.
+     * Lista los préstamos activos de un libro.
+     *
+     * @param isbn ISBN del libro
+     * @return ArrayList con los préstamos activos del libro (vacía si no tiene)
+     */
+    public ArrayList<Prestamo> listarPrestamosActivos(String isbn) {
+        long clave = ValidadorISBN.parsearISBN(isbn);
+        if (clave == ValidadorISBN.ISBN_INVALIDO) {
+            return new ArrayList<>();
+        }
+
+        Set<Prestamo> activos = prestamosActivosPorIsbn.get(clave);
+        return (activos != null) ? new ArrayList<>(activos) : new ArrayList<>();
+    }
+
+    /**
+     * Lista los préstamos activos por páginas, en orden de RUN del usuario.
+     * Cada página recorre solo los RUN con préstamo activo que siguen al cursor, por lo
+     * que su costo no depende de la cantidad de usuarios sin préstamo.
+     *
+     * @param cursor Cursor de la página anterior, o {@link Pagina#INICIO} para la primera
+     * @param maximo Cantidad máxima de préstamos por página
+     * @return Página de préstamos activos
+     */
+    public Pagina<Prestamo> listarPrestamosActivos(long cursor, int maximo) {
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("El tamaño de la página debe ser mayor que cero");
+        }
+        // Cada usuario tiene a lo más un préstamo activo, así que el RUN sirve de cursor
+        ArrayList<Prestamo> elementos = new ArrayList<>(Math.min(maximo, 1024));
+        long ultimo = Pagina.INICIO;
+        for (long clave : runsConPrestamo.tailSet(cursor, false)) {
+            Prestamo prestamo = prestamosActivosPorRun.get(clave);
+            if (prestamo == null) { // Pudo devolverse recién
+                continue;
+            }
+            if (elementos.size() == maximo) {
+                return new Pagina<>(elementos, ultimo);
+            }
+            elementos.add(prestamo);
+            ultimo = clave;
+        }
+        return new Pagina<>(elementos, Pagina.INICIO);
+    }
+
+    /**
+     * Lista los préstamos activos atrasados a una fecha, es decir, cuya fecha de
+     * devolución es anterior a ella. El costo depende de la cantidad de préstamos
+     * atrasados, no del historial.
+     *
+     * @param fecha Fecha de referencia
+     * @return ArrayList con los préstamos atrasados, del más antiguo al más reciente
+     */
+    public ArrayList<Prestamo> listarPrestamosAtrasados(LocalDate fecha) {
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha no puede ser nula");
+        }
+        return vencimientos.vencidosAntesDe(fecha);
+    }
+
+    /**
+     * Lista los préstamos activos que vencen desde una fecha y hasta los días indicados
+     * después de ella, ambas fechas incluidas. Con 0 días lista los que vencen ese día.
+     *
+     * @param desde Fecha de referencia
+     * @param dias Días hacia adelante
+     * @return ArrayList con los préstamos por vencer, ordenados por fecha de devolución
+     */
+    public ArrayList<Prestamo> listarPrestamosPorVencer(LocalDate desde, int dias) {
+        if (desde == null) {
+            throw new IllegalArgumentException("La fecha no puede ser nula");
+        }
+        if (dias < 0) {
+            throw new IllegalArgumentException("Los días no pueden ser negativos");
+        }
+        return vencimientos.vencenEntre(desde, desde.plusDays(dias));
+    }
+
+    /**
+     * Agrega un préstamo recién creado a los índices de préstamos activos.
+     *
+     * @param prestamo Préstamo activo
+     */
+    private void registrarPrestamoActivo(Prestamo prestamo) {
+        prestamosActivosPorRun.put(prestamo.getRunClave(), prestamo);
+        runsConPrestamo.add((long) prestamo.getRunClave());
+        prestamosActivosPorIsbn.compute(prestamo.getIsbnClave(), activos -> {
+            if (activos == null) {
+                activos = ConcurrentHashMap.newKeySet();
+            }
+            activos.add(prestamo);
+            return activos;
+        });
+        vencimientos.agregar(prestamo);
+    }
+
+    /**
+     * Retira un préstamo cerrado de los índices de préstamos activos.
+     *
+     * @param prestamo Préstamo cerrado
+     * @param runClave Clave del RUN actual del usuario (puede diferir de la registrada si fue editado)
+     */
+    private void quitarPrestamoActivo(Prestamo prestamo, int runClave) {
+        if (prestamosActivosPorRun.remove(runClave, prestamo)) {
+            runsConPrestamo.remove((long) runClave);
+        }
+        prestamosActivosPorIsbn.compute(prestamo.getIsbnClave(), activos -> {
+            if (activos == null) {
+                return null;
+            }
+            activos.remove(prestamo);
+            return activos.isEmpty() ? null : activos;
+        });
+        vencimientos.quitar(prestamo);
+    }
+
+    // ==================== HISTORIAL ====================
+
+    /**
+     * Lista los préstamos devueltos entre dos fechas, ambas incluidas.
+     *
+     * @param desde Primera fecha de devolución
+     * @param hasta Última fecha de devolución
+     * @return ArrayList con los préstamos cerrados, en el orden en que se devolvieron
+     */
+    public ArrayList<PrestamoCerrado> listarPrestamosCerrados(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            throw new IllegalArgumentException("Las fechas no pueden ser nulas");
+        }
+        return archivo.buscarPorDevolucion(desde, hasta);
+    }
+
+    /**
+     * Lista los préstamos cerrados de un usuario. Si el usuario cambió de RUN, los
+     * préstamos devueltos antes del cambio quedan con el RUN anterior.
+     *
+     * @param run RUN del usuario
+     * @return ArrayList con los préstamos cerrados (vacía si el RUN es inválido)
+     */
+    public ArrayList<PrestamoCerrado> listarPrestamosCerradosDeUsuario(String run) {
+        int clave = claveRUN(run);
+        return (clave < 0) ? new ArrayList<>() : archivo.buscarPorUsuario(clave);
+    }
+
+    /**
+     * Lista los préstamos cerrados de un libro.
+     *
+     * @param isbn ISBN del libro
+     * @return ArrayList con los préstamos cerrados (vacía si el ISBN es inválido)
+     */
+    public ArrayList<PrestamoCerrado> listarPrestamosCerradosDeLibro(String isbn) {
+        long clave = ValidadorISBN.parsearISBN(isbn);
+        return (clave == ValidadorISBN.ISBN_INVALIDO) ? new ArrayList<>() : archivo.buscarPorLibro(clave);
+    }
+
+    /**
+     * Lista los préstamos cerrados por páginas, en el orden en que se devolvieron.
+     * Cada página se lee directamente de su posición en el archivo histórico.
+     *
+     * @param cursor Cursor de la página anterior, o {@link Pagina#INICIO} para la primera
+     * @param maximo Cantidad máxima de préstamos por página
+     * @return Página de préstamos cerrados
+     */
+    public Pagina<PrestamoCerrado> listarPrestamosCerrados(long cursor, int maximo) {
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("El tamaño de la página debe ser mayor que cero");
+        }
+        // El cursor es la posición del último préstamo de la página anterior
+        ArrayList<PrestamoCerrado> leidos = archivo.leer(cursor + 1, maximo + 1);
+        if (leidos.size() <= maximo) {
+            return new Pagina<>(leidos, Pagina.INICIO);
+        }
+        leidos.remove(maximo);
+        return new Pagina<>(leidos, cursor + maximo);
+    }
+
+    /**
+     * Lista todos los préstamos del sistema: primero los cerrados, reconstruidos desde
+     * el archivo histórico, y luego los activos. Crea un objeto por préstamo; para
+     * consultar el historial conviene usar los métodos de búsqueda por fecha, usuario o libro,
+     * o listarlo por páginas.
      *
      * @return ArrayList con todos los préstamos
      */
     public ArrayList<Prestamo> listarPrestamos() {
-        return new ArrayList<>(prestamos);
+        ArrayList<Prestamo> todos = new ArrayList<>();
+        archivo.recorrer(cerrado -> todos.add(cerrado.aPrestamo()));
+        for (Set<Prestamo> activos : prestamosActivosPorIsbn.valores()) {
+            todos.addAll(activos);
+        }
+        return todos;
     }
 }
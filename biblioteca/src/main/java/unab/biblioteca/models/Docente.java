@@ -1,17 +1,24 @@
 package unab.biblioteca.models;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Clase que representa un usuario de tipo Docente.
  * Los docentes tienen período máximo de préstamo de 20 días.
  *
+ * La lista de grados es inmutable: modificarla crea una lista nueva, y getGrados()
+ * entrega la actual sin copiarla.
+ *
  * @author @author Alan, Francisco, Sandrino y Sebastián
  */
 public class Docente extends Usuario {
 
+    /** Período máximo de préstamo de un docente, en días. */
+    public static final int PERIODO_MAXIMO_PRESTAMO = 20;
+
     private String profesion;
-    private ArrayList<String> grados; // Puede contener "Magíster", "Doctor", o ambos
+    private List<String> grados; // Puede contener "Magíster", "Doctor", o ambos; no modificable
 
     /**
      * Constructor de Docente.
@@ -29,7 +36,7 @@ public class Docente extends Usuario {
         }
 
         this.profesion = profesion.trim();
-        this.grados = new ArrayList<>();
+        this.grados = List.of();
     }
 
     /**
@@ -41,12 +48,10 @@ public class Docente extends Usuario {
      * @param profesion Profesión del docente
      * @param grados Lista de grados académicos
      */
-    public Docente(String nombreCompleto, String run, char genero, String profesion, ArrayList<String> grados) {
+    public Docente(String nombreCompleto, String run, char genero, String profesion, List<String> grados) {
         this(nombreCompleto, run, genero, profesion);
 
-        if (grados != null) {
-            this.grados = new ArrayList<>(grados);
-        }
+        this.grados = normalizarGrados(grados);
     }
 
     /**
@@ -56,7 +61,7 @@ public class Docente extends Usuario {
      */
     @Override
     public int getPeriodoMaximoPrestamo() {
-        return 20;
+        return PERIODO_MAXIMO_PRESTAMO;
     }
 
     /**
@@ -66,10 +71,23 @@ public class Docente extends Usuario {
      */
     public void agregarGrado(String grado) {
         if (grado != null && !grado.trim().isEmpty() && !grados.contains(grado.trim())) {
-            grados.add(grado.trim());
+            ArrayList<String> nuevos = new ArrayList<>(grados);
+            nuevos.add(grado.trim());
+            grados = List.copyOf(nuevos);
+            publicar();
         }
     }
 
+    @Override
+    public FichaDocente getFicha() {
+        return (FichaDocente) super.getFicha();
+    }
+
+    @Override
+    protected FichaDocente crearFicha() {
+        return new FichaDocente(nombreCompleto, run, runClave, genero, prestamo, profesion, grados);
+    }
+
     // Getters y Setters
 
     public String getProfesion() {
@@ -81,40 +99,35 @@ public class Docente extends Usuario {
             throw new IllegalArgumentException("La profesión no puede estar vacía");
         }
         this.profesion = profesion.trim();
+        publicar();
     }
 
-    public ArrayList<String> getGrados() {
-        return new ArrayList<>(grados);
+    /**
+     * Retorna los grados académicos del docente.
+     *
+     * @return Lista de grados (no modificable)
+     */
+    public List<String> getGrados() {
+        return grados;
+    }
+
+    public void setGrados(List<String> grados) {
+        this.grados = normalizarGrados(grados);
+        publicar();
     }
 
-    public void setGrados(ArrayList<String> grados) {
-        this.grados = new ArrayList<>();
+    /**
+     * Crea una lista no modificable con los grados no vacíos, sin espacios sobrantes.
+     */
+    private static List<String> normalizarGrados(List<String> grados) {
+        ArrayList<String> nuevos = new ArrayList<>();
         if (grados != null) {
             for (String grado : grados) {
                 if (grado != null && !grado.trim().isEmpty()) {
-                    this.grados.add(grado.trim());
+                    nuevos.add(grado.trim());
                 }
             }
         }
-    }
-
-    /**
-     * Retorna información completa del docente.
-     *
-     * @return String con datos del docente
-     */
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Docente{");
-        sb.append("nombreCompleto='").append(nombreCompleto).append('\'');
-        sb.append(", run='").append(run).append('\'');
-        sb.append(", genero=").append(genero);
-        sb.append(", profesion='").append(profesion).append('\'');
-        sb.append(", grados=").append(grados);
-        sb.append(", prestamo='").append(prestamo).append('\'');
-        sb.append(", periodoMaximo=").append(getPeriodoMaximoPrestamo()).append(" días");
-        sb.append('}');
-        return sb.toString();
+        return List.copyOf(nuevos);
     }
 }
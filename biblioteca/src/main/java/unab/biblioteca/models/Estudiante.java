@@ -8,6 +8,9 @@ package unab.biblioteca.models;
  */
 public class Estudiante extends Usuario {
 
+    /** Período máximo de préstamo de un estudiante, en días. */
+    public static final int PERIODO_MAXIMO_PRESTAMO = 10;
+
     private String carrera;
 
     /**
@@ -35,7 +38,17 @@ public class Estudiante extends Usuario {
      */
     @Override
     public int getPeriodoMaximoPrestamo() {
-        return 10;
+        return PERIODO_MAXIMO_PRESTAMO;
+    }
+
+    @Override
+    public FichaEstudiante getFicha() {
+        return (FichaEstudiante) super.getFicha();
+    }
+
+    @Override
+    protected FichaEstudiante crearFicha() {
+        return new FichaEstudiante(nombreCompleto, run, runClave, genero, prestamo, carrera);
     }
 
     // Getters y Setters
@@ -49,22 +62,6 @@ public class Estudiante extends Usuario {
             throw new IllegalArgumentException("La carrera no puede estar vacía");
         }
         this.carrera = carrera.trim();
-    }
-
-    /**
-     * Retorna información completa del estudiante.
-     *
-     * @return String con datos del estudiante
-     */
-    @Override
-    public String toString() {
-        return "Estudiante{" +
-                "nombreCompleto='" + nombreCompleto + '\'' +
-                ", run='" + run + '\'' +
-                ", genero=" + genero +
-                ", carrera='" + carrera + '\'' +
-                ", prestamo='" + prestamo + '\'' +
-                ", periodoMaximo=" + getPeriodoMaximoPrestamo() + " días" +
-                '}';
+        publicar();
     }
 }
@@ -0,0 +1,60 @@
+package unab.biblioteca.models;
+
+import java.util.List;
+
+/**
+ * Vista inmutable de un {@link Docente}. La lista de grados no es modificable y se
+ * comparte entre fichas sucesivas mientras los grados no cambien.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class FichaDocente extends FichaUsuario {
+
+    private final String profesion;
+    private final List<String> grados;
+
+    FichaDocente(String nombreCompleto, String run, int runClave, char genero, long prestamo,
+                 String profesion, List<String> grados) {
+        super(nombreCompleto, run, runClave, genero, prestamo);
+        this.profesion = profesion;
+        this.grados = grados;
+    }
+
+    @Override
+    public FichaDocente conPrestamo(long prestamo) {
+        return new FichaDocente(nombreCompleto, run, runClave, genero, prestamo, profesion, grados);
+    }
+
+    @Override
+    public int getPeriodoMaximoPrestamo() {
+        return Docente.PERIODO_MAXIMO_PRESTAMO;
+    }
+
+    public String getProfesion() {
+        return profesion;
+    }
+
+    /**
+     * Retorna los grados académicos del docente.
+     *
+     * @return Lista de grados (no modificable)
+     */
+    public List<String> getGrados() {
+        return grados;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Docente{");
+        sb.append("nombreCompleto='").append(nombreCompleto).append('\'');
+        sb.append(", run='").append(run).append('\'');
+        sb.append(", genero=").append(genero);
+        sb.append(", profesion='").append(profesion).append('\'');
+        sb.append(", grados=").append(grados);
+        sb.append(", prestamo='").append(prestamo).append('\'');
+        sb.append(", periodoMaximo=").append(getPeriodoMaximoPrestamo()).append(" días");
+        sb.append('}');
+        return sb.toString();
+    }
+}
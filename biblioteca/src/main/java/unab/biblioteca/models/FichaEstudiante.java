@@ -0,0 +1,42 @@
+package unab.biblioteca.models;
+
+/**
+ * Vista inmutable de un {@link Estudiante}.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class FichaEstudiante extends FichaUsuario {
+
+    private final String carrera;
+
+    FichaEstudiante(String nombreCompleto, String run, int runClave, char genero, long prestamo, String carrera) {
+        super(nombreCompleto, run, runClave, genero, prestamo);
+        this.carrera = carrera;
+    }
+
+    @Override
+    public FichaEstudiante conPrestamo(long prestamo) {
+        return new FichaEstudiante(nombreCompleto, run, runClave, genero, prestamo, carrera);
+    }
+
+    @Override
+    public int getPeriodoMaximoPrestamo() {
+        return Estudiante.PERIODO_MAXIMO_PRESTAMO;
+    }
+
+    public String getCarrera() {
+        return carrera;
+    }
+
+    @Override
+    public String toString() {
+        return "Estudiante{" +
+                "nombreCompleto='" + nombreCompleto + '\'' +
+                ", run='" + run + '\'' +
+                ", genero=" + genero +
+                ", carrera='" + carrera + '\'' +
+                ", prestamo='" + prestamo + '\'' +
+                ", periodoMaximo=" + getPeriodoMaximoPrestamo() + " días" +
+                '}';
+    }
+}
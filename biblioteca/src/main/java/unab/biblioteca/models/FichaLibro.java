@@ -0,0 +1,85 @@
+package unab.biblioteca.models;
+
+/**
+ * Vista inmutable de un {@link Libro} en un instante, que entrega {@link Libro#getFicha()}
+ * para leer el libro sin bloqueos ni copias mientras otros hilos lo prestan o modifican.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class FichaLibro {
+
+    private final String isbn;
+    private final long isbnClave;
+    private final String titulo;
+    private final String autor;
+    private final int cantidadBiblioteca;
+    private final int cantidadDisponible;
+    private final String imagen;
+
+    FichaLibro(String isbn, long isbnClave, String titulo, String autor, int cantidadBiblioteca,
+               int cantidadDisponible, String imagen) {
+        this.isbn = isbn;
+        this.isbnClave = isbnClave;
+        this.titulo = titulo;
+        this.autor = autor;
+        this.cantidadBiblioteca = cantidadBiblioteca;
+        this.cantidadDisponible = cantidadDisponible;
+        this.imagen = imagen;
+    }
+
+    /**
+     * Retorna una copia de la ficha con otra cantidad disponible.
+     *
+     * @param cantidadDisponible Ejemplares disponibles
+     * @return Ficha con los mismos datos y la cantidad dada
+     */
+    FichaLibro conDisponible(int cantidadDisponible) {
+        return new FichaLibro(isbn, isbnClave, titulo, autor, cantidadBiblioteca, cantidadDisponible, imagen);
+    }
+
+    public boolean hayDisponible() {
+        return cantidadDisponible > 0;
+    }
+
+    // Getters
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public long getIsbnClave() {
+        return isbnClave;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getAutor() {
+        return autor;
+    }
+
+    public int getCantidadBiblioteca() {
+        return cantidadBiblioteca;
+    }
+
+    public int getCantidadDisponible() {
+        return cantidadDisponible;
+    }
+
+    public String getImagen() {
+        return imagen;
+    }
+
+    @Override
+    public String toString() {
+        return "Libro{" +
+                "isbn='" + isbn + '\'' +
+                ", titulo='" + titulo + '\'' +
+                ", autor='" + autor + '\'' +
+                ", cantidadBiblioteca=" + cantidadBiblioteca +
+                ", cantidadDisponible=" + cantidadDisponible +
+                ", imagen='" + imagen + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package unab.biblioteca.models;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Vista inmutable de un {@link Prestamo} en un instante, que entrega
+ * {@link Prestamo#getFicha()}. Un préstamo tiene a lo más dos fichas: mientras está
+ * activo y después de cerrarse.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class FichaPrestamo {
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final String isbn;
+    private final long isbnClave;
+    private final String run;
+    private final int runClave;
+    private final LocalDate fechaPrestamo;
+    private final int diasPrestados;
+    private final LocalDate fechaDevolucion;
+    private final boolean activo;
+
+    FichaPrestamo(String isbn, long isbnClave, String run, int runClave, LocalDate fechaPrestamo,
+                  int diasPrestados, LocalDate fechaDevolucion, boolean activo) {
+        this.isbn = isbn;
+        this.isbnClave = isbnClave;
+        this.run = run;
+        this.runClave = runClave;
+        this.fechaPrestamo = fechaPrestamo;
+        this.diasPrestados = diasPrestados;
+        this.fechaDevolucion = fechaDevolucion;
+        this.activo = activo;
+    }
+
+    // Getters
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public long getIsbnClave() {
+        return isbnClave;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public int getRunClave() {
+        return runClave;
+    }
+
+    public LocalDate getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    public int getDiasPrestados() {
+        return diasPrestados;
+    }
+
+    public LocalDate getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    public boolean estaActivo() {
+        return activo;
+    }
+
+    @Override
+    public String toString() {
+        return "Prestamo{" +
+                "isbn='" + isbn + '\'' +
+                ", run='" + run + '\'' +
+                ", fechaPrestamo=" + fechaPrestamo.format(FORMATO_FECHA) +
+                ", diasPrestados=" + diasPrestados +
+                ", fechaDevolucion=" + fechaDevolucion.format(FORMATO_FECHA) +
+                ", activo=" + activo +
+                '}';
+    }
+}
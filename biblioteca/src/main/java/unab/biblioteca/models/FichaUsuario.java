@@ -0,0 +1,69 @@
+package unab.biblioteca.models;
+
+/**
+ * Vista inmutable de un {@link Usuario} en un instante: la entregan
+ * {@link Usuario#getFicha()} y sus subclases para leer los datos del usuario sin
+ * bloqueos ni copias mientras otros hilos lo modifican.
+ *
+ * Cada modificación del usuario publica una ficha nueva, y la ficha publicada se comparte
+ * entre todos los lectores. Los datos de una misma ficha son siempre consistentes entre sí.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public abstract class FichaUsuario {
+
+    protected final String nombreCompleto;
+    protected final String run;
+    protected final int runClave;
+    protected final char genero;
+    protected final long prestamo;
+
+    protected FichaUsuario(String nombreCompleto, String run, int runClave, char genero, long prestamo) {
+        this.nombreCompleto = nombreCompleto;
+        this.run = run;
+        this.runClave = runClave;
+        this.genero = genero;
+        this.prestamo = prestamo;
+    }
+
+    /**
+     * Retorna una copia de la ficha con otro préstamo activo.
+     *
+     * @param prestamo ISBN-13 normalizado del préstamo activo, o {@link Usuario#SIN_PRESTAMO}
+     * @return Ficha con los mismos datos y el préstamo dado
+     */
+    public abstract FichaUsuario conPrestamo(long prestamo);
+
+    /**
+     * Retorna el período máximo de préstamo según el tipo de usuario.
+     *
+     * @return Número de días máximo de préstamo
+     */
+    public abstract int getPeriodoMaximoPrestamo();
+
+    public boolean tienePrestamo() {
+        return prestamo != Usuario.SIN_PRESTAMO;
+    }
+
+    // Getters
+
+    public String getNombreCompleto() {
+        return nombreCompleto;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public int getRunClave() {
+        return runClave;
+    }
+
+    public char getGenero() {
+        return genero;
+    }
+
+    public long getPrestamo() {
+        return prestamo;
+    }
+}
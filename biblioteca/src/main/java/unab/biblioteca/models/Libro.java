@@ -1,23 +1,36 @@
 package unab.biblioteca.models;
 
+import unab.biblioteca.utils.ValidadorISBN;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Clase que representa un libro en el sistema de biblioteca.
+ * La cantidad disponible es un contador atómico: préstamos y devoluciones concurrentes
+ * la actualizan sin bloqueos, respetando siempre el rango 0..cantidadBiblioteca.
+ *
+ * Los hilos que solo leen deben usar {@link #getFicha()}, que entrega una vista inmutable
+ * del libro. Cada setter publica una ficha nueva; la cantidad disponible se incorpora a
+ * la ficha cuando alguien la pide, para no crear una en cada préstamo.
  *
  * @author @author Alan, Francisco, Sandrino y Sebastián
  */
 public class Libro {
 
-    private String isbn; // Código único del libro
+    private String isbn; // Código único del libro, tal como se ingresó
+    private long isbnClave; // ISBN-13 normalizado, ver ValidadorISBN
     private String titulo;
     private String autor;
-    private int cantidadBiblioteca; // Total de ejemplares en biblioteca
-    private int cantidadDisponible; // Ejemplares disponibles para préstamo
+    private volatile int cantidadBiblioteca; // Total de ejemplares en biblioteca
+    private final AtomicInteger cantidadDisponible; // Ejemplares disponibles para préstamo
     private String imagen; // Ruta o descripción de la imagen
 
+    private final AtomicReference<FichaLibro> ficha = new AtomicReference<>(); // null hasta que alguien la pida
+
     /**
      * Constructor de Libro con validaciones.
      *
-     * @param isbn ISBN del libro (debe ser único)
+     * @param isbn ISBN del libro (debe ser único; ISBN-13 o ISBN-10 válido)
      * @param titulo Título del libro
      * @param autor Autor del libro
      * @param cantidadBiblioteca Cantidad total en biblioteca
@@ -30,6 +43,10 @@ public class Libro {
         if (isbn == null || isbn.trim().isEmpty()) {
             throw new IllegalArgumentException("El ISBN no puede estar vacío");
         }
+        long isbnClave = ValidadorISBN.parsearISBN(isbn.trim());
+        if (isbnClave == ValidadorISBN.ISBN_INVALIDO) {
+            throw new IllegalArgumentException("ISBN inválido");
+        }
 
         // Validar título
         if (titulo == null || titulo.trim().isEmpty()) {
@@ -57,10 +74,11 @@ public class Libro {
         }
 
         this.isbn = isbn.trim();
+        this.isbnClave = isbnClave;
         this.titulo = titulo.trim();
         this.autor = autor.trim();
         this.cantidadBiblioteca = cantidadBiblioteca;
-        this.cantidadDisponible = cantidadDisponible;
+        this.cantidadDisponible = new AtomicInteger(cantidadDisponible);
         this.imagen = (imagen != null) ? imagen.trim() : "";
     }
 
@@ -70,20 +88,36 @@ public class Libro {
      * @return true si hay al menos un ejemplar disponible, false en caso contrario
      */
     public boolean hayDisponible() {
-        return cantidadDisponible > 0;
+        return cantidadDisponible.get() > 0;
     }
 
     /**
      * Reduce la cantidad disponible en 1 (cuando se realiza un préstamo).
-     * Valida que haya disponibilidad antes de reducir.
+     * Valida que haya disponibilidad antes de reducir; si otro hilo modificó el
+     * contador entre la lectura y la escritura, reintenta con el valor nuevo.
      *
      * @throws IllegalStateException si no hay ejemplares disponibles
      */
     public void prestar() {
-        if (!hayDisponible()) {
+        if (!intentarPrestar()) {
             throw new IllegalStateException("No hay ejemplares disponibles para préstamo");
         }
-        cantidadDisponible--;
+    }
+
+    /**
+     * Reduce la cantidad disponible en 1 si hay ejemplares, sin lanzar excepción si no hay.
+     *
+     * @return true si se tomó un ejemplar, false si no había disponibles
+     */
+    public boolean intentarPrestar() {
+        int actual;
+        do {
+            actual = cantidadDisponible.get();
+            if (actual <= 0) {
+                return false;
+            }
+        } while (!cantidadDisponible.compareAndSet(actual, actual - 1));
+        return true;
     }
 
     /**
@@ -93,10 +127,46 @@ public class Libro {
      * @throws IllegalStateException si la devolución excedería la cantidad en biblioteca
      */
     public void devolver() {
-        if (cantidadDisponible >= cantidadBiblioteca) {
-            throw new IllegalStateException("Error: la cantidad disponible ya está al máximo");
+        int actual;
+        do {
+            actual = cantidadDisponible.get();
+            if (actual >= cantidadBiblioteca) {
+                throw new IllegalStateException("Error: la cantidad disponible ya está al máximo");
+            }
+        } while (!cantidadDisponible.compareAndSet(actual, actual + 1));
+    }
+
+    /**
+     * Retorna una vista inmutable del libro. La misma ficha se comparte entre todos los
+     * lectores mientras el libro no cambie, por lo que leerla no copia nada.
+     *
+     * @return Ficha con los datos actuales del libro
+     */
+    public FichaLibro getFicha() {
+        while (true) {
+            FichaLibro actual = ficha.get();
+            int disponible = cantidadDisponible.get();
+            if (actual != null && actual.getCantidadDisponible() == disponible) {
+                return actual;
+            }
+            // Si un setter publica entretanto, se reintenta con su ficha para no pisarla
+            FichaLibro nueva = (actual == null) ? crearFicha() : actual.conDisponible(disponible);
+            if (ficha.compareAndSet(actual, nueva)) {
+                return nueva;
+            }
         }
-        cantidadDisponible++;
+    }
+
+    private FichaLibro crearFicha() {
+        return new FichaLibro(isbn, isbnClave, titulo, autor, cantidadBiblioteca, cantidadDisponible.get(), imagen);
+    }
+
+    /**
+     * Publica una ficha con los datos actuales. Los setters de un mismo libro no deben
+     * ejecutarse a la vez.
+     */
+    private void publicar() {
+        ficha.set(crearFicha());
     }
 
     // Getters y Setters
@@ -109,7 +179,23 @@ public class Libro {
         if (isbn == null || isbn.trim().isEmpty()) {
             throw new IllegalArgumentException("El ISBN no puede estar vacío");
         }
+        long isbnClave = ValidadorISBN.parsearISBN(isbn.trim());
+        if (isbnClave == ValidadorISBN.ISBN_INVALIDO) {
+            throw new IllegalArgumentException("ISBN inválido");
+        }
         this.isbn = isbn.trim();
+        this.isbnClave = isbnClave;
+        publicar();
+    }
+
+    /**
+     * Retorna el ISBN normalizado a ISBN-13 como long.
+     * Distintas formas de escribir el mismo ISBN tienen la misma clave.
+     *
+     * @return Clave primitiva del ISBN
+     */
+    public long getIsbnClave() {
+        return isbnClave;
     }
 
     public String getTitulo() {
@@ -121,6 +207,7 @@ public class Libro {
             throw new IllegalArgumentException("El título no puede estar vacío");
         }
         this.titulo = titulo.trim();
+        publicar();
     }
 
     public String getAutor() {
@@ -132,6 +219,7 @@ public class Libro {
             throw new IllegalArgumentException("El autor no puede estar vacío");
         }
         this.autor = autor.trim();
+        publicar();
     }
 
     public int getCantidadBiblioteca() {
@@ -143,10 +231,11 @@ public class Libro {
             throw new IllegalArgumentException("La cantidad en biblioteca debe ser mayor a cero");
         }
         this.cantidadBiblioteca = cantidadBiblioteca;
+        publicar();
     }
 
     public int getCantidadDisponible() {
-        return cantidadDisponible;
+        return cantidadDisponible.get();
     }
 
     public void setCantidadDisponible(int cantidadDisponible) {
@@ -156,7 +245,7 @@ public class Libro {
         if (cantidadDisponible > cantidadBiblioteca) {
             throw new IllegalArgumentException("La cantidad disponible no puede ser mayor a la cantidad en biblioteca");
         }
-        this.cantidadDisponible = cantidadDisponible;
+        this.cantidadDisponible.set(cantidadDisponible);
     }
 
     public String getImagen() {
@@ -165,22 +254,16 @@ public class Libro {
 
     public void setImagen(String imagen) {
         this.imagen = (imagen != null) ? imagen.trim() : "";
+        publicar();
     }
 
     /**
-     * Retorna información completa del libro.
+     * Retorna información completa del libro, tomada de su ficha.
      *
      * @return String con datos del libro
      */
     @Override
     public String toString() {
-        return "Libro{" +
-                "isbn='" + isbn + '\'' +
-                ", titulo='" + titulo + '\'' +
-                ", autor='" + autor + '\'' +
-                ", cantidadBiblioteca=" + cantidadBiblioteca +
-                ", cantidadDisponible=" + cantidadDisponible +
-                ", imagen='" + imagen + '\'' +
-                '}';
+        return getFicha().toString();
     }
 }
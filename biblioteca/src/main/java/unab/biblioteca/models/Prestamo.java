@@ -1,22 +1,40 @@
 package unab.biblioteca.models;
 
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 
 /**
  * Clase que representa un préstamo de libro en el sistema de biblioteca.
  * Maneja fechas automáticamente y calcula multas por retraso.
  *
+ * La fecha de devolución se guarda también como día de época (días desde el
+ * 1970-01-01), de modo que la multa se calcula con una resta de enteros; esto permite
+ * liquidar multas de muchos préstamos a la vez sin crear objetos de fecha.
+ *
+ * Todos los datos son fijos salvo el estado activo, que cambia una sola vez al cerrar
+ * el préstamo; {@link #getFicha()} entrega la vista inmutable correspondiente.
+ *
  * @author @author Alan, Francisco, Sandrino y Sebastián
  */
 public class Prestamo {
 
-    private String isbn;
-    private String run;
-    private LocalDate fechaPrestamo;
-    private int diasPrestados;
-    private LocalDate fechaDevolucion;
+    /** Multa por cada día de retraso. */
+    public static final int MULTA_POR_DIA = 1000;
+
+    private final String isbn;
+    private final long isbnClave; // ISBN-13 normalizado, ver Libro.getIsbnClave()
+    private final String run;
+    private final int runClave; // Cuerpo del RUN, ver Usuario.getRunClave()
+    private final LocalDate fechaPrestamo;
+    private final int diasPrestados;
+    private final LocalDate fechaDevolucion;
+    private final int diaDevolucion; // fechaDevolucion como día de época
+    private volatile boolean activo; // true mientras el libro no haya sido devuelto
+
+    private volatile FichaPrestamo ficha; // null hasta que alguien la pida
 
     /**
      * Constructor de Préstamo.
@@ -27,21 +45,73 @@ public class Prestamo {
      * @param diasPrestados Número de días del préstamo
      */
     public Prestamo(String isbn, String run, int diasPrestados) {
+        this(isbn, run, diasPrestados, Clock.systemDefaultZone()); // Fecha actual automática
+    }
+
+    /**
+     * Constructor de Préstamo con la fecha de préstamo tomada de un reloj.
+     *
+     * @param isbn ISBN del libro prestado
+     * @param run RUN del usuario que solicitó el préstamo
+     * @param diasPrestados Número de días del préstamo
+     * @param reloj Reloj que indica la fecha actual
+     */
+    public Prestamo(String isbn, String run, int diasPrestados, Clock reloj) {
+        this(isbn, run, diasPrestados, LocalDate.now(reloj));
+    }
+
+    /**
+     * Constructor de Préstamo con fecha de préstamo explícita.
+     * Se usa al reconstruir préstamos ya realizados (por ejemplo, desde la bitácora).
+     *
+     * @param isbn ISBN del libro prestado
+     * @param run RUN del usuario que solicitó el préstamo
+     * @param diasPrestados Número de días del préstamo
+     * @param fechaPrestamo Fecha en que se realizó el préstamo
+     */
+    public Prestamo(String isbn, String run, int diasPrestados, LocalDate fechaPrestamo) {
         if (isbn == null || isbn.trim().isEmpty()) {
             throw new IllegalArgumentException("El ISBN no puede estar vacío");
         }
+        long isbnClave = ValidadorISBN.parsearISBN(isbn.trim());
+        if (isbnClave == ValidadorISBN.ISBN_INVALIDO) {
+            throw new IllegalArgumentException("ISBN inválido");
+        }
         if (run == null || run.trim().isEmpty()) {
             throw new IllegalArgumentException("El RUN no puede estar vacío");
         }
+        int runParseado = ValidadorRUN.parsearRUN(run.trim());
+        if (runParseado < 0) {
+            throw new IllegalArgumentException("RUN inválido");
+        }
         if (diasPrestados <= 0) {
             throw new IllegalArgumentException("Los días de préstamo deben ser mayor a cero");
         }
+        if (fechaPrestamo == null) {
+            throw new IllegalArgumentException("La fecha de préstamo no puede estar vacía");
+        }
 
         this.isbn = isbn.trim();
+        this.isbnClave = isbnClave;
         this.run = run.trim();
+        this.runClave = ValidadorRUN.cuerpoRUN(runParseado);
         this.diasPrestados = diasPrestados;
-        this.fechaPrestamo = LocalDate.now(); // Fecha actual automática
+        this.fechaPrestamo = fechaPrestamo;
         this.fechaDevolucion = this.fechaPrestamo.plusDays(diasPrestados); // Calcular fecha de devolución
+        this.diaDevolucion = (int) this.fechaDevolucion.toEpochDay();
+        this.activo = true;
+    }
+
+    /**
+     * Cierra el préstamo cuando se devuelve el libro.
+     *
+     * @throws IllegalStateException si el préstamo ya estaba cerrado
+     */
+    public void cerrar() {
+        if (!activo) {
+            throw new IllegalStateException("El préstamo ya fue cerrado");
+        }
+        activo = false;
     }
 
     /**
@@ -71,20 +141,43 @@ public class Prestamo {
      * Calcula la multa por días de retraso.
      * Multa: $1.000 por cada día de retraso.
      *
+     * La fecha es obligatoria, para que la multa del día se calcule con el reloj del
+     * sistema de biblioteca y no con el del equipo.
+     *
      * @param fechaDevolucionReal Fecha en que se devuelve el libro
      * @return Monto de la multa (0 si está a tiempo o antes)
+     * @throws IllegalArgumentException si la fecha es nula
      */
     public int calcularMulta(LocalDate fechaDevolucionReal) {
         if (fechaDevolucionReal == null) {
-            fechaDevolucionReal = LocalDate.now();
+            throw new IllegalArgumentException("La fecha de devolución no puede ser nula");
         }
+        return calcularMulta(fechaDevolucionReal.toEpochDay());
+    }
 
-        // Calcular días de diferencia
-        long diasRetraso = ChronoUnit.DAYS.between(fechaDevolucion, fechaDevolucionReal);
+    /**
+     * Calcula la multa por días de retraso a partir de un día de época.
+     *
+     * @param diaDevolucionReal Día de época en que se devuelve el libro
+     * @return Monto de la multa (0 si está a tiempo o antes)
+     */
+    public int calcularMulta(long diaDevolucionReal) {
+        return multaPorRetraso(diaDevolucion, diaDevolucionReal);
+    }
+
+    /**
+     * Calcula la multa entre el día de devolución pactado y el real, ambos como días de época.
+     *
+     * @param diaPactado Día de época de la fecha de devolución
+     * @param diaReal Día de época de la devolución real
+     * @return Monto de la multa (0 si está a tiempo o antes)
+     */
+    public static int multaPorRetraso(long diaPactado, long diaReal) {
+        long diasRetraso = diaReal - diaPactado;
 
         // Si diasRetraso es positivo, hay retraso
         if (diasRetraso > 0) {
-            return (int) (diasRetraso * 1000); // $1.000 por día
+            return (int) Math.min(diasRetraso * MULTA_POR_DIA, Integer.MAX_VALUE);
         }
 
         return 0; // Sin multa si está a tiempo
@@ -100,6 +193,14 @@ public class Prestamo {
         return run;
     }
 
+    public long getIsbnClave() {
+        return isbnClave;
+    }
+
+    public int getRunClave() {
+        return runClave;
+    }
+
     public LocalDate getFechaPrestamo() {
         return fechaPrestamo;
     }
@@ -113,19 +214,42 @@ public class Prestamo {
     }
 
     /**
-     * Retorna información del préstamo.
+     * Retorna la fecha de devolución como día de época.
+     *
+     * @return Días desde el 1970-01-01 hasta la fecha de devolución
+     */
+    public int getDiaDevolucion() {
+        return diaDevolucion;
+    }
+
+    public boolean estaActivo() {
+        return activo;
+    }
+
+    /**
+     * Retorna una vista inmutable del préstamo, compartida entre todos los lectores.
+     *
+     * @return Ficha con los datos y el estado actual del préstamo
+     */
+    public FichaPrestamo getFicha() {
+        FichaPrestamo actual = ficha;
+        boolean activoActual = activo;
+        if (actual == null || actual.estaActivo() != activoActual) {
+            // Si dos hilos la crean a la vez, cualquiera sirve: el estado solo pasa de activo a cerrado
+            actual = new FichaPrestamo(isbn, isbnClave, run, runClave, fechaPrestamo, diasPrestados,
+                    fechaDevolucion, activoActual);
+            ficha = actual;
+        }
+        return actual;
+    }
+
+    /**
+     * Retorna información del préstamo, tomada de su ficha.
      *
      * @return String con datos del préstamo
      */
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        return "Prestamo{" +
-                "isbn='" + isbn + '\'' +
-                ", run='" + run + '\'' +
-                ", fechaPrestamo=" + fechaPrestamo.format(formatter) +
-                ", diasPrestados=" + diasPrestados +
-                ", fechaDevolucion=" + fechaDevolucion.format(formatter) +
-                '}';
+        return getFicha().toString();
     }
 }
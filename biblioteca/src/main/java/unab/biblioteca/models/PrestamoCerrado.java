@@ -0,0 +1,111 @@
+package unab.biblioteca.models;
+
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.time.LocalDate;
+
+/**
+ * Préstamo ya devuelto, tal como se guarda en el archivo histórico: claves numéricas
+ * del usuario y del libro, fechas como días de época y la multa cobrada. Es inmutable.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class PrestamoCerrado {
+
+    private final int runClave;
+    private final long isbnClave;
+    private final int diaPrestamo;
+    private final int diaDevolucionPactada;
+    private final int diaDevolucion;
+    private final int multa;
+
+    /**
+     * Constructor de PrestamoCerrado.
+     *
+     * @param runClave Cuerpo del RUN del usuario
+     * @param isbnClave ISBN-13 normalizado del libro
+     * @param diaPrestamo Día de época del préstamo
+     * @param diaDevolucionPactada Día de época en que debía devolverse
+     * @param diaDevolucion Día de época en que se devolvió
+     * @param multa Multa cobrada en la devolución
+     */
+    public PrestamoCerrado(int runClave, long isbnClave, int diaPrestamo, int diaDevolucionPactada,
+                           int diaDevolucion, int multa) {
+        this.runClave = runClave;
+        this.isbnClave = isbnClave;
+        this.diaPrestamo = diaPrestamo;
+        this.diaDevolucionPactada = diaDevolucionPactada;
+        this.diaDevolucion = diaDevolucion;
+        this.multa = multa;
+    }
+
+    /**
+     * Reconstruye el préstamo como un {@link Prestamo} cerrado. El ISBN y el RUN quedan
+     * en su formato normalizado, que puede diferir del que se ingresó al prestar.
+     *
+     * @return Prestamo cerrado equivalente
+     */
+    public Prestamo aPrestamo() {
+        Prestamo prestamo = new Prestamo(getIsbn(), getRun(), diaDevolucionPactada - diaPrestamo, getFechaPrestamo());
+        prestamo.cerrar();
+        return prestamo;
+    }
+
+    // Getters
+
+    public int getRunClave() {
+        return runClave;
+    }
+
+    public long getIsbnClave() {
+        return isbnClave;
+    }
+
+    public String getRun() {
+        return ValidadorRUN.formatearRUN(runClave);
+    }
+
+    public String getIsbn() {
+        return ValidadorISBN.formatearISBN(isbnClave);
+    }
+
+    public int getDiaPrestamo() {
+        return diaPrestamo;
+    }
+
+    public int getDiaDevolucionPactada() {
+        return diaDevolucionPactada;
+    }
+
+    public int getDiaDevolucion() {
+        return diaDevolucion;
+    }
+
+    public LocalDate getFechaPrestamo() {
+        return LocalDate.ofEpochDay(diaPrestamo);
+    }
+
+    public LocalDate getFechaDevolucionPactada() {
+        return LocalDate.ofEpochDay(diaDevolucionPactada);
+    }
+
+    public LocalDate getFechaDevolucion() {
+        return LocalDate.ofEpochDay(diaDevolucion);
+    }
+
+    public int getMulta() {
+        return multa;
+    }
+
+    @Override
+    public String toString() {
+        return "PrestamoCerrado{" +
+                "isbn='" + getIsbn() + '\'' +
+                ", run='" + getRun() + '\'' +
+                ", fechaPrestamo=" + getFechaPrestamo() +
+                ", fechaDevolucionPactada=" + getFechaDevolucionPactada() +
+                ", fechaDevolucion=" + getFechaDevolucion() +
+                ", multa=" + multa +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package unab.biblioteca.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datos de un usuario por registrar, tal como vienen de un archivo o formulario.
+ * No se validan al crear la solicitud sino al convertirla en {@link Usuario}, lo que
+ * permite validar muchas solicitudes en paralelo en un registro masivo.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class SolicitudUsuario {
+
+    private final String tipo;
+    private final String nombreCompleto;
+    private final String run;
+    private final String genero;
+    private final String detalle; // Profesión o carrera
+    private final List<String> grados;
+
+    /**
+     * Constructor de SolicitudUsuario.
+     *
+     * @param tipo "D" o "Docente", "E" o "Estudiante" (sin distinguir mayúsculas)
+     * @param nombreCompleto Nombre completo
+     * @param run RUN
+     * @param genero Género ("M" o "F")
+     * @param detalle Profesión (docentes) o carrera (estudiantes)
+     * @param grados Grados académicos del docente (puede ser null)
+     */
+    public SolicitudUsuario(String tipo, String nombreCompleto, String run, String genero, String detalle, List<String> grados) {
+        this.tipo = tipo;
+        this.nombreCompleto = nombreCompleto;
+        this.run = run;
+        this.genero = genero;
+        this.detalle = detalle;
+        this.grados = (grados != null) ? grados : List.of();
+    }
+
+    /**
+     * Valida los datos y crea el usuario correspondiente.
+     *
+     * @return Docente o Estudiante
+     * @throws IllegalArgumentException si alguna validación falla
+     */
+    public Usuario crearUsuario() {
+        if (genero == null || genero.trim().length() != 1) {
+            throw new IllegalArgumentException("Género debe ser 'M' o 'F'");
+        }
+        char generoUsuario = genero.trim().charAt(0);
+        String tipoUsuario = (tipo != null) ? tipo.trim() : "";
+
+        if (tipoUsuario.equalsIgnoreCase("D") || tipoUsuario.equalsIgnoreCase("Docente")) {
+            ArrayList<String> gradosDocente = new ArrayList<>();
+            for (String grado : grados) {
+                if (grado != null && !grado.isBlank()) {
+                    gradosDocente.add(grado.trim());
+                }
+            }
+            return new Docente(nombreCompleto, run, generoUsuario, detalle, gradosDocente);
+        }
+        if (tipoUsuario.equalsIgnoreCase("E") || tipoUsuario.equalsIgnoreCase("Estudiante")) {
+            return new Estudiante(nombreCompleto, run, generoUsuario, detalle);
+        }
+        throw new IllegalArgumentException("Tipo de usuario inválido: " + tipo);
+    }
+
+    // Getters
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getNombreCompleto() {
+        return nombreCompleto;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public String getGenero() {
+        return genero;
+    }
+
+    public String getDetalle() {
+        return detalle;
+    }
+
+    public List<String> getGrados() {
+        return grados;
+    }
+}
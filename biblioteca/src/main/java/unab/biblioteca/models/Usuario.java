@@ -1,19 +1,31 @@
 package unab.biblioteca.models;
 
 import unab.biblioteca.utils.ValidadorRUN;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Clase abstracta que representa un usuario del sistema de biblioteca.
  * Puede ser un Docente o un Estudiante.
  *
+ * Los hilos que solo leen (listados, reportes) deben usar {@link #getFicha()}, que
+ * entrega una vista inmutable y consistente del usuario sin bloquearlo. Cada setter
+ * publica una ficha nueva; el préstamo activo, que cambia en cada préstamo y devolución,
+ * no publica nada y se incorpora a la ficha la próxima vez que alguien la pide.
+ *
  * @author @author Alan, Francisco, Sandrino y Sebastián
  */
 public abstract class Usuario {
 
+    /** Valor de prestamo cuando el usuario no tiene préstamo activo. */
+    public static final long SIN_PRESTAMO = 0L;
+
     protected String nombreCompleto;
     protected String run; // Formato: XXXXXXXX-X
+    protected int runClave; // Cuerpo del RUN sin formato ni dígito verificador (identidad del usuario)
     protected char genero; // 'M' o 'F'
-    protected String prestamo; // "0" si no tiene préstamo, ISBN si tiene préstamo activo
+    protected volatile long prestamo; // 0 si no tiene préstamo, ISBN-13 normalizado si tiene préstamo activo
+
+    private final AtomicReference<FichaUsuario> ficha = new AtomicReference<>(); // null hasta que alguien la pida
 
     /**
      * Constructor de Usuario con validaciones.
@@ -29,13 +41,12 @@ public abstract class Usuario {
             throw new IllegalArgumentException("El nombre completo no puede estar vacío");
         }
 
-        // Validar formato de RUN
-        if (!ValidadorRUN.validarFormato(run)) {
+        // Validar formato y dígito verificador de RUN en una sola pasada
+        int runParseado = ValidadorRUN.parsearRUN(run);
+        if (runParseado == ValidadorRUN.FORMATO_INVALIDO) {
             throw new IllegalArgumentException("Formato de RUN inválido. Use formato: XXXXXXXX-X");
         }
-
-        // Validar dígito verificador de RUN
-        if (!ValidadorRUN.validarDigitoVerificador(run)) {
+        if (runParseado == ValidadorRUN.DIGITO_VERIFICADOR_INVALIDO) {
             throw new IllegalArgumentException("Dígito verificador de RUN inválido");
         }
 
@@ -46,8 +57,9 @@ public abstract class Usuario {
 
         this.nombreCompleto = nombreCompleto.trim();
         this.run = run;
+        this.runClave = ValidadorRUN.cuerpoRUN(runParseado);
         this.genero = genero;
-        this.prestamo = "0"; // Inicialmente sin préstamo
+        this.prestamo = SIN_PRESTAMO; // Inicialmente sin préstamo
     }
 
     /**
@@ -64,7 +76,44 @@ public abstract class Usuario {
      * @return true si tiene préstamo activo, false en caso contrario
      */
     public boolean tienePrestamo() {
-        return !prestamo.equals("0");
+        return prestamo != SIN_PRESTAMO;
+    }
+
+    /**
+     * Retorna una vista inmutable del usuario. La misma ficha se comparte entre todos
+     * los lectores hasta la próxima modificación, por lo que leerla no copia nada.
+     *
+     * @return Ficha con los datos actuales del usuario
+     */
+    public FichaUsuario getFicha() {
+        while (true) {
+            FichaUsuario actual = ficha.get();
+            long prestamoActual = prestamo;
+            if (actual != null && actual.getPrestamo() == prestamoActual) {
+                return actual;
+            }
+            // Si un setter publica entretanto, se reintenta con su ficha para no pisarla
+            FichaUsuario nueva = (actual == null) ? crearFicha() : actual.conPrestamo(prestamoActual);
+            if (ficha.compareAndSet(actual, nueva)) {
+                return nueva;
+            }
+        }
+    }
+
+    /**
+     * Crea una ficha con los datos actuales del usuario, incluidos los de su subclase.
+     *
+     * @return Ficha nueva
+     */
+    protected abstract FichaUsuario crearFicha();
+
+    /**
+     * Publica una ficha con los datos actuales. Deben llamarlo todos los setters; los
+     * setters de un mismo usuario no deben ejecutarse a la vez (el sistema los llama
+     * con el usuario bloqueado).
+     */
+    protected void publicar() {
+        ficha.set(crearFicha());
     }
 
     // Getters y Setters
@@ -78,6 +127,7 @@ public abstract class Usuario {
             throw new IllegalArgumentException("El nombre completo no puede estar vacío");
         }
         this.nombreCompleto = nombreCompleto.trim();
+        publicar();
     }
 
     public String getRun() {
@@ -85,13 +135,26 @@ public abstract class Usuario {
     }
 
     public void setRun(String run) {
-        if (!ValidadorRUN.validarFormato(run)) {
+        int runParseado = ValidadorRUN.parsearRUN(run);
+        if (runParseado == ValidadorRUN.FORMATO_INVALIDO) {
             throw new IllegalArgumentException("Formato de RUN inválido");
         }
-        if (!ValidadorRUN.validarDigitoVerificador(run)) {
+        if (runParseado == ValidadorRUN.DIGITO_VERIFICADOR_INVALIDO) {
             throw new IllegalArgumentException("Dígito verificador de RUN inválido");
         }
         this.run = run;
+        this.runClave = ValidadorRUN.cuerpoRUN(runParseado);
+        publicar();
+    }
+
+    /**
+     * Retorna el RUN canónico del usuario como entero (cuerpo sin dígito verificador).
+     * Distintos formatos del mismo RUN ("12.345.678-5", "12345678-5") tienen la misma clave.
+     *
+     * @return Clave primitiva del RUN
+     */
+    public int getRunClave() {
+        return runClave;
     }
 
     public char getGenero() {
@@ -103,28 +166,46 @@ public abstract class Usuario {
             throw new IllegalArgumentException("Género debe ser 'M' o 'F'");
         }
         this.genero = genero;
+        publicar();
     }
 
-    public String getPrestamo() {
+    public long getPrestamo() {
         return prestamo;
     }
 
-    public void setPrestamo(String prestamo) {
+    public void setPrestamo(long prestamo) {
         this.prestamo = prestamo;
     }
 
     /**
-     * Retorna información básica del usuario.
+     * Dos usuarios son iguales si tienen el mismo RUN, sin importar su formato.
+     *
+     * @param o Objeto a comparar
+     * @return true si representan el mismo RUN
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Usuario)) {
+            return false;
+        }
+        return runClave == ((Usuario) o).runClave;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(runClave);
+    }
+
+    /**
+     * Retorna información completa del usuario, tomada de su ficha.
      *
      * @return String con datos del usuario
      */
     @Override
     public String toString() {
-        return "Usuario{" +
-                "nombreCompleto='" + nombreCompleto + '\'' +
-                ", run='" + run + '\'' +
-                ", genero=" + genero +
-                ", prestamo='" + prestamo + '\'' +
-                '}';
+        return getFicha().toString();
     }
 }
@@ -0,0 +1,505 @@
+package unab.biblioteca.persistencia;
+
+import unab.biblioteca.models.PrestamoCerrado;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Archivo histórico de préstamos cerrados, guardado por columnas.
+ *
+ * Cada préstamo ocupa 28 bytes repartidos en columnas de tipos primitivos (RUN, ISBN,
+ * días de época del préstamo, de la devolución pactada y de la real, y multa), sin
+ * objetos por registro. Las columnas se agrupan en bloques de {@value #REGISTROS_POR_BLOQUE}
+ * registros, y cada bloque guarda el mínimo y el máximo de la fecha de devolución, del
+ * RUN y del ISBN, de modo que una búsqueda descarta sin leerlos los bloques que no
+ * pueden contener resultados. Diez años de historial de una biblioteca universitaria
+ * ocupan decenas de MB.
+ *
+ * Si se indica un directorio, cada bloque lleno se escribe en un archivo y se reemplaza
+ * por el archivo mapeado a memoria, de modo que el sistema operativo puede liberar sus
+ * páginas. Esos archivos son solo un desborde de la memoria: se borran al abrir y al
+ * cerrar el archivo histórico. La copia durable del historial está en la instantánea de
+ * la bitácora y en los segmentos posteriores a ella.
+ *
+ * Agregar registros es seguro desde varios hilos. Las búsquedas no bloquean y ven
+ * todos los registros agregados antes de comenzar.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ArchivoPrestamos implements Closeable {
+
+    /** Registros por bloque. */
+    public static final int REGISTROS_POR_BLOQUE = 1 << 16;
+
+    private static final int BYTES_POR_REGISTRO = 28;
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final String PREFIJO_BLOQUE = "archivo-";
+    private static final String EXTENSION_BLOQUE = ".col";
+
+    private final Path directorio; // null si todo queda en memoria
+
+    // El último bloque es el que recibe registros; los anteriores están llenos
+    private volatile Bloque[] bloques;
+    private int bloquesLlenos;
+    private volatile IOException errorDesborde; // Del último desborde fallido, o null
+
+    /**
+     * Crea un archivo histórico que se mantiene completo en memoria.
+     */
+    public ArchivoPrestamos() {
+        this.directorio = null;
+        this.bloques = new Bloque[] {new BloqueMemoria()};
+    }
+
+    /**
+     * Crea un archivo histórico que desborda los bloques llenos a archivos mapeados.
+     *
+     * @param directorio Directorio para los bloques; se crea si no existe
+     * @throws IOException si no se puede crear o limpiar el directorio
+     */
+    public ArchivoPrestamos(Path directorio) throws IOException {
+        if (directorio == null) {
+            throw new IllegalArgumentException("El directorio no puede ser nulo");
+        }
+        this.directorio = directorio;
+        this.bloques = new Bloque[] {new BloqueMemoria()};
+        Files.createDirectories(directorio);
+        borrarBloquesDesbordados();
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Agrega un préstamo cerrado al archivo.
+     *
+     * @param runClave Cuerpo del RUN del usuario
+     * @param isbnClave ISBN-13 normalizado del libro
+     * @param diaPrestamo Día de época del préstamo
+     * @param diaDevolucionPactada Día de época en que debía devolverse
+     * @param diaDevolucion Día de época en que se devolvió
+     * @param multa Multa cobrada
+     */
+    public void agregar(int runClave, long isbnClave, int diaPrestamo, int diaDevolucionPactada,
+                        int diaDevolucion, int multa) {
+        BloqueMemoria lleno = null;
+        int numero = 0;
+        synchronized (this) {
+            Bloque[] actuales = bloques;
+            BloqueMemoria actual = (BloqueMemoria) actuales[actuales.length - 1];
+            actual.agregar(runClave, isbnClave, diaPrestamo, diaDevolucionPactada, diaDevolucion, multa);
+
+            if (actual.cantidad() == REGISTROS_POR_BLOQUE) {
+                Bloque[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+                nuevos[actuales.length] = new BloqueMemoria();
+                bloques = nuevos;
+                lleno = actual;
+                numero = bloquesLlenos++;
+            }
+        }
+
+        // Desbordar fuera del bloqueo: las demás devoluciones siguen agregando al bloque nuevo
+        if (lleno != null && directorio != null) {
+            try {
+                reemplazar(lleno, desbordar(lleno, numero));
+            } catch (IOException e) {
+                // El bloque sigue en memoria y se puede leer; solo no se liberó su espacio
+                errorDesborde = e;
+            }
+        }
+    }
+
+    private BloqueMapeado desbordar(BloqueMemoria bloque, int numero) throws IOException {
+        int n = bloque.cantidad();
+        ByteBuffer datos = ByteBuffer.allocate(n * BYTES_POR_REGISTRO).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < n; i++) {
+            datos.putInt(bloque.runs[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            datos.putLong(bloque.isbns[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            datos.putInt(bloque.prestamos[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            datos.putInt(bloque.pactadas[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            datos.putInt(bloque.devoluciones[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            datos.putInt(bloque.multas[i]);
+        }
+        datos.flip();
+
+        Path archivo = directorio.resolve(String.format("%s%08d%s", PREFIJO_BLOQUE, numero, EXTENSION_BLOQUE));
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+            ByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()).order(ByteOrder.nativeOrder());
+            return new BloqueMapeado(mapa, n, bloque);
+        }
+    }
+
+    private synchronized void reemplazar(Bloque anterior, Bloque nuevo) {
+        Bloque[] nuevos = bloques.clone();
+        for (int i = 0; i < nuevos.length; i++) {
+            if (nuevos[i] == anterior) {
+                nuevos[i] = nuevo;
+                bloques = nuevos;
+                return;
+            }
+        }
+    }
+
+    // ==================== BÚSQUEDA ====================
+
+    /**
+     * Busca los préstamos devueltos entre dos fechas, ambas incluidas.
+     *
+     * @param desde Primera fecha de devolución
+     * @param hasta Última fecha de devolución
+     * @return Préstamos encontrados, en el orden en que se devolvieron
+     */
+    public ArrayList<PrestamoCerrado> buscarPorDevolucion(LocalDate desde, LocalDate hasta) {
+        int diaDesde = (int) desde.toEpochDay();
+        int diaHasta = (int) hasta.toEpochDay();
+        ArrayList<PrestamoCerrado> resultado = new ArrayList<>();
+        for (Bloque bloque : bloques) {
+            int n = bloque.cantidad();
+            if (n == 0 || bloque.maxDevolucion < diaDesde || bloque.minDevolucion > diaHasta) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                int dia = bloque.devolucion(i);
+                if (dia >= diaDesde && dia <= diaHasta) {
+                    resultado.add(bloque.leer(i));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los préstamos cerrados de un usuario.
+     *
+     * @param runClave Cuerpo del RUN del usuario
+     * @return Préstamos encontrados, en el orden en que se devolvieron
+     */
+    public ArrayList<PrestamoCerrado> buscarPorUsuario(int runClave) {
+        ArrayList<PrestamoCerrado> resultado = new ArrayList<>();
+        for (Bloque bloque : bloques) {
+            int n = bloque.cantidad();
+            if (n == 0 || runClave < bloque.minRun || runClave > bloque.maxRun) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                if (bloque.run(i) == runClave) {
+                    resultado.add(bloque.leer(i));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los préstamos cerrados de un libro.
+     *
+     * @param isbnClave ISBN-13 normalizado del libro
+     * @return Préstamos encontrados, en el orden en que se devolvieron
+     */
+    public ArrayList<PrestamoCerrado> buscarPorLibro(long isbnClave) {
+        ArrayList<PrestamoCerrado> resultado = new ArrayList<>();
+        for (Bloque bloque : bloques) {
+            int n = bloque.cantidad();
+            if (n == 0 || isbnClave < bloque.minIsbn || isbnClave > bloque.maxIsbn) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                if (bloque.isbn(i) == isbnClave) {
+                    resultado.add(bloque.leer(i));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Recorre todos los préstamos del archivo en el orden en que se devolvieron.
+     *
+     * @param accion Acción por aplicar a cada préstamo
+     */
+    public void recorrer(Consumer<PrestamoCerrado> accion) {
+        for (Bloque bloque : bloques) {
+            int n = bloque.cantidad();
+            for (int i = 0; i < n; i++) {
+                accion.accept(bloque.leer(i));
+            }
+        }
+    }
+
+    /**
+     * Lee préstamos consecutivos a partir de una posición, en el orden en que se
+     * devolvieron. Los bloques llenos tienen siempre {@value #REGISTROS_POR_BLOQUE}
+     * registros, por lo que la posición indica directamente el bloque y el registro.
+     *
+     * @param desde Posición del primer préstamo (0 para el más antiguo)
+     * @param maximo Cantidad máxima de préstamos
+     * @return Préstamos leídos (menos que maximo si se llegó al final)
+     */
+    public ArrayList<PrestamoCerrado> leer(long desde, int maximo) {
+        ArrayList<PrestamoCerrado> resultado = new ArrayList<>(Math.max(0, Math.min(maximo, 1024)));
+        Bloque[] actuales = bloques;
+        long posicion = Math.max(0, desde);
+        while (resultado.size() < maximo) {
+            long numeroBloque = posicion / REGISTROS_POR_BLOQUE;
+            if (numeroBloque >= actuales.length) {
+                break;
+            }
+            Bloque bloque = actuales[(int) numeroBloque];
+            int i = (int) (posicion % REGISTROS_POR_BLOQUE);
+            if (i >= bloque.cantidad()) {
+                break;
+            }
+            resultado.add(bloque.leer(i));
+            posicion++;
+        }
+        return resultado;
+    }
+
+    /**
+     * Retorna la cantidad de préstamos archivados.
+     *
+     * @return Cantidad de registros
+     */
+    public long cantidad() {
+        long total = 0;
+        for (Bloque bloque : bloques) {
+            total += bloque.cantidad();
+        }
+        return total;
+    }
+
+    /**
+     * Retorna el error del último desborde de un bloque a disco que falló. Un bloque que
+     * no se pudo desbordar queda en memoria, sin perder registros.
+     *
+     * @return Excepción del último desborde fallido, o null si no ha fallado ninguno
+     */
+    public IOException getErrorDesborde() {
+        return errorDesborde;
+    }
+
+    /**
+     * Borra los archivos de bloques desbordados. Los bloques ya mapeados siguen legibles
+     * mientras exista el archivo histórico.
+     *
+     * @throws IOException si no se pueden borrar, o el error del último desborde fallido
+     */
+    @Override
+    public void close() throws IOException {
+        if (directorio != null) {
+            borrarBloquesDesbordados();
+        }
+        if (errorDesborde != null) {
+            throw errorDesborde;
+        }
+    }
+
+    private void borrarBloquesDesbordados() throws IOException {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio,
+                PREFIJO_BLOQUE + "*" + EXTENSION_BLOQUE)) {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    // ==================== BLOQUES ====================
+
+    /**
+     * Bloque de registros por columnas, con el rango de valores de las columnas de búsqueda.
+     * El rango se actualiza antes de publicar la cantidad, por lo que quien lee la cantidad
+     * ve un rango que cubre al menos esos registros.
+     */
+    private abstract static class Bloque {
+        int minDevolucion = Integer.MAX_VALUE;
+        int maxDevolucion = Integer.MIN_VALUE;
+        int minRun = Integer.MAX_VALUE;
+        int maxRun = Integer.MIN_VALUE;
+        long minIsbn = Long.MAX_VALUE;
+        long maxIsbn = Long.MIN_VALUE;
+
+        abstract int cantidad();
+
+        abstract int run(int i);
+
+        abstract long isbn(int i);
+
+        abstract int prestamo(int i);
+
+        abstract int pactada(int i);
+
+        abstract int devolucion(int i);
+
+        abstract int multa(int i);
+
+        PrestamoCerrado leer(int i) {
+            return new PrestamoCerrado(run(i), isbn(i), prestamo(i), pactada(i), devolucion(i), multa(i));
+        }
+    }
+
+    /**
+     * Bloque en arreglos de memoria que crecen al doble hasta REGISTROS_POR_BLOQUE.
+     * Solo un hilo escribe a la vez (bajo el bloqueo del archivo); al crecer, los
+     * lectores pueden seguir usando los arreglos anteriores para los registros que ya vieron.
+     */
+    private static final class BloqueMemoria extends Bloque {
+        int[] runs = new int[CAPACIDAD_INICIAL];
+        long[] isbns = new long[CAPACIDAD_INICIAL];
+        int[] prestamos = new int[CAPACIDAD_INICIAL];
+        int[] pactadas = new int[CAPACIDAD_INICIAL];
+        int[] devoluciones = new int[CAPACIDAD_INICIAL];
+        int[] multas = new int[CAPACIDAD_INICIAL];
+        private volatile int cantidad;
+
+        void agregar(int run, long isbn, int prestamo, int pactada, int devolucion, int multa) {
+            int i = cantidad;
+            if (i == runs.length) {
+                int capacidad = Math.min(runs.length * 2, REGISTROS_POR_BLOQUE);
+                runs = Arrays.copyOf(runs, capacidad);
+                isbns = Arrays.copyOf(isbns, capacidad);
+                prestamos = Arrays.copyOf(prestamos, capacidad);
+                pactadas = Arrays.copyOf(pactadas, capacidad);
+                devoluciones = Arrays.copyOf(devoluciones, capacidad);
+                multas = Arrays.copyOf(multas, capacidad);
+            }
+            runs[i] = run;
+            isbns[i] = isbn;
+            prestamos[i] = prestamo;
+            pactadas[i] = pactada;
+            devoluciones[i] = devolucion;
+            multas[i] = multa;
+
+            minDevolucion = Math.min(minDevolucion, devolucion);
+            maxDevolucion = Math.max(maxDevolucion, devolucion);
+            minRun = Math.min(minRun, run);
+            maxRun = Math.max(maxRun, run);
+            minIsbn = Math.min(minIsbn, isbn);
+            maxIsbn = Math.max(maxIsbn, isbn);
+
+            cantidad = i + 1; // Publica el registro y el rango
+        }
+
+        @Override
+        int cantidad() {
+            return cantidad;
+        }
+
+        @Override
+        int run(int i) {
+            return runs[i];
+        }
+
+        @Override
+        long isbn(int i) {
+            return isbns[i];
+        }
+
+        @Override
+        int prestamo(int i) {
+            return prestamos[i];
+        }
+
+        @Override
+        int pactada(int i) {
+            return pactadas[i];
+        }
+
+        @Override
+        int devolucion(int i) {
+            return devoluciones[i];
+        }
+
+        @Override
+        int multa(int i) {
+            return multas[i];
+        }
+    }
+
+    /**
+     * Bloque lleno leído desde un archivo mapeado, con las columnas una tras otra.
+     */
+    private static final class BloqueMapeado extends Bloque {
+        private final ByteBuffer mapa;
+        private final int cantidad;
+        private final int inicioIsbns;
+        private final int inicioPrestamos;
+        private final int inicioPactadas;
+        private final int inicioDevoluciones;
+        private final int inicioMultas;
+
+        BloqueMapeado(ByteBuffer mapa, int cantidad, Bloque original) {
+            this.mapa = mapa;
+            this.cantidad = cantidad;
+            this.inicioIsbns = cantidad * 4;
+            this.inicioPrestamos = cantidad * 12;
+            this.inicioPactadas = cantidad * 16;
+            this.inicioDevoluciones = cantidad * 20;
+            this.inicioMultas = cantidad * 24;
+            this.minDevolucion = original.minDevolucion;
+            this.maxDevolucion = original.maxDevolucion;
+            this.minRun = original.minRun;
+            this.maxRun = original.maxRun;
+            this.minIsbn = original.minIsbn;
+            this.maxIsbn = original.maxIsbn;
+        }
+
+        @Override
+        int cantidad() {
+            return cantidad;
+        }
+
+        @Override
+        int run(int i) {
+            return mapa.getInt(i * 4);
+        }
+
+        @Override
+        long isbn(int i) {
+            return mapa.getLong(inicioIsbns + i * 8);
+        }
+
+        @Override
+        int prestamo(int i) {
+            return mapa.getInt(inicioPrestamos + i * 4);
+        }
+
+        @Override
+        int pactada(int i) {
+            return mapa.getInt(inicioPactadas + i * 4);
+        }
+
+        @Override
+        int devolucion(int i) {
+            return mapa.getInt(inicioDevoluciones + i * 4);
+        }
+
+        @Override
+        int multa(int i) {
+            return mapa.getInt(inicioMultas + i * 4);
+        }
+    }
+}
@@ -0,0 +1,859 @@
+package unab.biblioteca.persistencia;
+
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import unab.biblioteca.models.Libro;
+import unab.biblioteca.models.Prestamo;
+import unab.biblioteca.models.Usuario;
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Bitácora de escritura anticipada (write-ahead log) del sistema de biblioteca.
+ * Registra cada operación que modifica el estado en un archivo binario de solo
+ * agregado, de modo que al reiniciar se pueda reconstruir el estado exacto.
+ *
+ * Formato de cada registro:
+ * [int largo][byte tipo][datos...][int CRC32C de tipo y datos]
+ * Usuarios y libros se identifican por sus claves primitivas (cuerpo del RUN e
+ * ISBN-13 como long) y las fechas como días desde la época.
+ *
+ * Escritura con confirmación en grupo (group commit): los registros se agregan a un
+ * buffer en memoria y un hilo de fondo los escribe y sincroniza (fsync) en lotes,
+ * cuando se acumulan loteMaximo registros o pasan esperaMaximaMicros. En modo
+ * síncrono cada operación espera a que su lote esté en disco; en modo asíncrono
+ * retorna de inmediato y la ventana de pérdida ante un corte es de un lote.
+ *
+ * La bitácora vive en un directorio y se divide en segmentos (segmento-NNNNNNNN.log).
+ * Al compactar se cierra el segmento actual, se reconstruye en segundo plano el estado
+ * hasta ese punto a partir de la última instantánea y los segmentos cerrados, se guarda
+ * una nueva instantánea (instantanea-NNNNNNNN.snap) y se borran los segmentos que ya
+ * quedaron incluidos en ella. La circulación no se detiene: solo espera el cambio de
+ * segmento, que ocurre en el hilo de escritura. Al iniciar se carga la instantánea más
+ * reciente y se reproducen solo los segmentos posteriores.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class Bitacora implements Closeable {
+
+    // Tipos de registro
+    static final byte CREAR_USUARIO = 1;
+    static final byte EDITAR_USUARIO = 2;
+    static final byte ELIMINAR_USUARIO = 3;
+    static final byte CREAR_LIBRO = 4;
+    static final byte ELIMINAR_LIBRO = 5;
+    static final byte PRESTAMO = 6;
+    static final byte DEVOLUCION = 7;
+
+    private static final int CAPACIDAD_BUFFER = 1 << 20; // 1 MB por buffer
+    private static final int LARGO_MAXIMO_REGISTRO = CAPACIDAD_BUFFER - 8;
+
+    private static final String PREFIJO_SEGMENTO = "segmento-";
+    private static final String EXTENSION_SEGMENTO = ".log";
+    private static final String PREFIJO_INSTANTANEA = "instantanea-";
+    private static final String EXTENSION_INSTANTANEA = ".snap";
+
+    private final Path directorio;
+    private final int segmentoInicial; // Primer segmento escrito por esta instancia
+    private FileChannel canal; // Solo lo usa el hilo de escritura
+    private final int loteMaximo;
+    private final long esperaMaximaNanos;
+    private final boolean sincrono;
+
+    // Doble buffer: los escritores llenan "activo" mientras el hilo de fondo escribe "enEscritura"
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayTrabajo = lock.newCondition();
+    private final Condition loteEscrito = lock.newCondition();
+    private ByteBuffer activo = ByteBuffer.allocate(CAPACIDAD_BUFFER);
+    private ByteBuffer enEscritura = ByteBuffer.allocate(CAPACIDAD_BUFFER);
+    private final CRC32C crc = new CRC32C();
+    private long secuenciaAgregada; // Registros agregados al buffer
+    private long secuenciaDurable; // Registros escritos y sincronizados en disco
+    private boolean cerrando;
+    private IOException errorEscritura;
+    private int segmentoActual;
+    private boolean rotacionPendiente;
+
+    private final ThreadLocal<long[]> loteEnCurso = new ThreadLocal<>(); // Ver enLote
+
+    private final Thread hiloEscritura;
+    private final Object compactacion = new Object();
+    private ScheduledExecutorService compactacionPeriodica;
+    private volatile Exception errorCompactacion; // De la última compactación periódica, o null
+
+    /**
+     * Abre (o crea) una bitácora con confirmación en grupo asíncrona:
+     * lotes de hasta 256 registros o 1 ms.
+     *
+     * @param directorio Directorio de la bitácora
+     * @throws IOException si no se puede abrir el directorio
+     */
+    public Bitacora(Path directorio) throws IOException {
+        this(directorio, 256, 1000, false);
+    }
+
+    /**
+     * Abre (o crea) una bitácora. Los segmentos existentes no se modifican; los registros
+     * nuevos se escriben en un segmento nuevo.
+     *
+     * @param directorio Directorio de la bitácora
+     * @param loteMaximo Registros que gatillan una escritura sin esperar el plazo
+     * @param esperaMaximaMicros Tiempo máximo que un registro espera antes de sincronizarse
+     * @param sincrono true para que cada operación espere a que su registro esté en disco
+     * @throws IOException si no se puede abrir el directorio
+     */
+    public Bitacora(Path directorio, int loteMaximo, long esperaMaximaMicros, boolean sincrono) throws IOException {
+        if (loteMaximo <= 0) {
+            throw new IllegalArgumentException("El lote máximo debe ser mayor a cero");
+        }
+        if (esperaMaximaMicros < 0) {
+            throw new IllegalArgumentException("La espera máxima no puede ser negativa");
+        }
+
+        Files.createDirectories(directorio);
+        this.directorio = directorio;
+
+        // Descartar instantáneas a medio escribir
+        try (DirectoryStream<Path> temporales = Files.newDirectoryStream(directorio, PREFIJO_INSTANTANEA + "*.tmp")) {
+            for (Path temporal : temporales) {
+                Files.delete(temporal);
+            }
+        }
+
+        int[] segmentos = listar(PREFIJO_SEGMENTO, EXTENSION_SEGMENTO);
+        int[] instantaneas = listar(PREFIJO_INSTANTANEA, EXTENSION_INSTANTANEA);
+        int ultimo = 0;
+        if (segmentos.length > 0) {
+            ultimo = segmentos[segmentos.length - 1];
+        }
+        if (instantaneas.length > 0) {
+            ultimo = Math.max(ultimo, instantaneas[instantaneas.length - 1]);
+        }
+        this.segmentoInicial = ultimo + 1;
+        this.segmentoActual = segmentoInicial;
+        this.canal = abrirSegmento(segmentoInicial);
+
+        this.loteMaximo = loteMaximo;
+        this.esperaMaximaNanos = TimeUnit.MICROSECONDS.toNanos(esperaMaximaMicros);
+        this.sincrono = sincrono;
+
+        this.hiloEscritura = new Thread(this::escribirLotes, "bitacora-escritura");
+        this.hiloEscritura.setDaemon(true);
+        this.hiloEscritura.start();
+    }
+
+    // ==================== REGISTRO DE OPERACIONES ====================
+
+    /**
+     * Registra la creación de un usuario. En modo sincrónico espera a que el registro esté
+     * en disco, salvo dentro de un lote ({@link #enLote(Runnable)}).
+     *
+     * @param usuario Usuario creado
+     */
+    public void registrarCrearUsuario(Usuario usuario) {
+        Codificador.DatosUsuario datos = new Codificador.DatosUsuario(usuario);
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(CREAR_USUARIO, datos.largo(), null);
+            datos.escribir(activo);
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+    }
+
+    /**
+     * Registra la edición de un usuario. En modo sincrónico espera a que el registro esté
+     * en disco, salvo dentro de un lote.
+     *
+     * @param runClaveActual Cuerpo del RUN del usuario antes de editar
+     * @param datosNuevos Usuario con los datos nuevos (puede tener otro RUN)
+     */
+    public void registrarEditarUsuario(int runClaveActual, Usuario datosNuevos) {
+        Codificador.DatosUsuario datos = new Codificador.DatosUsuario(datosNuevos);
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(EDITAR_USUARIO, 4 + datos.largo(), null);
+            activo.putInt(runClaveActual);
+            datos.escribir(activo);
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+    }
+
+    /**
+     * Registra la eliminación de un usuario. En modo sincrónico espera a que el registro
+     * esté en disco, salvo dentro de un lote.
+     *
+     * @param runClave Cuerpo del RUN del usuario eliminado
+     */
+    public void registrarEliminarUsuario(int runClave) {
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(ELIMINAR_USUARIO, 4, null);
+            activo.putInt(runClave);
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+    }
+
+    /**
+     * Ejecuta la creación del libro y la registra en un solo paso.
+     *
+     * @param libro Libro creado
+     * @param cambio Inserción en el sistema; si retorna false no se registra nada
+     * @return Resultado del cambio
+     */
+    public boolean registrarCrearLibro(Libro libro, BooleanSupplier cambio) {
+        byte[] isbn = Codificador.bytes(libro.getIsbn());
+        byte[] titulo = Codificador.bytes(libro.getTitulo());
+        byte[] autor = Codificador.bytes(libro.getAutor());
+        byte[] imagen = Codificador.bytes(libro.getImagen());
+        int largo = 2 + isbn.length + 2 + titulo.length + 2 + autor.length + 4 + 4 + 2 + imagen.length;
+
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(CREAR_LIBRO, largo, cambio);
+            if (inicio < 0) {
+                return false;
+            }
+            Codificador.putTexto(activo, isbn);
+            Codificador.putTexto(activo, titulo);
+            Codificador.putTexto(activo, autor);
+            activo.putInt(libro.getCantidadBiblioteca());
+            activo.putInt(libro.getCantidadDisponible());
+            Codificador.putTexto(activo, imagen);
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+        return true;
+    }
+
+    /**
+     * Ejecuta la eliminación del libro y la registra en un solo paso.
+     *
+     * @param isbnClave ISBN-13 del libro
+     * @param cambio Eliminación en el sistema; si retorna false no se registra nada
+     * @return Resultado del cambio
+     */
+    public boolean registrarEliminarLibro(long isbnClave, BooleanSupplier cambio) {
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(ELIMINAR_LIBRO, 8, cambio);
+            if (inicio < 0) {
+                return false;
+            }
+            activo.putLong(isbnClave);
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+        return true;
+    }
+
+    /**
+     * Ejecuta el descuento del ejemplar y registra el préstamo en un solo paso.
+     *
+     * @param prestamo Préstamo realizado
+     * @param cambio Descuento del ejemplar; si retorna false o lanza una excepción no se registra nada
+     * @return Resultado del cambio
+     */
+    public boolean registrarPrestamo(Prestamo prestamo, BooleanSupplier cambio) {
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(PRESTAMO, 8 + 4 + 4 + 4, cambio);
+            if (inicio < 0) {
+                return false;
+            }
+            activo.putLong(prestamo.getIsbnClave());
+            activo.putInt(prestamo.getRunClave());
+            activo.putInt(prestamo.getDiasPrestados());
+            activo.putInt((int) prestamo.getFechaPrestamo().toEpochDay());
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+        return true;
+    }
+
+    /**
+     * Ejecuta la reposición del ejemplar y registra la devolución en un solo paso.
+     *
+     * @param isbnClave ISBN-13 del libro
+     * @param runClave Cuerpo del RUN del usuario
+     * @param fechaDevolucion Fecha de la devolución
+     * @param cambio Reposición del ejemplar y cierre del préstamo; si retorna false o lanza una
+     *               excepción no se registra nada
+     * @return Resultado del cambio
+     */
+    public boolean registrarDevolucion(long isbnClave, int runClave, LocalDate fechaDevolucion, BooleanSupplier cambio) {
+        long secuencia;
+        lock.lock();
+        try {
+            int inicio = iniciarRegistro(DEVOLUCION, 8 + 4 + 4, cambio);
+            if (inicio < 0) {
+                return false;
+            }
+            activo.putLong(isbnClave);
+            activo.putInt(runClave);
+            activo.putInt((int) fechaDevolucion.toEpochDay());
+            secuencia = terminarRegistro(inicio);
+        } finally {
+            lock.unlock();
+        }
+        esperarSiSincrono(secuencia);
+        return true;
+    }
+
+    /**
+     * Reserva espacio en el buffer activo, ejecuta el cambio de estado (si hay) y escribe
+     * la cabecera del registro. El cambio se ejecuta después de reservar espacio para que
+     * nada libere el lock entre el cambio y el registro.
+     *
+     * Las operaciones sobre libros pasan así su cambio de estado. Los préstamos y
+     * devoluciones de un mismo libro no comparten otro bloqueo, de modo que si el cambio
+     * ocurriera fuera del lock dos mesones podrían registrar en distinto orden del que
+     * ocurrió (una devolución después del préstamo que usó ese ejemplar) y la reproducción
+     * fallaría por falta de ejemplares.
+     * Debe llamarse con el lock tomado.
+     *
+     * @param cambio Cambio de estado a registrar, o null
+     * @return Posición de inicio del registro en el buffer, o -1 si el cambio retornó false
+     */
+    private int iniciarRegistro(byte tipo, int largoDatos, BooleanSupplier cambio) {
+        int largo = 1 + largoDatos;
+        if (largo > LARGO_MAXIMO_REGISTRO) {
+            throw new IllegalArgumentException("Registro de bitácora demasiado grande: " + largo + " bytes");
+        }
+
+        // Esperar a que el hilo de fondo libere el buffer si no hay espacio
+        while (activo.remaining() < 4 + largo + 4) {
+            verificarEstado();
+            hayTrabajo.signal();
+            loteEscrito.awaitUninterruptibly();
+        }
+        verificarEstado();
+
+        if (cambio != null && !cambio.getAsBoolean()) {
+            return -1;
+        }
+
+        int inicio = activo.position();
+        activo.putInt(largo);
+        activo.put(tipo);
+        return inicio;
+    }
+
+    /**
+     * Agrega el CRC al registro y avisa al hilo de fondo si el lote está completo.
+     * Debe llamarse con el lock tomado.
+     *
+     * @return Número de secuencia del registro
+     */
+    private long terminarRegistro(int inicio) {
+        crc.reset();
+        crc.update(activo.array(), inicio + 4, activo.position() - inicio - 4);
+        activo.putInt((int) crc.getValue());
+
+        secuenciaAgregada++;
+        if (secuenciaAgregada - secuenciaDurable == 1 || secuenciaAgregada - secuenciaDurable >= loteMaximo) {
+            hayTrabajo.signal();
+        }
+        return secuenciaAgregada;
+    }
+
+    private void esperarSiSincrono(long secuencia) {
+        if (sincrono) {
+            long[] lote = loteEnCurso.get();
+            if (lote != null) {
+                lote[0] = secuencia; // Se espera al terminar el lote
+            } else {
+                sincronizar(secuencia);
+            }
+        }
+    }
+
+    /**
+     * Ejecuta un lote de operaciones que se registran en la bitácora, esperando una sola
+     * vez, al final, a que todos sus registros queden en disco (en modo sincrónico), en vez
+     * de esperar tras cada uno. Los registros del lote se escriben juntos en el mismo
+     * lote del hilo de fondo siempre que quepan en el buffer.
+     * Un lote dentro de otro lote del mismo hilo se ejecuta como parte del exterior.
+     *
+     * @param operaciones Operaciones del lote
+     */
+    public void enLote(Runnable operaciones) {
+        if (loteEnCurso.get() != null) {
+            operaciones.run();
+            return;
+        }
+        long[] lote = new long[1]; // Secuencia del último registro del lote
+        loteEnCurso.set(lote);
+        try {
+            operaciones.run();
+        } finally {
+            loteEnCurso.remove();
+            if (lote[0] > 0) {
+                sincronizar(lote[0]);
+            }
+        }
+    }
+
+    /**
+     * Espera a que todos los registros agregados hasta ahora estén en disco.
+     */
+    public void sincronizar() {
+        lock.lock();
+        try {
+            sincronizar(secuenciaAgregada);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sincronizar(long secuencia) {
+        lock.lock();
+        try {
+            while (secuenciaDurable < secuencia) {
+                verificarEstado();
+                hayTrabajo.signal();
+                loteEscrito.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void verificarEstado() {
+        if (errorEscritura != null) {
+            throw new UncheckedIOException("La bitácora no está disponible", errorEscritura);
+        }
+        if (cerrando && Thread.currentThread() != hiloEscritura) {
+            throw new IllegalStateException("La bitácora está cerrada");
+        }
+    }
+
+    /**
+     * Cierra el segmento actual y continúa en uno nuevo. Los registros agregados antes de
+     * la llamada quedan en el segmento cerrado y los siguientes en el nuevo. Quien llama
+     * espera a que el segmento cerrado esté en disco; las demás operaciones no se detienen.
+     *
+     * @return Número del segmento cerrado
+     */
+    int rotar() {
+        lock.lock();
+        try {
+            verificarEstado();
+            int segmento = segmentoActual;
+            rotacionPendiente = true;
+            hayTrabajo.signal();
+            while (segmentoActual == segmento) {
+                verificarEstado();
+                loteEscrito.awaitUninterruptibly();
+            }
+            return segmento;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ciclo del hilo de fondo: intercambia los buffers, escribe el lote y sincroniza.
+     * Si hay un cambio de segmento pendiente, lo hace después de sincronizar el lote.
+     */
+    private void escribirLotes() {
+        while (true) {
+            long secuenciaLote;
+            boolean rotar;
+            lock.lock();
+            try {
+                // Esperar al primer registro pendiente
+                while (activo.position() == 0 && !cerrando && !rotacionPendiente) {
+                    hayTrabajo.awaitUninterruptibly();
+                }
+                if (activo.position() == 0 && !rotacionPendiente) {
+                    return; // Cerrando y sin pendientes
+                }
+
+                // Dar tiempo a que el lote se llene, salvo que ya esté completo o haya que cerrar
+                long restante = esperaMaximaNanos;
+                while (!cerrando && !rotacionPendiente && restante > 0
+                        && secuenciaAgregada - secuenciaDurable < loteMaximo
+                        && activo.remaining() >= LARGO_MAXIMO_REGISTRO / 2) {
+                    try {
+                        restante = hayTrabajo.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                ByteBuffer lleno = activo;
+                activo = enEscritura;
+                enEscritura = lleno;
+                secuenciaLote = secuenciaAgregada;
+                rotar = rotacionPendiente;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                enEscritura.flip();
+                while (enEscritura.hasRemaining()) {
+                    canal.write(enEscritura);
+                }
+                canal.force(false);
+                if (rotar) {
+                    FileChannel siguiente = abrirSegmento(segmentoActual + 1);
+                    canal.close();
+                    canal = siguiente;
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            enEscritura.clear();
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    errorEscritura = error;
+                } else {
+                    secuenciaDurable = secuenciaLote;
+                    if (rotar) {
+                        segmentoActual++;
+                        rotacionPendiente = false;
+                    }
+                }
+                loteEscrito.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Detiene la compactación periódica, escribe los registros pendientes, detiene el
+     * hilo de fondo y cierra el segmento actual.
+     *
+     * @throws IOException si falla la escritura final
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (compactacion) {
+            if (compactacionPeriodica != null) {
+                compactacionPeriodica.shutdownNow();
+            }
+        }
+
+        lock.lock();
+        try {
+            if (cerrando) {
+                return;
+            }
+            cerrando = true;
+            hayTrabajo.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            hiloEscritura.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+
+        if (errorEscritura != null) {
+            throw errorEscritura;
+        }
+    }
+
+    // ==================== RECUPERACIÓN ====================
+
+    /**
+     * Reconstruye el estado sobre un sistema vacío: carga la instantánea más reciente y
+     * reproduce los segmentos posteriores a ella.
+     * Debe llamarse antes de asociar la bitácora al sistema, para no volver a registrar
+     * las operaciones reproducidas. Si el último registro de un segmento quedó incompleto
+     * o corrupto (por un corte durante la escritura), se descarta y el segmento se trunca ahí.
+     *
+     * @param sistema Sistema sobre el cual aplicar las operaciones
+     * @return Cantidad de registros reproducidos después de la instantánea
+     * @throws IOException si no se puede leer la instantánea o algún segmento
+     */
+    public int reproducir(SistemaBiblioteca sistema) throws IOException {
+        return reconstruir(sistema, segmentoInicial - 1);
+    }
+
+    /**
+     * Carga la instantánea más reciente que no supere hastaSegmento y reproduce los
+     * segmentos siguientes hasta hastaSegmento inclusive.
+     */
+    private int reconstruir(SistemaBiblioteca sistema, int hastaSegmento) throws IOException {
+        int base = 0;
+        int[] instantaneas = listar(PREFIJO_INSTANTANEA, EXTENSION_INSTANTANEA);
+        for (int i = instantaneas.length - 1; i >= 0; i--) {
+            if (instantaneas[i] <= hastaSegmento) {
+                base = Instantanea.cargar(rutaInstantanea(instantaneas[i]), sistema);
+                break;
+            }
+        }
+
+        int registros = 0;
+        for (int segmento : listar(PREFIJO_SEGMENTO, EXTENSION_SEGMENTO)) {
+            if (segmento > base && segmento <= hastaSegmento) {
+                registros += reproducirSegmento(rutaSegmento(segmento), sistema);
+            }
+        }
+        return registros;
+    }
+
+    private static int reproducirSegmento(Path segmento, SistemaBiblioteca sistema) throws IOException {
+        long posicionValida = 0;
+        int registros = 0;
+        CRC32C crcLectura = new CRC32C();
+
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmento), 1 << 16))) {
+            while (true) {
+                int largo;
+                try {
+                    largo = entrada.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (largo <= 0 || largo > LARGO_MAXIMO_REGISTRO) {
+                    break;
+                }
+
+                byte[] datos = new byte[largo];
+                int crcLeido;
+                try {
+                    entrada.readFully(datos);
+                    crcLeido = entrada.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                crcLectura.reset();
+                crcLectura.update(datos, 0, largo);
+                if ((int) crcLectura.getValue() != crcLeido) {
+                    break;
+                }
+
+                aplicar(sistema, ByteBuffer.wrap(datos));
+                posicionValida += 4 + largo + 4;
+                registros++;
+            }
+        }
+
+        // Descartar una cola incompleta
+        if (Files.size(segmento) > posicionValida) {
+            try (FileChannel truncado = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+                truncado.truncate(posicionValida);
+            }
+        }
+
+        return registros;
+    }
+
+    private static void aplicar(SistemaBiblioteca sistema, ByteBuffer datos) {
+        byte tipo = datos.get();
+        switch (tipo) {
+            case CREAR_USUARIO:
+                sistema.crearUsuario(Codificador.leerUsuario(datos));
+                break;
+            case EDITAR_USUARIO: {
+                int runClave = datos.getInt();
+                sistema.editarUsuario(ValidadorRUN.formatearRUN(runClave), Codificador.leerUsuario(datos));
+                break;
+            }
+            case ELIMINAR_USUARIO:
+                sistema.eliminarUsuario(ValidadorRUN.formatearRUN(datos.getInt()));
+                break;
+            case CREAR_LIBRO: {
+                String isbn = Codificador.getTexto(datos);
+                String titulo = Codificador.getTexto(datos);
+                String autor = Codificador.getTexto(datos);
+                int cantidadBiblioteca = datos.getInt();
+                int cantidadDisponible = datos.getInt();
+                String imagen = Codificador.getTexto(datos);
+                sistema.crearLibro(new Libro(isbn, titulo, autor, cantidadBiblioteca, cantidadDisponible, imagen));
+                break;
+            }
+            case ELIMINAR_LIBRO:
+                sistema.eliminarLibro(ValidadorISBN.formatearISBN(datos.getLong()));
+                break;
+            case PRESTAMO: {
+                String isbn = ValidadorISBN.formatearISBN(datos.getLong());
+                String run = ValidadorRUN.formatearRUN(datos.getInt());
+                int dias = datos.getInt();
+                LocalDate fecha = LocalDate.ofEpochDay(datos.getInt());
+                sistema.realizarPrestamo(isbn, run, dias, fecha);
+                break;
+            }
+            case DEVOLUCION: {
+                String isbn = ValidadorISBN.formatearISBN(datos.getLong());
+                String run = ValidadorRUN.formatearRUN(datos.getInt());
+                LocalDate fecha = LocalDate.ofEpochDay(datos.getInt());
+                sistema.realizarDevolucion(isbn, run, fecha);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Tipo de registro de bitácora desconocido: " + tipo);
+        }
+    }
+
+    // ==================== COMPACTACIÓN ====================
+
+    /**
+     * Guarda una instantánea del estado actual y borra los segmentos que quedan incluidos
+     * en ella. El estado se reconstruye en un sistema aparte a partir de la instantánea
+     * anterior y los segmentos cerrados, por lo que no se bloquea el sistema en uso.
+     *
+     * @return Último segmento incluido en la nueva instantánea
+     * @throws IOException si falla la lectura de los segmentos o la escritura de la instantánea
+     */
+    public int compactar() throws IOException {
+        synchronized (compactacion) {
+            int cerrado = rotar();
+
+            SistemaBiblioteca estado = new SistemaBiblioteca();
+            reconstruir(estado, cerrado);
+            Instantanea.escribir(estado, rutaInstantanea(cerrado), cerrado);
+
+            // La instantánea ya está en disco: lo anterior a ella sobra
+            for (int segmento : listar(PREFIJO_SEGMENTO, EXTENSION_SEGMENTO)) {
+                if (segmento <= cerrado) {
+                    Files.deleteIfExists(rutaSegmento(segmento));
+                }
+            }
+            for (int instantanea : listar(PREFIJO_INSTANTANEA, EXTENSION_INSTANTANEA)) {
+                if (instantanea < cerrado) {
+                    Files.deleteIfExists(rutaInstantanea(instantanea));
+                }
+            }
+            return cerrado;
+        }
+    }
+
+    /**
+     * Programa una compactación periódica en un hilo de fondo.
+     *
+     * @param periodo Tiempo entre compactaciones
+     * @param unidad Unidad del periodo
+     */
+    public void programarCompactacion(long periodo, TimeUnit unidad) {
+        if (periodo <= 0) {
+            throw new IllegalArgumentException("El periodo de compactación debe ser mayor a cero");
+        }
+        synchronized (compactacion) {
+            if (compactacionPeriodica != null) {
+                throw new IllegalStateException("La compactación periódica ya está programada");
+            }
+            compactacionPeriodica = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "bitacora-compactacion");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            compactacionPeriodica.scheduleWithFixedDelay(() -> {
+                try {
+                    compactar();
+                    errorCompactacion = null;
+                } catch (IOException | RuntimeException e) {
+                    // Se reintenta en el próximo periodo; el error queda para getErrorCompactacion
+                    errorCompactacion = e;
+                }
+            }, periodo, periodo, unidad);
+        }
+    }
+
+    /**
+     * Retorna el error de la última compactación periódica, si falló. Los segmentos no
+     * compactados se conservan y se intenta de nuevo en el siguiente periodo.
+     *
+     * @return Excepción de la última compactación periódica, o null si resultó bien o aún no se ejecuta
+     */
+    public Exception getErrorCompactacion() {
+        return errorCompactacion;
+    }
+
+    // ==================== ARCHIVOS ====================
+
+    private FileChannel abrirSegmento(int segmento) throws IOException {
+        return FileChannel.open(rutaSegmento(segmento), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private Path rutaSegmento(int segmento) {
+        return directorio.resolve(String.format("%s%08d%s", PREFIJO_SEGMENTO, segmento, EXTENSION_SEGMENTO));
+    }
+
+    private Path rutaInstantanea(int segmento) {
+        return directorio.resolve(String.format("%s%08d%s", PREFIJO_INSTANTANEA, segmento, EXTENSION_INSTANTANEA));
+    }
+
+    /**
+     * Lista los números de los archivos del directorio con el prefijo y extensión dados.
+     *
+     * @return Números ordenados de menor a mayor
+     */
+    private int[] listar(String prefijo, String extension) throws IOException {
+        ArrayList<Integer> numeros = new ArrayList<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, prefijo + "*" + extension)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                String numero = nombre.substring(prefijo.length(), nombre.length() - extension.length());
+                try {
+                    numeros.add(Integer.parseInt(numero));
+                } catch (NumberFormatException e) {
+                    // Archivo ajeno a la bitácora
+                }
+            }
+        }
+        int[] resultado = new int[numeros.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = numeros.get(i);
+        }
+        Arrays.sort(resultado);
+        return resultado;
+    }
+}
@@ -0,0 +1,125 @@
+package unab.biblioteca.persistencia;
+
+import unab.biblioteca.models.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Codificación binaria de usuarios y textos compartida por la bitácora y las instantáneas.
+ * Los textos se guardan como [short largo][bytes UTF-8].
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+final class Codificador {
+
+    private static final byte TIPO_DOCENTE = 'D';
+    private static final byte TIPO_ESTUDIANTE = 'E';
+
+    private Codificador() {
+    }
+
+    /**
+     * Datos de un usuario ya codificados, para conocer su largo antes de escribirlos.
+     */
+    static final class DatosUsuario {
+        private final byte tipo;
+        private final byte[] nombre;
+        private final byte[] run;
+        private final char genero;
+        private final byte[] detalle; // Profesión o carrera
+        private final byte[][] grados;
+
+        DatosUsuario(Usuario usuario) {
+            // La ficha da datos consistentes aunque el usuario se edite mientras se codifica
+            FichaUsuario ficha = usuario.getFicha();
+            this.nombre = bytes(ficha.getNombreCompleto());
+            this.run = bytes(ficha.getRun());
+            this.genero = ficha.getGenero();
+            if (ficha instanceof FichaDocente) {
+                FichaDocente docente = (FichaDocente) ficha;
+                this.tipo = TIPO_DOCENTE;
+                this.detalle = bytes(docente.getProfesion());
+                List<String> lista = docente.getGrados();
+                this.grados = new byte[lista.size()][];
+                for (int i = 0; i < grados.length; i++) {
+                    grados[i] = bytes(lista.get(i));
+                }
+            } else if (ficha instanceof FichaEstudiante) {
+                this.tipo = TIPO_ESTUDIANTE;
+                this.detalle = bytes(((FichaEstudiante) ficha).getCarrera());
+                this.grados = new byte[0][];
+            } else {
+                throw new IllegalArgumentException("Tipo de usuario no soportado: " + usuario.getClass().getSimpleName());
+            }
+        }
+
+        int largo() {
+            int largo = 1 + 2 + nombre.length + 2 + run.length + 2 + 2 + detalle.length + 1;
+            for (byte[] grado : grados) {
+                largo += 2 + grado.length;
+            }
+            return largo;
+        }
+
+        void escribir(ByteBuffer buffer) {
+            buffer.put(tipo);
+            putTexto(buffer, nombre);
+            putTexto(buffer, run);
+            buffer.putChar(genero);
+            putTexto(buffer, detalle);
+            buffer.put((byte) grados.length);
+            for (byte[] grado : grados) {
+                putTexto(buffer, grado);
+            }
+        }
+    }
+
+    static Usuario leerUsuario(ByteBuffer datos) {
+        byte tipo = datos.get();
+        String nombre = getTexto(datos);
+        String run = getTexto(datos);
+        char genero = datos.getChar();
+        String detalle = getTexto(datos);
+        int cantidadGrados = datos.get() & 0xFF;
+
+        if (tipo == TIPO_DOCENTE) {
+            Docente docente = new Docente(nombre, run, genero, detalle);
+            for (int i = 0; i < cantidadGrados; i++) {
+                docente.agregarGrado(getTexto(datos));
+            }
+            return docente;
+        }
+        return new Estudiante(nombre, run, genero, detalle);
+    }
+
+    static byte[] bytes(String texto) {
+        byte[] resultado = texto.getBytes(StandardCharsets.UTF_8);
+        if (resultado.length > 0xFFFF) {
+            throw new IllegalArgumentException("Texto demasiado largo para codificar");
+        }
+        return resultado;
+    }
+
+    static void putTexto(ByteBuffer buffer, byte[] texto) {
+        buffer.putShort((short) texto.length);
+        buffer.put(texto);
+    }
+
+    /**
+     * Lee un texto; funciona tanto con buffers en memoria como mapeados a archivo.
+     */
+    static String getTexto(ByteBuffer buffer) {
+        int largo = buffer.getShort() & 0xFFFF;
+        String texto;
+        if (buffer.hasArray()) {
+            texto = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), largo, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + largo);
+        } else {
+            byte[] bytes = new byte[largo];
+            buffer.get(bytes);
+            texto = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return texto;
+    }
+}
@@ -0,0 +1,191 @@
+package unab.biblioteca.persistencia;
+
+import unab.biblioteca.controllers.ResultadoRegistro;
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import unab.biblioteca.models.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Importación masiva de libros y usuarios desde archivos delimitados (CSV).
+ *
+ * El archivo se lee por bloques, cada fila se valida con las reglas de los constructores
+ * de Libro y Usuario, y las filas válidas se confirman en lotes de la bitácora: con
+ * bitácora sincrónica se espera una vez por lote, no por fila, a que sus registros estén
+ * en disco. Los duplicados (contra el sistema o dentro del mismo archivo) se detectan
+ * con el índice del sistema en una sola pasada. Una fila inválida se informa y no detiene la importación.
+ * La memoria usada depende del tamaño del lote, no del archivo.
+ *
+ * Columnas de libros: isbn, titulo, autor, cantidadBiblioteca, cantidadDisponible[, imagen]
+ * Columnas de usuarios: tipo (D o Docente, E o Estudiante), nombre, run, genero,
+ * profesion o carrera[, grados separados por |]
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ImportadorCatalogo {
+
+    private final SistemaBiblioteca sistema;
+    private final char separador;
+    private final boolean conEncabezado;
+    private final int tamanoLote;
+
+    /**
+     * Crea un importador para archivos separados por comas, con encabezado y lotes de 10.000 filas.
+     *
+     * @param sistema Sistema donde se cargan los datos
+     */
+    public ImportadorCatalogo(SistemaBiblioteca sistema) {
+        this(sistema, ',', true, 10_000);
+    }
+
+    /**
+     * Crea un importador.
+     *
+     * @param sistema Sistema donde se cargan los datos
+     * @param separador Separador de campos
+     * @param conEncabezado true si la primera fila del archivo es un encabezado
+     * @param tamanoLote Filas por lote
+     */
+    public ImportadorCatalogo(SistemaBiblioteca sistema, char separador, boolean conEncabezado, int tamanoLote) {
+        if (sistema == null) {
+            throw new IllegalArgumentException("El sistema no puede ser nulo");
+        }
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a cero");
+        }
+        this.sistema = sistema;
+        this.separador = separador;
+        this.conEncabezado = conEncabezado;
+        this.tamanoLote = tamanoLote;
+    }
+
+    // ==================== LIBROS ====================
+
+    /**
+     * Importa libros desde un archivo delimitado.
+     *
+     * @param archivo Archivo a importar
+     * @return Resultado con las filas aceptadas y rechazadas
+     * @throws IOException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarLibros(Path archivo) throws IOException {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        ArrayList<Libro> lote = new ArrayList<>(tamanoLote);
+        long[] lineas = new long[tamanoLote];
+
+        try (LectorCSV lector = new LectorCSV(archivo, separador)) {
+            if (conEncabezado) {
+                lector.siguienteFila();
+            }
+
+            while (lector.siguienteFila()) {
+                resultado.contarFila();
+                try {
+                    Libro libro = leerLibro(lector.campos());
+                    lineas[lote.size()] = lector.linea();
+                    lote.add(libro);
+                } catch (IllegalArgumentException e) {
+                    resultado.rechazar(lector.linea(), e.getMessage());
+                }
+
+                if (lote.size() == tamanoLote) {
+                    confirmarLibros(lote, lineas, resultado);
+                }
+            }
+        }
+        confirmarLibros(lote, lineas, resultado);
+
+        return resultado;
+    }
+
+    private static Libro leerLibro(ArrayList<String> campos) {
+        if (campos.size() < 5 || campos.size() > 6) {
+            throw new IllegalArgumentException("Se esperaban 5 o 6 columnas y hay " + campos.size());
+        }
+        int cantidadBiblioteca = leerEntero(campos.get(3), "Cantidad en biblioteca");
+        int cantidadDisponible = leerEntero(campos.get(4), "Cantidad disponible");
+        String imagen = (campos.size() == 6) ? campos.get(5).trim() : "";
+
+        return new Libro(campos.get(0).trim(), campos.get(1).trim(), campos.get(2).trim(),
+                cantidadBiblioteca, cantidadDisponible, imagen);
+    }
+
+    private void confirmarLibros(ArrayList<Libro> lote, long[] lineas, ResultadoImportacion resultado) {
+        sistema.ejecutarEnLote(() -> {
+            for (int i = 0; i < lote.size(); i++) {
+                if (sistema.crearLibro(lote.get(i))) {
+                    resultado.contarAceptada();
+                } else {
+                    resultado.rechazar(lineas[i], "ISBN duplicado: " + lote.get(i).getIsbn());
+                }
+            }
+        });
+        lote.clear();
+    }
+
+    // ==================== USUARIOS ====================
+
+    /**
+     * Importa usuarios desde un archivo delimitado.
+     *
+     * @param archivo Archivo a importar
+     * @return Resultado con las filas aceptadas y rechazadas
+     * @throws IOException si no se puede leer el archivo
+     */
+    public ResultadoImportacion importarUsuarios(Path archivo) throws IOException {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        ArrayList<SolicitudUsuario> lote = new ArrayList<>(tamanoLote);
+        long[] lineas = new long[tamanoLote];
+
+        try (LectorCSV lector = new LectorCSV(archivo, separador)) {
+            if (conEncabezado) {
+                lector.siguienteFila();
+            }
+
+            while (lector.siguienteFila()) {
+                resultado.contarFila();
+                ArrayList<String> campos = lector.campos();
+                if (campos.size() < 5 || campos.size() > 6) {
+                    resultado.rechazar(lector.linea(), "Se esperaban 5 o 6 columnas y hay " + campos.size());
+                    continue;
+                }
+
+                List<String> grados = (campos.size() == 6) ? Arrays.asList(campos.get(5).split("\\|")) : null;
+                lineas[lote.size()] = lector.linea();
+                lote.add(new SolicitudUsuario(campos.get(0), campos.get(1), campos.get(2), campos.get(3),
+                        campos.get(4), grados));
+
+                if (lote.size() == tamanoLote) {
+                    confirmarUsuarios(lote, lineas, resultado);
+                }
+            }
+        }
+        confirmarUsuarios(lote, lineas, resultado);
+
+        return resultado;
+    }
+
+    /**
+     * Registra el lote con la validación en paralelo de {@link SistemaBiblioteca#registrarUsuarios},
+     * que ya lo confirma como un lote de la bitácora.
+     */
+    private void confirmarUsuarios(ArrayList<SolicitudUsuario> lote, long[] lineas, ResultadoImportacion resultado) {
+        ResultadoRegistro registro = sistema.registrarUsuarios(lote);
+        resultado.contarAceptadas(registro.getAceptados());
+        for (ResultadoRegistro.Falla falla : registro.getFallas()) {
+            resultado.rechazar(lineas[falla.getIndice()], falla.getMotivo());
+        }
+        lote.clear();
+    }
+
+    private static int leerEntero(String texto, String campo) {
+        try {
+            return Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " inválida: " + texto);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package unab.biblioteca.persistencia;
+
+import unab.biblioteca.controllers.EstadisticasCirculacion;
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import unab.biblioteca.models.*;
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Instantánea binaria del estado del sistema: usuarios, libros, préstamos activos e
+ * historial de préstamos cerrados. Como la compactación borra los segmentos incluidos,
+ * la instantánea es la única copia durable del historial anterior a ella.
+ *
+ * Formato: [int MAGIA][int VERSION][int último segmento incluido]
+ * [int n usuarios][usuarios...][int n libros][libros...][int n préstamos][préstamos...]
+ * [long devoluciones atrasadas][long multas recaudadas][long n cerrados][cerrados...]
+ * [int CRC32C de todo lo anterior]
+ * La versión 1 no incluye los acumulados de las estadísticas y la 2 no incluye el historial.
+ *
+ * Se escribe en un archivo temporal que luego se renombra de forma atómica, y se lee
+ * mapeando el archivo a memoria.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+final class Instantanea {
+
+    private static final int MAGIA = 0x42494253; // "BIBS"
+    private static final int VERSION = 3;
+    private static final int CAPACIDAD_BUFFER = 1 << 20;
+    private static final int REGISTROS_POR_BLOQUE = 4096;
+    private static final int BYTES_POR_CERRADO = 28;
+
+    private Instantanea() {
+    }
+
+    /**
+     * Decodifica el registro ubicado en la posición actual del buffer.
+     */
+    private interface Decodificador {
+        void decodificar(ByteBuffer registro, int indice);
+    }
+
+    /**
+     * Escribe una instantánea del sistema.
+     *
+     * @param sistema Sistema a respaldar; no debe estar recibiendo operaciones
+     * @param archivo Archivo destino
+     * @param ultimoSegmento Último segmento de bitácora reflejado en el estado
+     * @throws IOException si falla la escritura
+     */
+    static void escribir(SistemaBiblioteca sistema, Path archivo, int ultimoSegmento) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CAPACIDAD_BUFFER);
+            buffer.putInt(MAGIA);
+            buffer.putInt(VERSION);
+            buffer.putInt(ultimoSegmento);
+
+            ArrayList<Usuario> usuarios = sistema.listarUsuarios();
+            buffer.putInt(usuarios.size());
+            for (Usuario usuario : usuarios) {
+                Codificador.DatosUsuario datos = new Codificador.DatosUsuario(usuario);
+                asegurarEspacio(canal, buffer, crc, datos.largo());
+                datos.escribir(buffer);
+            }
+
+            ArrayList<Libro> libros = sistema.listarLibros();
+            asegurarEspacio(canal, buffer, crc, 4);
+            buffer.putInt(libros.size());
+            for (Libro original : libros) {
+                FichaLibro libro = original.getFicha();
+                byte[] isbn = Codificador.bytes(libro.getIsbn());
+                byte[] titulo = Codificador.bytes(libro.getTitulo());
+                byte[] autor = Codificador.bytes(libro.getAutor());
+                byte[] imagen = Codificador.bytes(libro.getImagen());
+                asegurarEspacio(canal, buffer, crc, 8 + isbn.length + titulo.length + autor.length + imagen.length + 8);
+                Codificador.putTexto(buffer, isbn);
+                Codificador.putTexto(buffer, titulo);
+                Codificador.putTexto(buffer, autor);
+                buffer.putInt(libro.getCantidadBiblioteca());
+                buffer.putInt(libro.getCantidadDisponible());
+                Codificador.putTexto(buffer, imagen);
+            }
+
+            // Los préstamos se toman desde los usuarios: así quedan con su RUN actual y se
+            // omiten los de usuarios eliminados, cuyo ejemplar ya figura como no disponible.
+            // Se incluyen los de libros eliminados, que siguen activos igual que al reproducir
+            // la bitácora.
+            ArrayList<Prestamo> activos = new ArrayList<>();
+            ArrayList<Usuario> deudores = new ArrayList<>();
+            for (Usuario usuario : usuarios) {
+                long isbnPrestamo = usuario.getPrestamo();
+                if (isbnPrestamo != Usuario.SIN_PRESTAMO) {
+                    String isbn = ValidadorISBN.formatearISBN(isbnPrestamo);
+                    Prestamo prestamo = sistema.buscarPrestamo(isbn, usuario.getRun());
+                    if (prestamo != null) {
+                        activos.add(prestamo);
+                        deudores.add(usuario);
+                    }
+                }
+            }
+            asegurarEspacio(canal, buffer, crc, 4);
+            buffer.putInt(activos.size());
+            for (int i = 0; i < activos.size(); i++) {
+                Prestamo prestamo = activos.get(i);
+                asegurarEspacio(canal, buffer, crc, 20);
+                buffer.putLong(prestamo.getIsbnClave());
+                buffer.putInt(deudores.get(i).getRunClave());
+                buffer.putInt(prestamo.getDiasPrestados());
+                buffer.putInt((int) prestamo.getFechaPrestamo().toEpochDay());
+            }
+
+            EstadisticasCirculacion estadisticas = sistema.getEstadisticas();
+            asegurarEspacio(canal, buffer, crc, 16);
+            buffer.putLong(estadisticas.getDevolucionesAtrasadas());
+            buffer.putLong(estadisticas.getMultasRecaudadas());
+
+            // El historial se copia por páginas en el orden en que se devolvió
+            ArchivoPrestamos archivoPrestamos = sistema.getArchivoPrestamos();
+            long cerrados = archivoPrestamos.cantidad();
+            asegurarEspacio(canal, buffer, crc, 8);
+            buffer.putLong(cerrados);
+            for (long desde = 0; desde < cerrados; desde += REGISTROS_POR_BLOQUE) {
+                int maximo = (int) Math.min(REGISTROS_POR_BLOQUE, cerrados - desde);
+                for (PrestamoCerrado cerrado : archivoPrestamos.leer(desde, maximo)) {
+                    asegurarEspacio(canal, buffer, crc, BYTES_POR_CERRADO);
+                    buffer.putInt(cerrado.getRunClave());
+                    buffer.putLong(cerrado.getIsbnClave());
+                    buffer.putInt(cerrado.getDiaPrestamo());
+                    buffer.putInt(cerrado.getDiaDevolucionPactada());
+                    buffer.putInt(cerrado.getDiaDevolucion());
+                    buffer.putInt(cerrado.getMulta());
+                }
+            }
+
+            vaciar(canal, buffer, crc);
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(true);
+        }
+
+        Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void asegurarEspacio(FileChannel canal, ByteBuffer buffer, CRC32C crc, int largo) throws IOException {
+        if (buffer.remaining() < largo) {
+            vaciar(canal, buffer, crc);
+        }
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer buffer, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Lee el número del último segmento incluido en una instantánea, validando su integridad.
+     *
+     * @param archivo Archivo de instantánea
+     * @return Último segmento incluido
+     * @throws IOException si el archivo no es una instantánea válida
+     */
+    static int leerUltimoSegmento(Path archivo) throws IOException {
+        return mapear(archivo).getInt(8);
+    }
+
+    /**
+     * Carga una instantánea en un sistema vacío.
+     * Usuarios y libros se decodifican en paralelo. Los libros se crean con todos sus
+     * ejemplares, se rehacen los préstamos activos (también los de libros eliminados) y
+     * finalmente se restaura la cantidad disponible guardada, se recalculan las
+     * estadísticas y se agrega el historial de préstamos cerrados al archivo histórico.
+     *
+     * @param archivo Archivo de instantánea
+     * @param sistema Sistema vacío, sin bitácora asociada
+     * @return Último segmento de bitácora incluido en la instantánea
+     * @throws IOException si el archivo no es una instantánea válida
+     */
+    static int cargar(Path archivo, SistemaBiblioteca sistema) throws IOException {
+        ByteBuffer datos = mapear(archivo);
+        datos.position(4);
+        int version = datos.getInt();
+        int ultimoSegmento = datos.getInt();
+
+        // Los registros tienen largo variable: primero se ubican y luego se decodifican en paralelo
+        int[] posicionesUsuarios = ubicar(datos, Instantanea::saltarUsuario);
+        decodificarEnParalelo(datos, posicionesUsuarios, (registro, i) ->
+                sistema.crearUsuario(Codificador.leerUsuario(registro)));
+
+        int[] posicionesLibros = ubicar(datos, Instantanea::saltarLibro);
+        Libro[] libros = new Libro[posicionesLibros.length];
+        int[] disponibles = new int[posicionesLibros.length];
+        decodificarEnParalelo(datos, posicionesLibros, (registro, i) -> {
+            String isbn = Codificador.getTexto(registro);
+            String titulo = Codificador.getTexto(registro);
+            String autor = Codificador.getTexto(registro);
+            int cantidadBiblioteca = registro.getInt();
+            disponibles[i] = registro.getInt();
+            String imagen = Codificador.getTexto(registro);
+            libros[i] = new Libro(isbn, titulo, autor, cantidadBiblioteca, cantidadBiblioteca, imagen);
+            sistema.crearLibro(libros[i]);
+        });
+
+        int cantidadPrestamos = datos.getInt();
+        for (int i = 0; i < cantidadPrestamos; i++) {
+            String isbn = ValidadorISBN.formatearISBN(datos.getLong());
+            String run = ValidadorRUN.formatearRUN(datos.getInt());
+            int dias = datos.getInt();
+            LocalDate fecha = LocalDate.ofEpochDay(datos.getInt());
+            boolean restaurado = (sistema.buscarLibroPorISBN(isbn) != null)
+                    ? sistema.realizarPrestamo(isbn, run, dias, fecha).esRealizado()
+                    : sistema.restaurarPrestamoDeLibroEliminado(isbn, run, dias, fecha);
+            if (!restaurado) {
+                throw new IOException("Instantánea inconsistente: no se pudo restaurar el préstamo de " + isbn + " a " + run);
+            }
+        }
+
+        for (int i = 0; i < libros.length; i++) {
+            libros[i].setCantidadDisponible(disponibles[i]);
+        }
+        sistema.recalcularEstadisticas();
+
+        if (version >= 2) {
+            sistema.getEstadisticas().restaurarAcumulados(datos.getLong(), datos.getLong());
+        }
+
+        if (version >= 3) {
+            ArchivoPrestamos archivoPrestamos = sistema.getArchivoPrestamos();
+            long cerrados = datos.getLong();
+            for (long i = 0; i < cerrados; i++) {
+                archivoPrestamos.agregar(datos.getInt(), datos.getLong(), datos.getInt(), datos.getInt(),
+                        datos.getInt(), datos.getInt());
+            }
+        }
+
+        return ultimoSegmento;
+    }
+
+    /**
+     * Lee la cantidad de registros de una sección y retorna la posición de cada uno,
+     * dejando el buffer al final de la sección.
+     */
+    private static int[] ubicar(ByteBuffer datos, Consumer<ByteBuffer> saltar) {
+        int[] posiciones = new int[datos.getInt()];
+        for (int i = 0; i < posiciones.length; i++) {
+            posiciones[i] = datos.position();
+            saltar.accept(datos);
+        }
+        return posiciones;
+    }
+
+    private static void saltarTexto(ByteBuffer datos) {
+        int largo = datos.getShort() & 0xFFFF;
+        datos.position(datos.position() + largo);
+    }
+
+    private static void saltarUsuario(ByteBuffer datos) {
+        datos.get(); // Tipo
+        saltarTexto(datos); // Nombre
+        saltarTexto(datos); // RUN
+        datos.getChar(); // Género
+        saltarTexto(datos); // Profesión o carrera
+        int cantidadGrados = datos.get() & 0xFF;
+        for (int i = 0; i < cantidadGrados; i++) {
+            saltarTexto(datos);
+        }
+    }
+
+    private static void saltarLibro(ByteBuffer datos) {
+        saltarTexto(datos); // ISBN
+        saltarTexto(datos); // Título
+        saltarTexto(datos); // Autor
+        datos.position(datos.position() + 8); // Cantidades
+        saltarTexto(datos); // Imagen
+    }
+
+    /**
+     * Decodifica los registros en bloques repartidos entre los hilos del pool común.
+     * Cada bloque usa su propia vista del buffer.
+     */
+    private static void decodificarEnParalelo(ByteBuffer datos, int[] posiciones, Decodificador decodificar) {
+        int bloques = (posiciones.length + REGISTROS_POR_BLOQUE - 1) / REGISTROS_POR_BLOQUE;
+        IntStream.range(0, bloques).parallel().forEach(bloque -> {
+            ByteBuffer vista = datos.duplicate();
+            int fin = Math.min(posiciones.length, (bloque + 1) * REGISTROS_POR_BLOQUE);
+            for (int i = bloque * REGISTROS_POR_BLOQUE; i < fin; i++) {
+                vista.position(posiciones[i]);
+                decodificar.decodificar(vista, i);
+            }
+        });
+    }
+
+    /**
+     * Mapea la instantánea a memoria y verifica su cabecera y CRC.
+     */
+    private static ByteBuffer mapear(Path archivo) throws IOException {
+        MappedByteBuffer mapa;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long largo = canal.size();
+            if (largo < 16 || largo > Integer.MAX_VALUE) {
+                throw new IOException("Tamaño de instantánea inválido: " + archivo);
+            }
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, largo);
+        }
+
+        int largoDatos = mapa.limit() - 4;
+        if (mapa.getInt(0) != MAGIA || mapa.getInt(4) < 1 || mapa.getInt(4) > VERSION) {
+            throw new IOException("Archivo de instantánea no reconocido: " + archivo);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(mapa.duplicate().limit(largoDatos));
+        if ((int) crc.getValue() != mapa.getInt(largoDatos)) {
+            throw new IOException("Instantánea corrupta: " + archivo);
+        }
+
+        return mapa.limit(largoDatos);
+    }
+}
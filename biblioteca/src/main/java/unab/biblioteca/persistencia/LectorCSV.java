@@ -0,0 +1,221 @@
+package unab.biblioteca.persistencia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Lector de archivos delimitados (CSV) en UTF-8 que recorre el archivo por bloques
+ * con un FileChannel, sin cargarlo completo en memoria.
+ *
+ * Los campos pueden ir entre comillas dobles; dentro de ellos se permiten el separador,
+ * saltos de línea y comillas escritas como "". Se aceptan finales de línea \n y \r\n,
+ * y se ignora la marca BOM al inicio del archivo.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+final class LectorCSV implements Closeable {
+
+    private static final int CAPACIDAD_INICIAL = 1 << 20; // 1 MB
+    private static final int LARGO_MAXIMO_FILA = 16 << 20; // 16 MB
+
+    private final FileChannel canal;
+    private final byte separador;
+    private ByteBuffer buffer;
+    private boolean finArchivo;
+
+    private final ArrayList<String> campos = new ArrayList<>();
+    private long lineaActual; // Línea donde comienza la fila leída
+    private long siguienteLinea = 1;
+
+    /**
+     * Abre un archivo delimitado.
+     *
+     * @param archivo Archivo a leer
+     * @param separador Separador de campos (por ejemplo ',' o ';')
+     * @throws IOException si no se puede abrir el archivo
+     */
+    LectorCSV(Path archivo, char separador) throws IOException {
+        if (separador == '"' || separador == '\n' || separador == '\r' || separador > 0x7F) {
+            throw new IllegalArgumentException("Separador inválido: " + separador);
+        }
+        this.canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        this.separador = (byte) separador;
+        this.buffer = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        this.buffer.flip();
+
+        // Omitir BOM de UTF-8
+        if (rellenar() && buffer.remaining() >= 3
+                && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+            buffer.position(3);
+        }
+    }
+
+    /**
+     * Avanza a la siguiente fila no vacía.
+     *
+     * @return true si se leyó una fila, false al llegar al final del archivo
+     * @throws IOException si falla la lectura o una fila excede el largo máximo
+     */
+    boolean siguienteFila() throws IOException {
+        while (true) {
+            lineaActual = siguienteLinea;
+            int fin = buscarFinFila();
+            if (fin < 0) {
+                return false;
+            }
+
+            int inicio = buffer.position();
+            int finDatos = fin;
+            if (finDatos > inicio && buffer.get(finDatos - 1) == '\r') {
+                finDatos--;
+            }
+            separarCampos(inicio, finDatos);
+            buffer.position(Math.min(fin + 1, buffer.limit()));
+
+            if (finDatos > inicio) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Retorna los campos de la fila actual. La lista se reutiliza en la siguiente lectura.
+     */
+    ArrayList<String> campos() {
+        return campos;
+    }
+
+    /**
+     * Retorna el número de línea (desde 1) donde comienza la fila actual.
+     */
+    long linea() {
+        return lineaActual;
+    }
+
+    /**
+     * Busca el salto de línea que termina la fila actual, ignorando los que están entre
+     * comillas. Lee más datos del archivo cuando la fila no cabe en lo ya leído.
+     *
+     * @return Posición absoluta del fin de fila (el \n o el límite si es la última), o -1 si no quedan filas
+     */
+    private int buscarFinFila() throws IOException {
+        int revisado = buffer.position();
+        boolean entreComillas = false;
+        long saltos = 0;
+
+        while (true) {
+            for (int i = revisado; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    entreComillas = !entreComillas;
+                } else if (b == '\n') {
+                    if (!entreComillas) {
+                        siguienteLinea += saltos + 1;
+                        return i;
+                    }
+                    saltos++;
+                }
+            }
+
+            int desplazamiento = buffer.position();
+            revisado = buffer.limit() - desplazamiento;
+            if (!rellenar()) {
+                if (buffer.hasRemaining()) {
+                    siguienteLinea += saltos + 1;
+                    return buffer.limit(); // Última fila sin salto de línea final
+                }
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Compacta el buffer y lee más datos del archivo, ampliándolo si está lleno.
+     *
+     * @return false si el archivo ya no tiene más datos
+     */
+    private boolean rellenar() throws IOException {
+        if (finArchivo) {
+            return false;
+        }
+
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            if (buffer.capacity() >= LARGO_MAXIMO_FILA) {
+                throw new IOException("Fila demasiado larga cerca de la línea " + siguienteLinea);
+            }
+            ByteBuffer mayor = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            mayor.put(buffer);
+            buffer = mayor;
+        }
+
+        int leidos = canal.read(buffer);
+        buffer.flip();
+        if (leidos < 0) {
+            finArchivo = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Separa los campos de la fila ubicada entre inicio (inclusive) y fin (exclusive).
+     */
+    private void separarCampos(int inicio, int fin) {
+        campos.clear();
+        byte[] datos = buffer.array();
+        int base = buffer.arrayOffset();
+        int i = inicio;
+
+        while (true) {
+            if (i < fin && datos[base + i] == '"') {
+                // Campo entre comillas: "" representa una comilla
+                byte[] valor = new byte[fin - i];
+                int largo = 0;
+                i++;
+                while (i < fin) {
+                    byte b = datos[base + i];
+                    if (b == '"') {
+                        if (i + 1 < fin && datos[base + i + 1] == '"') {
+                            valor[largo++] = '"';
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    valor[largo++] = b;
+                    i++;
+                }
+                // Lo que siga a la comilla de cierre hasta el separador se descarta
+                while (i < fin && datos[base + i] != separador) {
+                    i++;
+                }
+                campos.add(new String(valor, 0, largo, StandardCharsets.UTF_8));
+            } else {
+                int inicioCampo = i;
+                while (i < fin && datos[base + i] != separador) {
+                    i++;
+                }
+                campos.add(new String(datos, base + inicioCampo, i - inicioCampo, StandardCharsets.UTF_8));
+            }
+
+            if (i >= fin) {
+                return;
+            }
+            i++; // Saltar el separador
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
@@ -0,0 +1,467 @@
+package unab.biblioteca.persistencia;
+
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de auditoría de la circulación: préstamos creados y cerrados, multas
+ * aplicadas, usuarios editados y libros eliminados, con la hora en que ocurrieron.
+ *
+ * A diferencia de la {@link Bitacora}, no sirve para reconstruir el estado ni se espera
+ * a que llegue a disco: quien realiza la operación solo copia los datos del evento
+ * (claves primitivas, sin objetos) en una casilla de un buffer circular acotado y la
+ * publica, sin bloqueos. Un hilo de fondo recorre las casillas publicadas en orden, las
+ * escribe por lotes como líneas de texto y libera las casillas.
+ *
+ * Los archivos se llaman auditoria-NNNNNNNN.log y se cambia al siguiente cuando el
+ * actual supera el tamaño máximo; al abrir el registro se continúa en un archivo nuevo.
+ *
+ * Si el buffer se llena porque la escritura no alcanza al ritmo de los eventos, la
+ * política de saturación decide si el evento se descarta (y se cuenta) o si quien lo
+ * publica espera a que haya espacio. El largo de la cola, su máximo y los descartes
+ * se pueden consultar en todo momento.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class RegistroAuditoria implements Closeable {
+
+    /**
+     * Tipos de evento.
+     */
+    public enum TipoEvento {
+        PRESTAMO_CREADO,
+        PRESTAMO_CERRADO,
+        MULTA_APLICADA,
+        USUARIO_EDITADO,
+        LIBRO_ELIMINADO
+    }
+
+    /**
+     * Qué hacer con un evento cuando el buffer está lleno.
+     */
+    public enum PoliticaSaturacion {
+        /** Descartar el evento y contarlo; la circulación nunca espera. */
+        DESCARTAR,
+        /** Esperar a que el hilo de fondo libere espacio; no se pierden eventos. */
+        ESPERAR
+    }
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1 << 16;
+    private static final long TAMANO_ARCHIVO_POR_DEFECTO = 64L << 20; // 64 MB
+    private static final int LOTE_MAXIMO = 4096;
+    private static final long ESPERA_SIN_EVENTOS_NANOS = 1_000_000; // 1 ms
+    private static final long ESPERA_BUFFER_LLENO_NANOS = 50_000; // 50 µs
+    private static final long CERRADO = Long.MIN_VALUE; // Valor de reservadas una vez detenido el hilo de fondo
+
+    private static final String PREFIJO_ARCHIVO = "auditoria-";
+    private static final String EXTENSION_ARCHIVO = ".log";
+
+    private final Path directorio;
+    private final long tamanoMaximoArchivo;
+    private final PoliticaSaturacion politica;
+
+    // Buffer circular: una casilla por evento, con sus campos en arreglos paralelos
+    private final int capacidad;
+    private final int mascara;
+    private final byte[] tipos;
+    private final long[] instantes; // Milisegundos desde la época
+    private final long[] isbns;
+    private final int[] runs;
+    private final int[] valores; // Días, multa o RUN nuevo, según el tipo
+    private final int[] fechas; // Días desde la época
+    private final AtomicLongArray publicadas; // Secuencia + 1 del evento publicado en cada casilla
+
+    private final AtomicLong reservadas = new AtomicLong(); // Siguiente secuencia a reservar, o CERRADO
+    private volatile long liberadas; // Eventos ya copiados por el hilo de fondo
+    private volatile long maximoPendientes;
+    private volatile long escritos;
+    private final AtomicLong descartados = new AtomicLong();
+    private volatile boolean cerrando;
+    private volatile IOException errorEscritura;
+
+    private final Thread hiloEscritura;
+    private FileChannel canal; // Solo lo usa el hilo de escritura
+    private int archivoActual;
+    private long tamanoActual;
+
+    /**
+     * Constructor de RegistroAuditoria con un buffer de 65.536 eventos, archivos de
+     * 64 MB y descarte de eventos si el buffer se llena.
+     *
+     * @param directorio Directorio de los archivos de auditoría; se crea si no existe
+     * @throws IOException si no se puede crear el directorio o el primer archivo
+     */
+    public RegistroAuditoria(Path directorio) throws IOException {
+        this(directorio, CAPACIDAD_POR_DEFECTO, TAMANO_ARCHIVO_POR_DEFECTO, PoliticaSaturacion.DESCARTAR);
+    }
+
+    /**
+     * Constructor de RegistroAuditoria.
+     *
+     * @param directorio Directorio de los archivos de auditoría; se crea si no existe
+     * @param capacidad Eventos que caben en el buffer (se redondea a una potencia de 2)
+     * @param tamanoMaximoArchivo Bytes a partir de los cuales se cambia de archivo
+     * @param politica Qué hacer con los eventos cuando el buffer está lleno
+     * @throws IOException si no se puede crear el directorio o el primer archivo
+     */
+    public RegistroAuditoria(Path directorio, int capacidad, long tamanoMaximoArchivo, PoliticaSaturacion politica)
+            throws IOException {
+        if (capacidad <= 0 || capacidad > (1 << 30)) {
+            throw new IllegalArgumentException("La capacidad debe estar entre 1 y 2^30 eventos");
+        }
+        if (tamanoMaximoArchivo <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de archivo debe ser mayor a cero");
+        }
+        if (politica == null) {
+            throw new IllegalArgumentException("La política de saturación no puede ser nula");
+        }
+        this.directorio = directorio;
+        this.tamanoMaximoArchivo = tamanoMaximoArchivo;
+        this.politica = politica;
+
+        int potencia = Integer.highestOneBit(capacidad);
+        this.capacidad = (potencia == capacidad) ? capacidad : potencia << 1;
+        this.mascara = this.capacidad - 1;
+        this.tipos = new byte[this.capacidad];
+        this.instantes = new long[this.capacidad];
+        this.isbns = new long[this.capacidad];
+        this.runs = new int[this.capacidad];
+        this.valores = new int[this.capacidad];
+        this.fechas = new int[this.capacidad];
+        this.publicadas = new AtomicLongArray(this.capacidad);
+
+        Files.createDirectories(directorio);
+        this.archivoActual = ultimoArchivo() + 1;
+        this.canal = abrirArchivo(archivoActual);
+
+        this.hiloEscritura = new Thread(this::escribirLotes, "auditoria-escritura");
+        this.hiloEscritura.setDaemon(true);
+        this.hiloEscritura.start();
+    }
+
+    // ==================== EVENTOS ====================
+
+    /**
+     * Publica la creación de un préstamo.
+     *
+     * @param isbnClave ISBN-13 del libro prestado
+     * @param runClave Cuerpo del RUN del usuario
+     * @param diasPrestados Días por los que se prestó
+     * @param fechaPrestamo Fecha del préstamo
+     */
+    public void prestamoCreado(long isbnClave, int runClave, int diasPrestados, LocalDate fechaPrestamo) {
+        publicar(TipoEvento.PRESTAMO_CREADO, isbnClave, runClave, diasPrestados, (int) fechaPrestamo.toEpochDay());
+    }
+
+    /**
+     * Publica el cierre de un préstamo por la devolución del libro.
+     *
+     * @param isbnClave ISBN-13 del libro devuelto
+     * @param runClave Cuerpo del RUN del usuario
+     * @param fechaDevolucion Fecha de la devolución
+     */
+    public void prestamoCerrado(long isbnClave, int runClave, LocalDate fechaDevolucion) {
+        publicar(TipoEvento.PRESTAMO_CERRADO, isbnClave, runClave, 0, (int) fechaDevolucion.toEpochDay());
+    }
+
+    /**
+     * Publica la multa cobrada en una devolución atrasada.
+     *
+     * @param isbnClave ISBN-13 del libro devuelto
+     * @param runClave Cuerpo del RUN del usuario
+     * @param multa Monto de la multa
+     * @param fechaDevolucion Fecha de la devolución
+     */
+    public void multaAplicada(long isbnClave, int runClave, int multa, LocalDate fechaDevolucion) {
+        publicar(TipoEvento.MULTA_APLICADA, isbnClave, runClave, multa, (int) fechaDevolucion.toEpochDay());
+    }
+
+    /**
+     * Publica la edición de un usuario, que puede haber cambiado su RUN.
+     *
+     * @param runClaveAnterior Cuerpo del RUN antes de editar
+     * @param runClaveNueva Cuerpo del RUN después de editar (igual al anterior si no cambió)
+     */
+    public void usuarioEditado(int runClaveAnterior, int runClaveNueva) {
+        publicar(TipoEvento.USUARIO_EDITADO, 0, runClaveAnterior, runClaveNueva, 0);
+    }
+
+    /**
+     * Publica la eliminación de un libro del catálogo.
+     *
+     * @param isbnClave ISBN-13 del libro eliminado
+     */
+    public void libroEliminado(long isbnClave) {
+        publicar(TipoEvento.LIBRO_ELIMINADO, isbnClave, 0, 0, 0);
+    }
+
+    /**
+     * Reserva una casilla, copia el evento y lo publica. Con la política ESPERAR y el
+     * buffer lleno, espera a que el hilo de fondo libere casillas, durmiendo entre
+     * revisiones, y deja de esperar si el hilo de fondo ya terminó.
+     *
+     * Al detenerse, el hilo de fondo marca las reservas como cerradas con un CAS sobre la
+     * siguiente secuencia, así que una reserva ocurre antes (y el evento se escribe) o
+     * después (y el evento se descarta y se cuenta), nunca se pierde sin contarse.
+     */
+    private void publicar(TipoEvento tipo, long isbnClave, int runClave, int valor, int fecha) {
+        long secuencia;
+        while (true) {
+            secuencia = reservadas.get();
+            if (secuencia == CERRADO) {
+                descartados.incrementAndGet();
+                return;
+            }
+            if (secuencia - liberadas >= capacidad) {
+                if (politica == PoliticaSaturacion.DESCARTAR || !hiloEscritura.isAlive()) {
+                    descartados.incrementAndGet();
+                    return;
+                }
+                LockSupport.parkNanos(ESPERA_BUFFER_LLENO_NANOS);
+                continue;
+            }
+            if (reservadas.compareAndSet(secuencia, secuencia + 1)) {
+                break;
+            }
+        }
+
+        int casilla = (int) (secuencia & mascara);
+        tipos[casilla] = (byte) tipo.ordinal();
+        instantes[casilla] = System.currentTimeMillis();
+        isbns[casilla] = isbnClave;
+        runs[casilla] = runClave;
+        valores[casilla] = valor;
+        fechas[casilla] = fecha;
+        publicadas.setRelease(casilla, secuencia + 1); // Hace visibles los campos anteriores
+    }
+
+    // ==================== MÉTRICAS ====================
+
+    /**
+     * Retorna la cantidad de eventos en el buffer que aún no se escriben.
+     *
+     * @return Largo actual de la cola
+     */
+    public long getPendientes() {
+        long reservadasActual = reservadas.get();
+        return (reservadasActual == CERRADO) ? 0 : Math.max(0, reservadasActual - liberadas);
+    }
+
+    /**
+     * Retorna el mayor largo de la cola observado por el hilo de fondo desde que se abrió
+     * el registro. Si se acerca a la capacidad, los eventos se están descartando o
+     * esperando.
+     *
+     * @return Máximo de eventos pendientes
+     */
+    public long getMaximoPendientes() {
+        return maximoPendientes;
+    }
+
+    /**
+     * Retorna la cantidad de eventos que caben en el buffer, ya redondeada a una potencia de 2.
+     *
+     * @return Capacidad del buffer
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Retorna la cantidad de eventos escritos en los archivos.
+     *
+     * @return Eventos escritos
+     */
+    public long getEscritos() {
+        return escritos;
+    }
+
+    /**
+     * Retorna la cantidad de eventos descartados porque el buffer estaba lleno, porque
+     * el registro estaba cerrado o porque falló la escritura.
+     *
+     * @return Eventos perdidos
+     */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    /**
+     * Retorna el error de la última escritura que falló. Los eventos de un lote que no se
+     * pudo escribir se cuentan como descartados; el error también se lanza al cerrar.
+     *
+     * @return Excepción de la última escritura fallida, o null si no ha fallado ninguna
+     */
+    public IOException getErrorEscritura() {
+        return errorEscritura;
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Ciclo del hilo de fondo: toma los eventos publicados en orden, los escribe juntos y
+     * libera sus casillas. Si no hay eventos espera un momento antes de volver a revisar,
+     * de modo que quien publica nunca tiene que avisarle.
+     */
+    private void escribirLotes() {
+        StringBuilder texto = new StringBuilder();
+        long siguiente = 0;
+        try {
+            while (true) {
+                long pendientes = reservadas.get() - siguiente;
+                if (pendientes > maximoPendientes) {
+                    maximoPendientes = pendientes;
+                }
+
+                int cantidad = 0;
+                while (cantidad < LOTE_MAXIMO) {
+                    int casilla = (int) (siguiente & mascara);
+                    if (publicadas.getAcquire(casilla) != siguiente + 1) {
+                        break; // Aún no publicado (o reservado y en copia)
+                    }
+                    formatear(texto, casilla);
+                    siguiente++;
+                    cantidad++;
+                }
+
+                if (cantidad > 0) {
+                    liberadas = siguiente; // Los datos ya se copiaron al texto
+                    escribir(texto, cantidad);
+                    texto.setLength(0);
+                } else if (cerrando && reservadas.compareAndSet(siguiente, CERRADO)) {
+                    break; // Nada pendiente; las reservas siguientes se descartan
+                } else {
+                    LockSupport.parkNanos(ESPERA_SIN_EVENTOS_NANOS);
+                }
+            }
+        } finally {
+            // Si el ciclo terminó por un error, los eventos reservados y no escritos se
+            // cuentan como descartados y se cierran las reservas
+            long sinEscribir = reservadas.getAndSet(CERRADO);
+            if (sinEscribir != CERRADO && sinEscribir > siguiente) {
+                descartados.addAndGet(sinEscribir - siguiente);
+            }
+        }
+
+        try {
+            canal.force(false);
+            canal.close();
+        } catch (IOException e) {
+            errorEscritura = e;
+        }
+    }
+
+    private void formatear(StringBuilder texto, int casilla) {
+        TipoEvento tipo = TipoEvento.values()[tipos[casilla]];
+        texto.append(Instant.ofEpochMilli(instantes[casilla])).append(' ').append(tipo);
+        switch (tipo) {
+            case PRESTAMO_CREADO:
+                texto.append(" isbn=").append(ValidadorISBN.formatearISBN(isbns[casilla]))
+                        .append(" run=").append(ValidadorRUN.formatearRUN(runs[casilla]))
+                        .append(" dias=").append(valores[casilla])
+                        .append(" fecha=").append(LocalDate.ofEpochDay(fechas[casilla]));
+                break;
+            case PRESTAMO_CERRADO:
+                texto.append(" isbn=").append(ValidadorISBN.formatearISBN(isbns[casilla]))
+                        .append(" run=").append(ValidadorRUN.formatearRUN(runs[casilla]))
+                        .append(" fecha=").append(LocalDate.ofEpochDay(fechas[casilla]));
+                break;
+            case MULTA_APLICADA:
+                texto.append(" isbn=").append(ValidadorISBN.formatearISBN(isbns[casilla]))
+                        .append(" run=").append(ValidadorRUN.formatearRUN(runs[casilla]))
+                        .append(" multa=").append(valores[casilla])
+                        .append(" fecha=").append(LocalDate.ofEpochDay(fechas[casilla]));
+                break;
+            case USUARIO_EDITADO:
+                texto.append(" run=").append(ValidadorRUN.formatearRUN(runs[casilla]))
+                        .append(" runNuevo=").append(ValidadorRUN.formatearRUN(valores[casilla]));
+                break;
+            case LIBRO_ELIMINADO:
+                texto.append(" isbn=").append(ValidadorISBN.formatearISBN(isbns[casilla]));
+                break;
+        }
+        texto.append('\n');
+    }
+
+    /**
+     * Escribe un lote en el archivo actual, cambiando antes al siguiente si el actual
+     * quedaría por sobre el tamaño máximo. Si la escritura falla, el lote se cuenta como
+     * descartado y se reintenta con el próximo, para no detener a quien publica.
+     */
+    private void escribir(StringBuilder texto, int cantidad) {
+        ByteBuffer datos = StandardCharsets.UTF_8.encode(texto.toString());
+        try {
+            if (tamanoActual > 0 && tamanoActual + datos.remaining() > tamanoMaximoArchivo) {
+                canal.force(false);
+                canal.close();
+                archivoActual++;
+                canal = abrirArchivo(archivoActual);
+                tamanoActual = 0;
+            }
+            while (datos.hasRemaining()) {
+                tamanoActual += canal.write(datos);
+            }
+            escritos += cantidad;
+        } catch (IOException e) {
+            errorEscritura = e; // Se consulta con getErrorEscritura y se lanza al cerrar
+            descartados.addAndGet(cantidad);
+        }
+    }
+
+    /**
+     * Escribe los eventos pendientes, cierra el archivo actual y detiene el hilo de fondo.
+     * Los eventos publicados después de que el hilo de fondo termina se descartan y se cuentan.
+     *
+     * @throws IOException si falló alguna escritura
+     */
+    @Override
+    public void close() throws IOException {
+        cerrando = true;
+        try {
+            hiloEscritura.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (errorEscritura != null) {
+            throw errorEscritura;
+        }
+    }
+
+    // ==================== ARCHIVOS ====================
+
+    private FileChannel abrirArchivo(int numero) throws IOException {
+        Path ruta = directorio.resolve(String.format("%s%08d%s", PREFIJO_ARCHIVO, numero, EXTENSION_ARCHIVO));
+        return FileChannel.open(ruta, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private int ultimoArchivo() throws IOException {
+        int ultimo = 0;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio,
+                PREFIJO_ARCHIVO + "*" + EXTENSION_ARCHIVO)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                try {
+                    ultimo = Math.max(ultimo, Integer.parseInt(
+                            nombre.substring(PREFIJO_ARCHIVO.length(), nombre.length() - EXTENSION_ARCHIVO.length())));
+                } catch (NumberFormatException e) {
+                    // Archivo ajeno al registro
+                }
+            }
+        }
+        return ultimo;
+    }
+}
@@ -0,0 +1,99 @@
+package unab.biblioteca.persistencia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva: filas leídas, aceptadas y rechazadas.
+ * Para que la memoria no crezca con el archivo, solo se guarda el detalle de los
+ * primeros rechazos; el total se cuenta siempre.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ResultadoImportacion {
+
+    /** Cantidad máxima de rechazos con detalle. */
+    public static final int MAXIMO_RECHAZOS_DETALLADOS = 10_000;
+
+    /**
+     * Fila rechazada y el motivo.
+     */
+    public static class Rechazo {
+        private final long linea;
+        private final String motivo;
+
+        public Rechazo(long linea, String motivo) {
+            this.linea = linea;
+            this.motivo = motivo;
+        }
+
+        public long getLinea() {
+            return linea;
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+
+        @Override
+        public String toString() {
+            return "Línea " + linea + ": " + motivo;
+        }
+    }
+
+    private long filasLeidas;
+    private long aceptadas;
+    private long totalRechazos;
+    private final ArrayList<Rechazo> rechazos = new ArrayList<>();
+
+    void contarFila() {
+        filasLeidas++;
+    }
+
+    void contarAceptada() {
+        aceptadas++;
+    }
+
+    void contarAceptadas(long cantidad) {
+        aceptadas += cantidad;
+    }
+
+    void rechazar(long linea, String motivo) {
+        totalRechazos++;
+        if (rechazos.size() < MAXIMO_RECHAZOS_DETALLADOS) {
+            rechazos.add(new Rechazo(linea, motivo));
+        }
+    }
+
+    public long getFilasLeidas() {
+        return filasLeidas;
+    }
+
+    public long getAceptadas() {
+        return aceptadas;
+    }
+
+    public long getTotalRechazos() {
+        return totalRechazos;
+    }
+
+    /**
+     * Retorna el detalle de los rechazos, en el orden en que se detectaron.
+     * Si hubo más de MAXIMO_RECHAZOS_DETALLADOS, solo incluye los primeros.
+     *
+     * @return Lista de rechazos (no modificable)
+     */
+    public List<Rechazo> getRechazos() {
+        return Collections.unmodifiableList(rechazos);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoImportacion{" +
+                "filasLeidas=" + filasLeidas +
+                ", aceptadas=" + aceptadas +
+                ", rechazadas=" + totalRechazos +
+                '}';
+    }
+}
@@ -0,0 +1,203 @@
+package unab.biblioteca.servidor;
+
+import unab.biblioteca.controllers.ResultadoCirculacion;
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import unab.biblioteca.models.Estudiante;
+import unab.biblioteca.models.Libro;
+import unab.biblioteca.utils.ValidadorISBN;
+import unab.biblioteca.utils.ValidadorRUN;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generador de carga para el {@link ServidorBinario}: abre varias conexiones, cada una
+ * envía préstamos y devoluciones alternados con hasta cierta cantidad de solicitudes en
+ * curso (pipelining), y al final informa el rendimiento y la latencia (p50, p99, p99,9 y
+ * máxima) de todas las solicitudes.
+ *
+ * Sin --host levanta en el mismo proceso un sistema con un catálogo generado y un
+ * servidor en un puerto libre. Con --host se conecta a un servidor cuyo sistema debe
+ * tener el mismo catálogo generado: los estudiantes con RUN 10.000.000 en adelante y los
+ * libros con ISBN 978-0-00-000000-? en adelante. Cada conexión usa estudiantes propios,
+ * de modo que sus préstamos y devoluciones se realizan y no se rechazan entre sí.
+ *
+ * Uso: java unab.biblioteca.servidor.ClienteCarga [--host h --puerto p] [--conexiones 64]
+ * [--solicitudes 100000] [--en-curso 32] [--usuarios 10000] [--libros 1000]
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ClienteCarga {
+
+    private static final int PRIMER_RUN = 10_000_000;
+    private static final long PRIMER_ISBN = 978_000_000_000L; // Sin el dígito de control
+
+    public static void main(String[] args) throws Exception {
+        String host = opcion(args, "--host", null);
+        String textoPuerto = opcion(args, "--puerto", null);
+        if (host != null && textoPuerto == null) {
+            throw new IllegalArgumentException("Con --host se debe indicar --puerto");
+        }
+        int puerto = (textoPuerto != null) ? Integer.parseInt(textoPuerto) : 0;
+        int conexiones = Integer.parseInt(opcion(args, "--conexiones", "64"));
+        int solicitudes = Integer.parseInt(opcion(args, "--solicitudes", "100000"));
+        int enCurso = Integer.parseInt(opcion(args, "--en-curso", "32"));
+        int usuarios = Integer.parseInt(opcion(args, "--usuarios", "10000"));
+        int libros = Integer.parseInt(opcion(args, "--libros", "1000"));
+        if (conexiones <= 0 || solicitudes < conexiones || enCurso <= 0 || usuarios < conexiones || libros <= 0) {
+            throw new IllegalArgumentException("Parámetros de carga inválidos");
+        }
+
+        ServidorBinario local = null;
+        if (host == null) {
+            SistemaBiblioteca sistema = new SistemaBiblioteca();
+            for (int i = 0; i < usuarios; i++) {
+                sistema.crearUsuario(new Estudiante("Estudiante " + i, ValidadorRUN.formatearRUN(PRIMER_RUN + i), 'F',
+                        "Carga"));
+            }
+            for (int i = 0; i < libros; i++) {
+                sistema.crearLibro(new Libro(ValidadorISBN.formatearISBN(isbn(i)), "Libro " + i, "Autor", usuarios,
+                        usuarios, ""));
+            }
+            local = new ServidorBinario(sistema, 0);
+            local.iniciar();
+            host = "localhost";
+            puerto = local.getPuerto();
+            System.out.println("Servidor local con " + usuarios + " usuarios y " + libros + " libros en el puerto "
+                    + puerto + ".");
+        }
+
+        InetSocketAddress direccion = new InetSocketAddress(host, puerto);
+        int porConexion = solicitudes / conexiones;
+        int usuariosPorConexion = usuarios / conexiones;
+        ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<long[]>> latencias = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int c = 0; c < conexiones; c++) {
+            int primerUsuario = c * usuariosPorConexion;
+            latencias.add(hilos.submit(() -> cargar(direccion, porConexion, enCurso, primerUsuario,
+                    usuariosPorConexion, libros)));
+        }
+
+        long[] todas = new long[porConexion * conexiones];
+        long rechazadas = 0;
+        int n = 0;
+        for (Future<long[]> resultado : latencias) {
+            long[] deConexion = resultado.get();
+            for (long latencia : deConexion) {
+                if (latencia < 0) {
+                    rechazadas++;
+                    latencia = -latencia;
+                }
+                todas[n++] = latencia;
+            }
+        }
+        long duracion = System.nanoTime() - inicio;
+        hilos.close();
+        if (local != null) {
+            local.close();
+        }
+
+        Arrays.sort(todas);
+        System.out.printf("%d solicitudes en %d conexiones (%d en curso por conexión) en %.2f s%n",
+                todas.length, conexiones, enCurso, duracion / 1e9);
+        System.out.printf("Rendimiento: %.0f solicitudes/s (%d rechazadas)%n", todas.length / (duracion / 1e9), rechazadas);
+        System.out.printf("Latencia: p50 %.1f µs, p99 %.1f µs, p99,9 %.1f µs, máxima %.1f µs%n",
+                percentil(todas, 0.50) / 1e3, percentil(todas, 0.99) / 1e3, percentil(todas, 0.999) / 1e3,
+                todas[todas.length - 1] / 1e3);
+    }
+
+    /**
+     * Envía las solicitudes de una conexión: el usuario i de la conexión pide prestado un
+     * libro y en la solicitud siguiente lo devuelve.
+     *
+     * @return Latencia de cada solicitud en nanosegundos, negativa si se rechazó
+     */
+    private static long[] cargar(InetSocketAddress direccion, int cantidad, int enCurso, int primerUsuario,
+                                 int usuariosPorConexion, int libros) throws IOException {
+        long[] latencias = new long[cantidad];
+        ByteBuffer salida = ByteBuffer.allocateDirect(enCurso * (4 + ProtocoloBinario.LARGO_PRESTAMO));
+        ByteBuffer entrada = ByteBuffer.allocateDirect(64 * 1024);
+        try (SocketChannel canal = SocketChannel.open(direccion)) {
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            int enviadas = 0;
+            int recibidas = 0;
+            while (recibidas < cantidad) {
+                // Completar la ventana de solicitudes en curso
+                while (enviadas < cantidad && enviadas - recibidas < enCurso) {
+                    int par = enviadas / 2;
+                    int run = PRIMER_RUN + primerUsuario + par % usuariosPorConexion;
+                    long isbnClave = isbn(par % libros);
+                    if (enviadas % 2 == 0) {
+                        ProtocoloBinario.escribirPrestamo(salida, enviadas, isbnClave, run, 7);
+                    } else {
+                        ProtocoloBinario.escribirDevolucion(salida, enviadas, isbnClave, run);
+                    }
+                    latencias[enviadas++] = System.nanoTime();
+                }
+                salida.flip();
+                while (salida.hasRemaining()) {
+                    canal.write(salida);
+                }
+                salida.clear();
+
+                // Leer las respuestas que hayan llegado, en el orden de envío
+                if (canal.read(entrada) < 0) {
+                    throw new EOFException("El servidor cerró la conexión");
+                }
+                entrada.flip();
+                int largo;
+                while ((largo = ProtocoloBinario.tramaCompleta(entrada)) > 0) {
+                    int inicio = entrada.position();
+                    int id = ProtocoloBinario.id(entrada, inicio);
+                    long latencia = System.nanoTime() - latencias[id];
+                    boolean realizada = ProtocoloBinario.codigo(entrada, inicio)
+                            == ResultadoCirculacion.Codigo.REALIZADO;
+                    latencias[id] = realizada ? latencia : -latencia;
+                    recibidas++;
+                    entrada.position(inicio + largo);
+                }
+                entrada.compact();
+            }
+        }
+        return latencias;
+    }
+
+    /**
+     * ISBN-13 generado número i, con su dígito de control.
+     */
+    private static long isbn(int i) {
+        long sinControl = PRIMER_ISBN + i;
+        int suma = 0;
+        long resto = sinControl;
+        for (int posicion = 11; posicion >= 0; posicion--) {
+            int digito = (int) (resto % 10);
+            suma += (posicion % 2 == 0) ? digito : 3 * digito;
+            resto /= 10;
+        }
+        return sinControl * 10 + (10 - suma % 10) % 10;
+    }
+
+    private static long percentil(long[] ordenadas, double fraccion) {
+        int posicion = (int) Math.ceil(fraccion * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(ordenadas.length - 1, posicion))];
+    }
+
+    private static String opcion(String[] args, String nombre, String porDefecto) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(nombre)) {
+                return args[i + 1];
+            }
+        }
+        return porDefecto;
+    }
+}
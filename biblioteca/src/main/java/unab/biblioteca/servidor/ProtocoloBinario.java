@@ -0,0 +1,115 @@
+package unab.biblioteca.servidor;
+
+import unab.biblioteca.controllers.ResultadoCirculacion;
+import java.nio.ByteBuffer;
+
+/**
+ * Protocolo binario de circulación para kioscos: tramas de largo fijo con el RUN, el
+ * ISBN y los días codificados como enteros, sin texto que interpretar.
+ *
+ * Cada trama comienza con su largo, sin contarlo a él mismo (big-endian):
+ * <pre>
+ * [int largo][byte tipo][int id][datos...]
+ *
+ * PRESTAMO   datos: [long isbnClave][int runClave][int dias]     (largo 21)
+ * DEVOLUCION datos: [long isbnClave][int runClave]                (largo 17)
+ * RESPUESTA  datos: [byte codigo][int valor]                      (largo 10)
+ * </pre>
+ * isbnClave es el ISBN-13 como número y runClave el cuerpo del RUN, sin dígito
+ * verificador. codigo es el número fijo de {@link ResultadoCirculacion.Codigo#getNumero()},
+ * que no cambia si se reordena el enum, y valor es, si la operación se realizó, el día
+ * de devolución pactado (días desde la época) en un préstamo o la multa en una devolución.
+ *
+ * Un cliente puede enviar varias solicitudes sin esperar las respuestas (pipelining).
+ * El servidor las atiende en orden y responde en el mismo orden, con el id de cada
+ * solicitud. Los métodos de esta clase leen y escriben directamente sobre el ByteBuffer
+ * de la conexión, sin copiar a arreglos intermedios ni crear objetos por trama.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public final class ProtocoloBinario {
+
+    // Tipos de trama
+    public static final byte PRESTAMO = 1;
+    public static final byte DEVOLUCION = 2;
+    public static final byte RESPUESTA = 3;
+
+    static final int LARGO_PRESTAMO = 1 + 4 + 8 + 4 + 4;
+    static final int LARGO_DEVOLUCION = 1 + 4 + 8 + 4;
+    static final int LARGO_RESPUESTA = 1 + 4 + 1 + 4;
+
+    private ProtocoloBinario() {
+    }
+
+    // ==================== ESCRITURA ====================
+
+    public static void escribirPrestamo(ByteBuffer destino, int id, long isbnClave, int runClave, int dias) {
+        destino.putInt(LARGO_PRESTAMO).put(PRESTAMO).putInt(id)
+                .putLong(isbnClave).putInt(runClave).putInt(dias);
+    }
+
+    public static void escribirDevolucion(ByteBuffer destino, int id, long isbnClave, int runClave) {
+        destino.putInt(LARGO_DEVOLUCION).put(DEVOLUCION).putInt(id)
+                .putLong(isbnClave).putInt(runClave);
+    }
+
+    public static void escribirRespuesta(ByteBuffer destino, int id, ResultadoCirculacion.Codigo codigo, int valor) {
+        destino.putInt(LARGO_RESPUESTA).put(RESPUESTA).putInt(id)
+                .put((byte) codigo.getNumero()).putInt(valor);
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Indica si en la posición actual del buffer hay una trama completa, sin avanzar.
+     *
+     * @param origen Buffer en modo lectura
+     * @return Largo total de la trama (contando el int del largo), o 0 si aún no llega completa
+     * @throws IllegalStateException si el largo anunciado no corresponde a ningún tipo de trama
+     */
+    public static int tramaCompleta(ByteBuffer origen) {
+        if (origen.remaining() < 4) {
+            return 0;
+        }
+        int largo = origen.getInt(origen.position());
+        if (largo != LARGO_PRESTAMO && largo != LARGO_DEVOLUCION && largo != LARGO_RESPUESTA) {
+            throw new IllegalStateException("Trama de largo inválido: " + largo);
+        }
+        return (origen.remaining() >= 4 + largo) ? 4 + largo : 0;
+    }
+
+    // Lectura de campos de la trama que comienza en la posición inicio (lecturas absolutas)
+
+    public static byte tipo(ByteBuffer origen, int inicio) {
+        return origen.get(inicio + 4);
+    }
+
+    public static int id(ByteBuffer origen, int inicio) {
+        return origen.getInt(inicio + 5);
+    }
+
+    public static long isbnClave(ByteBuffer origen, int inicio) {
+        return origen.getLong(inicio + 9);
+    }
+
+    public static int runClave(ByteBuffer origen, int inicio) {
+        return origen.getInt(inicio + 17);
+    }
+
+    public static int dias(ByteBuffer origen, int inicio) {
+        return origen.getInt(inicio + 21);
+    }
+
+    /**
+     * Lee el código de una respuesta.
+     *
+     * @throws IllegalArgumentException si el número no corresponde a ningún código
+     */
+    public static ResultadoCirculacion.Codigo codigo(ByteBuffer origen, int inicio) {
+        return ResultadoCirculacion.Codigo.desdeNumero(origen.get(inicio + 9));
+    }
+
+    public static int valor(ByteBuffer origen, int inicio) {
+        return origen.getInt(inicio + 10);
+    }
+}
@@ -0,0 +1,177 @@
+package unab.biblioteca.servidor;
+
+import unab.biblioteca.controllers.ResultadoCirculacion;
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor de préstamos y devoluciones con el {@link ProtocoloBinario}, para kioscos que
+ * necesitan muchas operaciones pequeñas con poca latencia.
+ *
+ * Cada conexión se atiende en un hilo virtual con un canal bloqueante y dos buffers
+ * directos: se lee lo que haya llegado, se atienden todas las tramas completas del
+ * buffer (un cliente puede enviar varias sin esperar respuesta) leyendo sus campos en
+ * su lugar, y las respuestas se acumulan en el buffer de salida, que se escribe de una
+ * vez antes de volver a leer. Un error de protocolo o de red cierra la conexión; los
+ * errores no se muestran (el servidor corre junto al menú de consola), sino que se
+ * cuentan y el último se puede consultar.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ServidorBinario implements Closeable {
+
+    private static final int CAPACIDAD_BUFFER = 64 * 1024;
+
+    private final SistemaBiblioteca sistema;
+    private final ServerSocketChannel canal;
+    private final ExecutorService hilos;
+    private final AtomicLong errores = new AtomicLong();
+    private volatile Exception ultimoError;
+
+    /**
+     * Constructor de ServidorBinario. El servidor queda escuchando, pero no acepta
+     * conexiones hasta llamar a {@link #iniciar()}.
+     *
+     * @param sistema Sistema cuyas operaciones se exponen
+     * @param puerto Puerto TCP (0 para elegir uno libre)
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorBinario(SistemaBiblioteca sistema, int puerto) throws IOException {
+        if (sistema == null) {
+            throw new IllegalArgumentException("El sistema no puede ser nulo");
+        }
+        this.sistema = sistema;
+        this.canal = ServerSocketChannel.open().bind(new InetSocketAddress(puerto), 1024);
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Comienza a aceptar conexiones.
+     */
+    public void iniciar() {
+        hilos.execute(this::aceptar);
+    }
+
+    /**
+     * Retorna el puerto en que escucha el servidor, útil si se creó con el puerto 0.
+     *
+     * @return Puerto TCP
+     */
+    public int getPuerto() {
+        return canal.socket().getLocalPort();
+    }
+
+    /**
+     * Retorna la cantidad de errores ocurridos al aceptar conexiones o al atenderlas
+     * (tramas inválidas o fallas de red), cada uno de los cuales cerró una conexión.
+     *
+     * @return Errores desde que se creó el servidor
+     */
+    public long getErrores() {
+        return errores.get();
+    }
+
+    /**
+     * Retorna el último error contado por {@link #getErrores()}.
+     *
+     * @return Último error, o null si no ha ocurrido ninguno
+     */
+    public Exception getUltimoError() {
+        return ultimoError;
+    }
+
+    /**
+     * Deja de aceptar conexiones y cierra las abiertas.
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+        hilos.shutdownNow(); // Interrumpe las lecturas en curso, lo que cierra sus canales
+        hilos.close();
+    }
+
+    private void aceptar() {
+        while (canal.isOpen()) {
+            try {
+                SocketChannel conexion = canal.accept();
+                conexion.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                hilos.execute(() -> atender(conexion));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                registrarError(e);
+            }
+        }
+    }
+
+    private void atender(SocketChannel conexion) {
+        ByteBuffer entrada = ByteBuffer.allocateDirect(CAPACIDAD_BUFFER);
+        ByteBuffer salida = ByteBuffer.allocateDirect(CAPACIDAD_BUFFER);
+        try (conexion) {
+            while (conexion.read(entrada) >= 0) {
+                entrada.flip();
+                int largo;
+                while ((largo = ProtocoloBinario.tramaCompleta(entrada)) > 0) {
+                    if (salida.remaining() < 4 + ProtocoloBinario.LARGO_RESPUESTA) {
+                        escribir(conexion, salida);
+                    }
+                    atenderTrama(entrada, entrada.position(), largo, salida);
+                    entrada.position(entrada.position() + largo);
+                }
+                entrada.compact();
+                escribir(conexion, salida);
+            }
+        } catch (ClosedChannelException e) {
+            // Conexión cerrada por el cliente o al cerrar el servidor
+        } catch (IOException | IllegalStateException e) {
+            if (canal.isOpen()) {
+                registrarError(e);
+            }
+        }
+    }
+
+    private void registrarError(Exception e) {
+        ultimoError = e;
+        errores.incrementAndGet();
+    }
+
+    private void atenderTrama(ByteBuffer entrada, int inicio, int largo, ByteBuffer salida) {
+        byte tipo = ProtocoloBinario.tipo(entrada, inicio);
+        int id = ProtocoloBinario.id(entrada, inicio);
+
+        ResultadoCirculacion resultado;
+        int valor = 0;
+        if (tipo == ProtocoloBinario.PRESTAMO && largo == 4 + ProtocoloBinario.LARGO_PRESTAMO) {
+            resultado = sistema.realizarPrestamo(ProtocoloBinario.isbnClave(entrada, inicio),
+                    ProtocoloBinario.runClave(entrada, inicio), ProtocoloBinario.dias(entrada, inicio));
+            if (resultado.esRealizado()) {
+                valor = resultado.getPrestamo().getDiaDevolucion();
+            }
+        } else if (tipo == ProtocoloBinario.DEVOLUCION && largo == 4 + ProtocoloBinario.LARGO_DEVOLUCION) {
+            resultado = sistema.realizarDevolucion(ProtocoloBinario.isbnClave(entrada, inicio),
+                    ProtocoloBinario.runClave(entrada, inicio));
+            valor = resultado.getMulta();
+        } else {
+            throw new IllegalStateException("Trama inesperada: tipo " + tipo + ", largo " + largo);
+        }
+        ProtocoloBinario.escribirRespuesta(salida, id, resultado.getCodigo(), valor);
+    }
+
+    private static void escribir(SocketChannel conexion, ByteBuffer salida) throws IOException {
+        salida.flip();
+        while (salida.hasRemaining()) {
+            conexion.write(salida);
+        }
+        salida.clear();
+    }
+}
@@ -0,0 +1,570 @@
+package unab.biblioteca.servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import unab.biblioteca.controllers.EstadisticasCirculacion;
+import unab.biblioteca.controllers.OperacionCirculacion;
+import unab.biblioteca.controllers.Pagina;
+import unab.biblioteca.controllers.ResultadoCirculacion;
+import unab.biblioteca.controllers.SistemaBiblioteca;
+import unab.biblioteca.models.*;
+import unab.biblioteca.utils.ValidadorISBN;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP embebido que expone las operaciones de {@link SistemaBiblioteca} a los
+ * kioscos y terminales de una sede, como alternativa al menú de consola.
+ *
+ * Usa el servidor HTTP del JDK y atiende cada solicitud en un hilo virtual propio, por
+ * lo que miles de solicitudes en curso (por ejemplo, esperando la bitácora o el bloqueo
+ * de un usuario) no requieren dimensionar un pool de hilos. Como el sistema ya es seguro
+ * para uso concurrente, el servidor no agrega bloqueos.
+ *
+ * Los parámetros van en la consulta (?clave=valor) o, en POST, en el cuerpo como
+ * formulario (application/x-www-form-urlencoded). Las respuestas son JSON:
+ * <pre>
+ * GET    /usuarios?cursor=&amp;maximo=       Página de usuarios (cursor de la respuesta anterior)
+ * GET    /usuarios/{run}                   Usuario
+ * POST   /usuarios                         Crea un usuario: tipo (docente o estudiante), nombre,
+ *                                          run, genero, profesion y grados (separados por coma)
+ *                                          o carrera
+ * DELETE /usuarios/{run}                   Elimina un usuario
+ * GET    /libros?cursor=&amp;maximo=         Página de libros
+ * GET    /libros?q=&amp;maximo=              Búsqueda por título o autor
+ * GET    /libros/{isbn}                    Libro
+ * POST   /libros                           Crea un libro: isbn, titulo, autor, cantidad, imagen
+ * DELETE /libros/{isbn}                    Elimina un libro
+ * POST   /prestamos                        Préstamo: isbn, run, dias
+ * POST   /devoluciones                     Devolución: isbn, run
+ * GET    /estadisticas                     Estadísticas de circulación
+ * </pre>
+ * Un préstamo o devolución rechazado responde 409 con el código y el mensaje del motivo.
+ * Una ruta con más de un segmento después del recurso (o que solo comienza con su nombre,
+ * como /usuariosX) responde 404. Un error interno responde 500 con un mensaje genérico;
+ * la excepción no se envía al cliente, sino que se cuenta y la última se puede consultar.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ServidorHttp implements Closeable {
+
+    private static final int CONEXIONES_EN_ESPERA = 1024;
+    private static final int MAXIMO_POR_PAGINA = 100;
+    private static final int PAGINA_POR_DEFECTO = 20;
+    private static final int LARGO_MAXIMO_CUERPO = 64 * 1024;
+
+    private final SistemaBiblioteca sistema;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+    private final AtomicLong errores = new AtomicLong();
+    private volatile RuntimeException ultimoError;
+
+    /**
+     * Constructor de ServidorHttp. El servidor queda escuchando, pero no atiende
+     * solicitudes hasta llamar a {@link #iniciar()}.
+     *
+     * @param sistema Sistema cuyas operaciones se exponen
+     * @param puerto Puerto TCP (0 para elegir uno libre)
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorHttp(SistemaBiblioteca sistema, int puerto) throws IOException {
+        if (sistema == null) {
+            throw new IllegalArgumentException("El sistema no puede ser nulo");
+        }
+        this.sistema = sistema;
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), CONEXIONES_EN_ESPERA);
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(hilos);
+
+        servidor.createContext("/usuarios", manejador(this::usuarios));
+        servidor.createContext("/libros", manejador(this::libros));
+        servidor.createContext("/prestamos", manejador(this::prestamos));
+        servidor.createContext("/devoluciones", manejador(this::devoluciones));
+        servidor.createContext("/estadisticas", manejador(this::estadisticas));
+    }
+
+    /**
+     * Comienza a atender solicitudes.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Retorna el puerto en que escucha el servidor, útil si se creó con el puerto 0.
+     *
+     * @return Puerto TCP
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Retorna la cantidad de solicitudes que fallaron por un error interno (respuesta 500).
+     *
+     * @return Errores desde que se creó el servidor
+     */
+    public long getErrores() {
+        return errores.get();
+    }
+
+    /**
+     * Retorna la excepción del último error interno contado por {@link #getErrores()}.
+     *
+     * @return Último error, o null si no ha ocurrido ninguno
+     */
+    public RuntimeException getUltimoError() {
+        return ultimoError;
+    }
+
+    /**
+     * Deja de aceptar solicitudes, espera hasta un segundo a que terminen las que están
+     * en curso y cierra el servidor.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        hilos.close();
+    }
+
+    // ==================== RECURSOS ====================
+
+    private Respuesta usuarios(Solicitud solicitud) {
+        String run = solicitud.recurso;
+        switch (solicitud.metodo) {
+            case "GET":
+                if (run == null) {
+                    Pagina<Usuario> pagina = sistema.listarUsuarios(solicitud.cursor(), solicitud.maximo(), null);
+                    StringBuilder json = new StringBuilder("{\"usuarios\":[");
+                    for (int i = 0; i < pagina.getElementos().size(); i++) {
+                        usuario(json.append((i > 0) ? "," : ""), pagina.getElementos().get(i).getFicha());
+                    }
+                    return Respuesta.ok(siguiente(json.append(']'), pagina).append('}'));
+                }
+                Usuario usuario = sistema.buscarUsuarioPorRUN(run);
+                return (usuario != null)
+                        ? Respuesta.ok(usuario(new StringBuilder(), usuario.getFicha()))
+                        : Respuesta.error(404, "El usuario con RUN " + run + " no existe.");
+            case "POST":
+                if (run != null) {
+                    return Respuesta.metodoNoPermitido();
+                }
+                Usuario nuevo = crearUsuario(solicitud);
+                return sistema.crearUsuario(nuevo)
+                        ? Respuesta.creado(usuario(new StringBuilder(), nuevo.getFicha()))
+                        : Respuesta.error(409, "Ya existe un usuario con RUN " + nuevo.getRun() + ".");
+            case "DELETE":
+                if (run == null) {
+                    return Respuesta.metodoNoPermitido();
+                }
+                return sistema.eliminarUsuario(run)
+                        ? Respuesta.ok(new StringBuilder("{\"eliminado\":true}"))
+                        : Respuesta.error(404, "El usuario con RUN " + run + " no existe.");
+            default:
+                return Respuesta.metodoNoPermitido();
+        }
+    }
+
+    private Respuesta libros(Solicitud solicitud) {
+        String isbn = solicitud.recurso;
+        switch (solicitud.metodo) {
+            case "GET":
+                if (isbn == null) {
+                    String consulta = solicitud.parametro("q");
+                    List<Libro> encontrados;
+                    Pagina<Libro> pagina = null;
+                    if (consulta != null) {
+                        encontrados = sistema.buscarLibros(consulta, solicitud.maximo());
+                    } else {
+                        pagina = sistema.listarLibros(solicitud.cursor(), solicitud.maximo(), null);
+                        encontrados = pagina.getElementos();
+                    }
+                    StringBuilder json = new StringBuilder("{\"libros\":[");
+                    for (int i = 0; i < encontrados.size(); i++) {
+                        libro(json.append((i > 0) ? "," : ""), encontrados.get(i).getFicha());
+                    }
+                    json.append(']');
+                    if (pagina != null) {
+                        siguiente(json, pagina);
+                    }
+                    return Respuesta.ok(json.append('}'));
+                }
+                Libro libro = sistema.buscarLibroPorISBN(isbn);
+                return (libro != null)
+                        ? Respuesta.ok(libro(new StringBuilder(), libro.getFicha()))
+                        : Respuesta.error(404, "El libro con ISBN " + isbn + " no existe.");
+            case "POST":
+                if (isbn != null) {
+                    return Respuesta.metodoNoPermitido();
+                }
+                int cantidad = solicitud.entero("cantidad");
+                Libro nuevo = new Libro(solicitud.requerido("isbn"), solicitud.requerido("titulo"),
+                        solicitud.requerido("autor"), cantidad, cantidad,
+                        (solicitud.parametro("imagen") != null) ? solicitud.parametro("imagen") : "");
+                return sistema.crearLibro(nuevo)
+                        ? Respuesta.creado(libro(new StringBuilder(), nuevo.getFicha()))
+                        : Respuesta.error(409, "Ya existe un libro con ISBN " + nuevo.getIsbn() + ".");
+            case "DELETE":
+                if (isbn == null) {
+                    return Respuesta.metodoNoPermitido();
+                }
+                return sistema.eliminarLibro(isbn)
+                        ? Respuesta.ok(new StringBuilder("{\"eliminado\":true}"))
+                        : Respuesta.error(404, "El libro con ISBN " + isbn + " no existe.");
+            default:
+                return Respuesta.metodoNoPermitido();
+        }
+    }
+
+    private Respuesta prestamos(Solicitud solicitud) {
+        if (!solicitud.metodo.equals("POST") || solicitud.recurso != null) {
+            return Respuesta.metodoNoPermitido();
+        }
+        OperacionCirculacion operacion = OperacionCirculacion.prestamo(solicitud.requerido("isbn"),
+                solicitud.requerido("run"), solicitud.entero("dias"));
+        ResultadoCirculacion resultado = sistema.realizarPrestamo(operacion.getIsbn(), operacion.getRun(),
+                operacion.getDias());
+        return circulacion(operacion, resultado);
+    }
+
+    private Respuesta devoluciones(Solicitud solicitud) {
+        if (!solicitud.metodo.equals("POST") || solicitud.recurso != null) {
+            return Respuesta.metodoNoPermitido();
+        }
+        OperacionCirculacion operacion = OperacionCirculacion.devolucion(solicitud.requerido("isbn"),
+                solicitud.requerido("run"));
+        ResultadoCirculacion resultado = sistema.realizarDevolucion(operacion.getIsbn(), operacion.getRun());
+        return circulacion(operacion, resultado);
+    }
+
+    private Respuesta estadisticas(Solicitud solicitud) {
+        if (!solicitud.metodo.equals("GET") || solicitud.recurso != null) {
+            return Respuesta.metodoNoPermitido();
+        }
+        EstadisticasCirculacion e = sistema.getEstadisticas();
+        StringBuilder json = new StringBuilder()
+                .append("{\"totalEjemplares\":").append(e.getTotalEjemplares())
+                .append(",\"ejemplaresPrestados\":").append(e.getEjemplaresPrestados())
+                .append(",\"prestamosActivos\":").append(e.getPrestamosActivos())
+                .append(",\"prestamosActivosDocentes\":").append(e.getPrestamosActivosDocentes())
+                .append(",\"prestamosActivosEstudiantes\":").append(e.getPrestamosActivosEstudiantes())
+                .append(",\"prestamosAtrasados\":").append(e.getPrestamosAtrasados())
+                .append(",\"devolucionesAtrasadas\":").append(e.getDevolucionesAtrasadas())
+                .append(",\"multasRecaudadas\":").append(e.getMultasRecaudadas())
+                .append('}');
+        return Respuesta.ok(json);
+    }
+
+    private Usuario crearUsuario(Solicitud solicitud) {
+        String tipo = solicitud.requerido("tipo");
+        String nombre = solicitud.requerido("nombre");
+        String run = solicitud.requerido("run");
+        String genero = solicitud.requerido("genero");
+        if (genero.length() != 1) {
+            throw new IllegalArgumentException("El género debe ser un solo carácter");
+        }
+        if (tipo.equalsIgnoreCase("docente")) {
+            String grados = solicitud.parametro("grados");
+            List<String> lista = (grados == null || grados.isBlank()) ? List.of() : Arrays.asList(grados.split(","));
+            return new Docente(nombre, run, genero.charAt(0), solicitud.requerido("profesion"), lista);
+        }
+        if (tipo.equalsIgnoreCase("estudiante")) {
+            return new Estudiante(nombre, run, genero.charAt(0), solicitud.requerido("carrera"));
+        }
+        throw new IllegalArgumentException("Tipo de usuario inválido: " + tipo);
+    }
+
+    private Respuesta circulacion(OperacionCirculacion operacion, ResultadoCirculacion resultado) {
+        if (resultado.getCodigo() == ResultadoCirculacion.Codigo.ERROR) {
+            registrarError(resultado.getError());
+            return Respuesta.error(500, "Error interno al realizar "
+                    + (operacion.esPrestamo() ? "el préstamo" : "la devolución"));
+        }
+        StringBuilder json = new StringBuilder("{\"codigo\":\"").append(resultado.getCodigo()).append('"');
+        texto(json.append(",\"mensaje\":"), resultado.describir(operacion, sistema));
+        if (resultado.esRealizado()) {
+            prestamo(json.append(",\"prestamo\":"), resultado.getPrestamo().getFicha());
+            if (!operacion.esPrestamo()) {
+                json.append(",\"multa\":").append(resultado.getMulta());
+            }
+        }
+        json.append('}');
+        return new Respuesta(resultado.esRealizado() ? 200 : 409, json);
+    }
+
+    // ==================== JSON ====================
+
+    private static StringBuilder usuario(StringBuilder json, FichaUsuario ficha) {
+        json.append("{\"run\":\"").append(ficha.getRun()).append('"');
+        texto(json.append(",\"nombre\":"), ficha.getNombreCompleto());
+        json.append(",\"genero\":\"").append(ficha.getGenero()).append('"');
+        if (ficha instanceof FichaDocente) {
+            FichaDocente docente = (FichaDocente) ficha;
+            texto(json.append(",\"tipo\":\"docente\",\"profesion\":"), docente.getProfesion());
+            json.append(",\"grados\":[");
+            for (int i = 0; i < docente.getGrados().size(); i++) {
+                texto(json.append((i > 0) ? "," : ""), docente.getGrados().get(i));
+            }
+            json.append(']');
+        } else if (ficha instanceof FichaEstudiante) {
+            texto(json.append(",\"tipo\":\"estudiante\",\"carrera\":"), ((FichaEstudiante) ficha).getCarrera());
+        }
+        json.append(",\"periodoMaximo\":").append(ficha.getPeriodoMaximoPrestamo());
+        if (ficha.tienePrestamo()) {
+            json.append(",\"prestamo\":\"").append(ValidadorISBN.formatearISBN(ficha.getPrestamo())).append('"');
+        }
+        return json.append('}');
+    }
+
+    private static StringBuilder libro(StringBuilder json, FichaLibro ficha) {
+        json.append("{\"isbn\":\"").append(ficha.getIsbn()).append('"');
+        texto(json.append(",\"titulo\":"), ficha.getTitulo());
+        texto(json.append(",\"autor\":"), ficha.getAutor());
+        json.append(",\"cantidad\":").append(ficha.getCantidadBiblioteca())
+                .append(",\"disponibles\":").append(ficha.getCantidadDisponible());
+        if (ficha.getImagen() != null && !ficha.getImagen().isEmpty()) {
+            texto(json.append(",\"imagen\":"), ficha.getImagen());
+        }
+        return json.append('}');
+    }
+
+    private static StringBuilder prestamo(StringBuilder json, FichaPrestamo ficha) {
+        return json.append("{\"isbn\":\"").append(ficha.getIsbn())
+                .append("\",\"run\":\"").append(ficha.getRun())
+                .append("\",\"fechaPrestamo\":\"").append(ficha.getFechaPrestamo())
+                .append("\",\"dias\":").append(ficha.getDiasPrestados())
+                .append(",\"fechaDevolucion\":\"").append(ficha.getFechaDevolucion())
+                .append("\",\"activo\":").append(ficha.estaActivo())
+                .append('}');
+    }
+
+    private static StringBuilder siguiente(StringBuilder json, Pagina<?> pagina) {
+        return pagina.hayMas() ? json.append(",\"siguiente\":").append(pagina.getSiguiente()) : json;
+    }
+
+    /**
+     * Agrega un texto como cadena JSON, con comillas y caracteres de control escapados.
+     */
+    private static StringBuilder texto(StringBuilder json, String valor) {
+        if (valor == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    // ==================== PROTOCOLO ====================
+
+    /**
+     * Adapta un recurso a HttpHandler: arma la solicitud, responde 404 si la ruta no
+     * corresponde al recurso, convierte los errores de datos en respuestas 400 y los
+     * demás en 500, y escribe la respuesta.
+     */
+    private HttpHandler manejador(Recurso recurso) {
+        return intercambio -> {
+            Respuesta respuesta;
+            try {
+                Solicitud solicitud = Solicitud.leer(intercambio);
+                respuesta = (solicitud != null) ? recurso.atender(solicitud)
+                        : Respuesta.error(404, "Recurso no encontrado");
+            } catch (IllegalArgumentException e) {
+                respuesta = Respuesta.error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                registrarError(e);
+                respuesta = Respuesta.error(500, "Error interno del servidor");
+            }
+            responder(intercambio, respuesta);
+        };
+    }
+
+    private void registrarError(RuntimeException e) {
+        ultimoError = e;
+        errores.incrementAndGet();
+    }
+
+    private static void responder(HttpExchange intercambio, Respuesta respuesta) throws IOException {
+        byte[] cuerpo = respuesta.json.toString().getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(respuesta.estado, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Recurso {
+        Respuesta atender(Solicitud solicitud);
+    }
+
+    /**
+     * Método, recurso (lo que sigue al contexto en la ruta, por ejemplo el RUN) y parámetros
+     * de una solicitud.
+     */
+    private static final class Solicitud {
+        final String metodo;
+        final String recurso;
+        final Map<String, String> parametros;
+
+        private Solicitud(String metodo, String recurso, Map<String, String> parametros) {
+            this.metodo = metodo;
+            this.recurso = recurso;
+            this.parametros = parametros;
+        }
+
+        /**
+         * Lee la solicitud.
+         *
+         * @return Solicitud leída, o null si la ruta no es el contexto seguido a lo más de
+         *         un segmento (el servidor del JDK asocia un contexto a toda ruta que comience
+         *         con él, incluidas /usuariosX y /usuarios/a/b)
+         */
+        static Solicitud leer(HttpExchange intercambio) throws IOException {
+            String contexto = intercambio.getHttpContext().getPath();
+            // Ruta sin decodificar: un %2F dentro de un RUN o ISBN no separa segmentos
+            String ruta = intercambio.getRequestURI().getRawPath();
+            String resto = ruta.substring(Math.min(ruta.length(), contexto.length()));
+            if (!resto.isEmpty()) {
+                if (resto.charAt(0) != '/') {
+                    return null;
+                }
+                resto = resto.substring(1);
+            }
+            if (resto.endsWith("/")) {
+                resto = resto.substring(0, resto.length() - 1);
+            }
+            if (resto.indexOf('/') >= 0) {
+                return null;
+            }
+
+            Map<String, String> parametros = new HashMap<>();
+            decodificar(intercambio.getRequestURI().getRawQuery(), parametros);
+            if (intercambio.getRequestMethod().equals("POST")) {
+                decodificar(leerCuerpo(intercambio.getRequestBody()), parametros);
+            }
+            return new Solicitud(intercambio.getRequestMethod(), resto.isEmpty() ? null : decodificarSegmento(resto),
+                    parametros);
+        }
+
+        /**
+         * Decodifica un segmento de ruta una sola vez. A diferencia de un formulario, en
+         * una ruta el '+' es literal y no un espacio.
+         */
+        private static String decodificarSegmento(String segmento) {
+            return URLDecoder.decode(segmento.replace("+", "%2B"), StandardCharsets.UTF_8);
+        }
+
+        private static String leerCuerpo(InputStream entrada) throws IOException {
+            byte[] datos = entrada.readNBytes(LARGO_MAXIMO_CUERPO + 1);
+            if (datos.length > LARGO_MAXIMO_CUERPO) {
+                throw new IllegalArgumentException("El cuerpo de la solicitud es demasiado grande");
+            }
+            return new String(datos, StandardCharsets.UTF_8);
+        }
+
+        private static void decodificar(String formulario, Map<String, String> parametros) {
+            if (formulario == null || formulario.isEmpty()) {
+                return;
+            }
+            for (String par : formulario.split("&")) {
+                int igual = par.indexOf('=');
+                String clave = (igual >= 0) ? par.substring(0, igual) : par;
+                String valor = (igual >= 0) ? par.substring(igual + 1) : "";
+                parametros.put(URLDecoder.decode(clave, StandardCharsets.UTF_8),
+                        URLDecoder.decode(valor, StandardCharsets.UTF_8));
+            }
+        }
+
+        String parametro(String nombre) {
+            return parametros.get(nombre);
+        }
+
+        String requerido(String nombre) {
+            String valor = parametros.get(nombre);
+            if (valor == null || valor.isBlank()) {
+                throw new IllegalArgumentException("Falta el parámetro " + nombre);
+            }
+            return valor;
+        }
+
+        int entero(String nombre) {
+            try {
+                return Integer.parseInt(requerido(nombre).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El parámetro " + nombre + " debe ser un número entero");
+            }
+        }
+
+        /**
+         * Cursor de página: el campo "siguiente" de la respuesta anterior.
+         */
+        long cursor() {
+            String valor = parametros.get("cursor");
+            if (valor == null || valor.isBlank()) {
+                return Pagina.INICIO;
+            }
+            try {
+                return Long.parseLong(valor.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El parámetro cursor debe ser un número entero");
+            }
+        }
+
+        int maximo() {
+            String valor = parametros.get("maximo");
+            int maximo = (valor == null) ? PAGINA_POR_DEFECTO : entero("maximo");
+            if (maximo <= 0) {
+                throw new IllegalArgumentException("El parámetro maximo debe ser mayor a cero");
+            }
+            return Math.min(maximo, MAXIMO_POR_PAGINA);
+        }
+    }
+
+    private static final class Respuesta {
+        final int estado;
+        final StringBuilder json;
+
+        Respuesta(int estado, StringBuilder json) {
+            this.estado = estado;
+            this.json = json;
+        }
+
+        static Respuesta ok(StringBuilder json) {
+            return new Respuesta(200, json);
+        }
+
+        static Respuesta creado(StringBuilder json) {
+            return new Respuesta(201, json);
+        }
+
+        static Respuesta error(int estado, String mensaje) {
+            return new Respuesta(estado, texto(new StringBuilder("{\"error\":"), mensaje).append('}'));
+        }
+
+        static Respuesta metodoNoPermitido() {
+            return error(405, "Método no permitido para este recurso");
+        }
+    }
+}
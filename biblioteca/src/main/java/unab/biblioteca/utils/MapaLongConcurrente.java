@@ -0,0 +1,371 @@
+package unab.biblioteca.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Mapa concurrente con claves primitivas long (también sirve para claves int).
+ * Usa direccionamiento abierto con sondeo lineal, por lo que no crea objetos por
+ * entrada ni encapsula las claves (sin boxing).
+ *
+ * El mapa se divide en segmentos, cada uno protegido por un StampedLock: las
+ * lecturas son optimistas (sin escribir en memoria compartida) y las escrituras
+ * bloquean solo su segmento. Los valores no pueden ser null; un casillero con
+ * valor null está vacío.
+ *
+ * @param <V> Tipo de los valores
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class MapaLongConcurrente<V> {
+
+    private static final int SEGMENTOS = 16; // Potencia de 2
+    private static final int CAPACIDAD_INICIAL = 16; // Por segmento, potencia de 2
+
+    private final Segmento<V>[] segmentos;
+
+    /**
+     * Crea un mapa vacío.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MapaLongConcurrente() {
+        this.segmentos = (Segmento<V>[]) new Segmento[SEGMENTOS];
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento<>();
+        }
+    }
+
+    /**
+     * Busca el valor asociado a una clave.
+     *
+     * @param clave Clave a buscar
+     * @return Valor asociado o null si la clave no existe
+     */
+    public V get(long clave) {
+        long hash = mezclar(clave);
+        return segmento(hash).get(clave, (int) hash);
+    }
+
+    /**
+     * Asocia un valor a una clave solo si la clave no existe.
+     *
+     * @param clave Clave
+     * @param valor Valor a asociar (no null)
+     * @return null si se insertó, o el valor ya existente
+     */
+    public V putIfAbsent(long clave, V valor) {
+        long hash = mezclar(clave);
+        return segmento(hash).escribir(clave, (int) hash, actual -> actual != null ? actual : valor, true);
+    }
+
+    /**
+     * Asocia un valor a una clave, reemplazando el anterior si existía.
+     *
+     * @param clave Clave
+     * @param valor Valor a asociar (no null)
+     * @return Valor anterior o null
+     */
+    public V put(long clave, V valor) {
+        long hash = mezclar(clave);
+        return segmento(hash).escribir(clave, (int) hash, actual -> valor, true);
+    }
+
+    /**
+     * Elimina una clave.
+     *
+     * @param clave Clave a eliminar
+     * @return Valor eliminado o null si no existía
+     */
+    public V remove(long clave) {
+        long hash = mezclar(clave);
+        return segmento(hash).escribir(clave, (int) hash, actual -> null, true);
+    }
+
+    /**
+     * Elimina una clave solo si está asociada al valor indicado (comparado por identidad).
+     *
+     * @param clave Clave a eliminar
+     * @param valor Valor esperado
+     * @return true si se eliminó
+     */
+    public boolean remove(long clave, V valor) {
+        long hash = mezclar(clave);
+        return segmento(hash).escribir(clave, (int) hash, actual -> actual == valor ? null : actual, true) == valor;
+    }
+
+    /**
+     * Recalcula atómicamente el valor de una clave.
+     * La función recibe el valor actual (o null) y retorna el nuevo (o null para eliminar).
+     * Se ejecuta con el segmento bloqueado, por lo que debe ser breve.
+     *
+     * @param clave Clave
+     * @param funcion Función de recálculo
+     * @return Nuevo valor asociado o null
+     */
+    public V compute(long clave, UnaryOperator<V> funcion) {
+        long hash = mezclar(clave);
+        return segmento(hash).escribir(clave, (int) hash, funcion, false);
+    }
+
+    /**
+     * Inserta varias entradas de forma atómica: bloquea todos los segmentos (siempre en
+     * el mismo orden), inserta las claves que no existen y recién entonces los libera,
+     * de modo que ningún lector ve solo una parte del grupo. Si una clave se repite dentro
+     * del grupo, solo se inserta la primera aparición.
+     *
+     * @param claves Claves a insertar
+     * @param valores Valores, en el mismo orden que las claves (no null)
+     * @param alInsertar Acción ejecutada por cada valor insertado, con los segmentos aún
+     *                   bloqueados; debe ser breve y no usar este mapa (puede ser null)
+     * @return Arreglo que indica, para cada posición, si se insertó
+     */
+    public boolean[] putAllIfAbsent(long[] claves, List<V> valores, Consumer<V> alInsertar) {
+        if (claves.length != valores.size()) {
+            throw new IllegalArgumentException("La cantidad de claves y valores no coincide");
+        }
+
+        boolean[] insertados = new boolean[claves.length];
+        long[] stamps = new long[SEGMENTOS];
+        for (int i = 0; i < SEGMENTOS; i++) {
+            stamps[i] = segmentos[i].lock.writeLock();
+        }
+        try {
+            for (int i = 0; i < claves.length; i++) {
+                V valor = valores.get(i);
+                long hash = mezclar(claves[i]);
+                insertados[i] = segmento(hash).insertarSiAusente(claves[i], (int) hash, valor);
+                if (insertados[i] && alInsertar != null) {
+                    alInsertar.accept(valor);
+                }
+            }
+        } finally {
+            for (int i = SEGMENTOS - 1; i >= 0; i--) {
+                segmentos[i].lock.unlockWrite(stamps[i]);
+            }
+        }
+        return insertados;
+    }
+
+    /**
+     * Cantidad de entradas del mapa.
+     *
+     * @return Número de claves
+     */
+    public int size() {
+        int total = 0;
+        for (Segmento<V> segmento : segmentos) {
+            total += segmento.tamano;
+        }
+        return total;
+    }
+
+    /**
+     * Copia los valores del mapa. Cada segmento se copia de forma consistente.
+     *
+     * @return ArrayList con los valores
+     */
+    public ArrayList<V> valores() {
+        ArrayList<V> resultado = new ArrayList<>(size());
+        for (Segmento<V> segmento : segmentos) {
+            segmento.copiarValores(resultado);
+        }
+        return resultado;
+    }
+
+    private Segmento<V> segmento(long hash) {
+        return segmentos[(int) (hash >>> 60) & (SEGMENTOS - 1)];
+    }
+
+    /**
+     * Dispersa los bits de la clave (finalizador de MurmurHash3), ya que RUNs e ISBNs
+     * consecutivos caerían en casilleros consecutivos.
+     */
+    private static long mezclar(long clave) {
+        clave ^= clave >>> 33;
+        clave *= 0xff51afd7ed558ccdL;
+        clave ^= clave >>> 33;
+        clave *= 0xc4ceb9fe1a85ec53L;
+        clave ^= clave >>> 33;
+        return clave;
+    }
+
+    /**
+     * Arreglos de un segmento. Se reemplazan completos al crecer, de modo que una
+     * lectura optimista siempre ve claves y valores del mismo tamaño.
+     */
+    private static final class Tabla {
+        final long[] claves;
+        final Object[] valores;
+
+        Tabla(int capacidad) {
+            this.claves = new long[capacidad];
+            this.valores = new Object[capacidad];
+        }
+    }
+
+    private static final class Segmento<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Tabla tabla = new Tabla(CAPACIDAD_INICIAL);
+        private volatile int tamano;
+
+        V get(long clave, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                V valor = buscar(tabla, clave, hash);
+                if (lock.validate(stamp)) {
+                    return valor;
+                }
+            }
+
+            // Hubo una escritura concurrente: reintentar con bloqueo de lectura
+            stamp = lock.readLock();
+            try {
+                return buscar(tabla, clave, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V buscar(Tabla t, long clave, int hash) {
+            int mascara = t.claves.length - 1;
+            int i = hash & mascara;
+            // Acotado por la capacidad: una lectura optimista puede ver la tabla a medio modificar
+            for (int n = 0; n <= mascara; n++) {
+                Object valor = t.valores[i];
+                if (valor == null) {
+                    return null;
+                }
+                if (t.claves[i] == clave) {
+                    return (V) valor;
+                }
+                i = (i + 1) & mascara;
+            }
+            return null;
+        }
+
+        /**
+         * Aplica la función al valor actual de la clave con el segmento bloqueado.
+         *
+         * @param retornarAnterior true para retornar el valor anterior, false para el nuevo
+         */
+        @SuppressWarnings("unchecked")
+        V escribir(long clave, int hash, UnaryOperator<V> funcion, boolean retornarAnterior) {
+            long stamp = lock.writeLock();
+            try {
+                Tabla t = tabla;
+                int mascara = t.claves.length - 1;
+                int i = hash & mascara;
+                while (t.valores[i] != null && t.claves[i] != clave) {
+                    i = (i + 1) & mascara;
+                }
+
+                V anterior = (V) t.valores[i];
+                V nuevo = funcion.apply(anterior);
+
+                if (nuevo == anterior) {
+                    return retornarAnterior ? anterior : nuevo;
+                }
+
+                if (nuevo == null) {
+                    eliminarEn(t, i);
+                    tamano--;
+                } else if (anterior == null) {
+                    t.claves[i] = clave;
+                    t.valores[i] = nuevo;
+                    tamano++;
+                    // Factor de carga máximo: 0,5
+                    if (tamano * 2 > t.claves.length) {
+                        crecer(t);
+                    }
+                } else {
+                    t.valores[i] = nuevo;
+                }
+                return retornarAnterior ? anterior : nuevo;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Inserta la clave si no existe. Debe llamarse con el segmento bloqueado.
+         */
+        boolean insertarSiAusente(long clave, int hash, V valor) {
+            Tabla t = tabla;
+            int mascara = t.claves.length - 1;
+            int i = hash & mascara;
+            while (t.valores[i] != null) {
+                if (t.claves[i] == clave) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+            t.claves[i] = clave;
+            t.valores[i] = valor;
+            tamano++;
+            if (tamano * 2 > t.claves.length) {
+                crecer(t);
+            }
+            return true;
+        }
+
+        /**
+         * Elimina el casillero i desplazando hacia atrás las entradas siguientes del
+         * mismo grupo, para no dejar marcas de borrado.
+         */
+        private void eliminarEn(Tabla t, int i) {
+            int mascara = t.claves.length - 1;
+            int vacio = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mascara;
+                if (t.valores[j] == null) {
+                    break;
+                }
+                int ideal = (int) mezclar(t.claves[j]) & mascara;
+                // Mover j al hueco si su posición ideal no está entre el hueco (exclusive) y j (inclusive)
+                boolean enRango = (vacio <= j) ? (vacio < ideal && ideal <= j) : (vacio < ideal || ideal <= j);
+                if (!enRango) {
+                    t.claves[vacio] = t.claves[j];
+                    t.valores[vacio] = t.valores[j];
+                    vacio = j;
+                }
+            }
+            t.valores[vacio] = null;
+        }
+
+        private void crecer(Tabla vieja) {
+            Tabla nueva = new Tabla(vieja.claves.length * 2);
+            int mascara = nueva.claves.length - 1;
+            for (int i = 0; i < vieja.claves.length; i++) {
+                Object valor = vieja.valores[i];
+                if (valor != null) {
+                    long clave = vieja.claves[i];
+                    int j = (int) mezclar(clave) & mascara;
+                    while (nueva.valores[j] != null) {
+                        j = (j + 1) & mascara;
+                    }
+                    nueva.claves[j] = clave;
+                    nueva.valores[j] = valor;
+                }
+            }
+            tabla = nueva;
+        }
+
+        @SuppressWarnings("unchecked")
+        void copiarValores(ArrayList<V> destino) {
+            long stamp = lock.readLock();
+            try {
+                for (Object valor : tabla.valores) {
+                    if (valor != null) {
+                        destino.add((V) valor);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
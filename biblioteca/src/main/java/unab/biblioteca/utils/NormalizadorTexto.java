@@ -0,0 +1,68 @@
+package unab.biblioteca.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+
+/**
+ * Clase utilitaria para normalizar texto en búsquedas.
+ * Pasa a minúsculas y quita tildes y diéresis (incluida la tilde de la ñ), de modo que
+ * "Martín", "MARTIN" y "martin" se comparan iguales, y separa el texto en palabras
+ * formadas por letras y dígitos.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class NormalizadorTexto {
+
+    /**
+     * Normaliza un texto completo: minúsculas sin tildes, conservando los demás caracteres.
+     *
+     * @param texto Texto a normalizar
+     * @return Texto normalizado ("" si es null)
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String descompuesto = esAscii(texto) ? texto : Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder resultado = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                resultado.append(Character.toLowerCase(c));
+            }
+        }
+        return resultado.toString();
+    }
+
+    /**
+     * Separa un texto en palabras normalizadas. Todo carácter que no sea letra ni dígito
+     * actúa como separador.
+     *
+     * @param texto Texto a separar
+     * @return Palabras normalizadas, en el orden del texto (vacío si no hay ninguna)
+     */
+    public static String[] palabras(String texto) {
+        String normalizado = normalizar(texto);
+        ArrayList<String> palabras = new ArrayList<>();
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean esParte = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (esParte && inicio < 0) {
+                inicio = i;
+            } else if (!esParte && inicio >= 0) {
+                palabras.add(normalizado.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return palabras.toArray(new String[0]);
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package unab.biblioteca.utils;
+
+/**
+ * Clase utilitaria para validar y normalizar ISBN.
+ * Acepta ISBN-13 e ISBN-10, con o sin guiones o espacios, y los normaliza a un
+ * ISBN-13 codificado como long (por ejemplo 9780134685991). Así, distintas formas
+ * de escribir el mismo ISBN corresponden a la misma clave. Todo ISBN-13 válido empieza
+ * con 978 o 979, de modo que ninguna clave vale 0 (usado como "sin préstamo") ni es
+ * negativa.
+ *
+ * @author Alan, Francisco, Sandrino y Sebastián
+ */
+public class ValidadorISBN {
+
+    /** Resultado de parsearISBN cuando el ISBN no es válido. */
+    public static final long ISBN_INVALIDO = -1L;
+
+    private static final long PREFIJO_ISBN10 = 978_000_000_000L; // 978 seguido de 9 dígitos
+    private static final long DIEZ_DIGITOS = 10_000_000_000L;       // Lo que sigue al prefijo de un ISBN-13
+
+    /**
+     * Valida un ISBN y lo normaliza a ISBN-13 en un recorrido, sin asignar memoria.
+     *
+     * ISBN-13: debe empezar con 978 o 979 y los dígitos se ponderan alternadamente por 1 y 3;
+     * la suma debe ser múltiplo de 10.
+     * ISBN-10: los dígitos se ponderan por 10, 9, ..., 1 ('X' vale 10 y solo puede ir al final);
+     * la suma debe ser múltiplo de 11. Se convierte anteponiendo 978 y recalculando el control.
+     *
+     * @param isbn ISBN a validar
+     * @return ISBN-13 como long, o ISBN_INVALIDO
+     */
+    public static long parsearISBN(CharSequence isbn) {
+        if (isbn == null) {
+            return ISBN_INVALIDO;
+        }
+
+        long valor = 0;
+        int digitos = 0;
+        int suma13 = 0;
+        int suma10 = 0;
+        boolean controlX = false;
+
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (controlX || digitos == 13) {
+                return ISBN_INVALIDO;
+            }
+
+            int digito;
+            if (c >= '0' && c <= '9') {
+                digito = c - '0';
+                valor = valor * 10 + digito;
+            } else if ((c == 'X' || c == 'x') && digitos == 9) {
+                digito = 10;
+                controlX = true;
+            } else {
+                return ISBN_INVALIDO;
+            }
+
+            suma13 += (digitos % 2 == 0) ? digito : digito * 3;
+            suma10 += (10 - digitos) * digito;
+            digitos++;
+        }
+
+        if (digitos == 13 && !controlX) {
+            long prefijo = valor / DIEZ_DIGITOS;
+            return (suma13 % 10 == 0 && (prefijo == 978 || prefijo == 979)) ? valor : ISBN_INVALIDO;
+        }
+
+        if (digitos == 10) {
+            if (suma10 % 11 != 0) {
+                return ISBN_INVALIDO;
+            }
+            long sinControl = PREFIJO_ISBN10 + (controlX ? valor : valor / 10);
+            return sinControl * 10 + calcularControlISBN13(sinControl);
+        }
+
+        return ISBN_INVALIDO;
+    }
+
+    /**
+     * Indica si un ISBN es válido (ISBN-13 o ISBN-10).
+     *
+     * @param isbn ISBN a validar
+     * @return true si el ISBN es válido
+     */
+    public static boolean validarISBN(String isbn) {
+        return parsearISBN(isbn) != ISBN_INVALIDO;
+    }
+
+    /**
+     * Retorna el ISBN-13 normalizado como texto, sin guiones.
+     *
+     * @param clave ISBN retornado por parsearISBN
+     * @return ISBN-13 de 13 dígitos
+     */
+    public static String formatearISBN(long clave) {
+        return Long.toString(clave);
+    }
+
+    /**
+     * Calcula el dígito de control de un ISBN-13 a partir de sus primeros 12 dígitos.
+     *
+     * @param sinControl Primeros 12 dígitos del ISBN-13
+     * @return Dígito de control (0-9)
+     */
+    private static int calcularControlISBN13(long sinControl) {
+        int suma = 0;
+        // De derecha a izquierda: el último de los 12 dígitos (posición 11) pondera 3
+        for (int i = 0; i < 12; i++) {
+            int digito = (int) (sinControl % 10);
+            suma += (i % 2 == 0) ? digito * 3 : digito;
+            sinControl /= 10;
+        }
+        return (10 - suma % 10) % 10;
+    }
+}
@@ -4,10 +4,23 @@ package unab.biblioteca.utils;
  * Clase utilitaria para validar RUN chileno.
  * Implementa validación de formato y dígito verificador mediante algoritmo módulo 11.
  *
+ * La validación recorre el RUN una sola vez, sin expresiones regulares ni Strings
+ * intermedios, y entrega el resultado empaquetado en un int: el cuerpo del RUN
+ * desplazado 4 bits y el dígito verificador (0-9, 10 para 'K') en los 4 bits bajos.
+ *
  * @author @author Alan, Francisco, Sandrino y Sebastián
  */
 public class ValidadorRUN {
 
+    /** Resultado de parsearRUN cuando el formato no es válido. */
+    public static final int FORMATO_INVALIDO = -1;
+
+    /** Resultado de parsearRUN cuando el formato es válido pero el dígito verificador no. */
+    public static final int DIGITO_VERIFICADOR_INVALIDO = -2;
+
+    /** Valor del dígito verificador 'K' en el RUN empaquetado. */
+    public static final int DV_K = 10;
+
     /**
      * Valida el formato del RUN.
      * Acepta formatos: XXXXXXXX-X o XX.XXX.XXX-X
@@ -16,13 +29,7 @@ public class ValidadorRUN {
      * @return true si el formato es válido, false en caso contrario
      */
     public static boolean validarFormato(String run) {
-        if (run == null || run.isEmpty()) {
-            return false;
-        }
-
-        // Formato: 7-8 dígitos, seguido de guión y dígito verificador (número o K)
-        String regex = "^\\d{1,2}\\.?\\d{3}\\.?\\d{3}-[\\dkK]$";
-        return run.matches(regex);
+        return analizarFormato(run) != FORMATO_INVALIDO;
     }
 
     /**
@@ -42,7 +49,7 @@ public class ValidadorRUN {
      * Valida el dígito verificador del RUN usando algoritmo módulo 11.
      *
      * Algoritmo:
-     * 1. Limpiar RUN de puntos y guiones
+     * 1. Separar el cuerpo del RUN del dígito verificador
      * 2. Multiplicar cada dígito de derecha a izquierda por la serie: 2,3,4,5,6,7,2,3,4...
      * 3. Sumar todos los productos
      * 4. Calcular: 11 - (suma % 11)
@@ -52,42 +59,150 @@ public class ValidadorRUN {
      * @return true si el dígito verificador es correcto, false en caso contrario
      */
     public static boolean validarDigitoVerificador(String run) {
-        if (!validarFormato(run)) {
-            return false;
+        return parsearRUN(run) >= 0;
+    }
+
+    /**
+     * Valida formato y dígito verificador en una sola pasada y retorna el RUN empaquetado.
+     * No asigna memoria.
+     *
+     * @param run RUN a validar (formatos XXXXXXXX-X o XX.XXX.XXX-X)
+     * @return RUN empaquetado (ver cuerpoRUN y digitoVerificadorRUN), FORMATO_INVALIDO
+     *         o DIGITO_VERIFICADOR_INVALIDO
+     */
+    public static int parsearRUN(CharSequence run) {
+        int empaquetado = analizarFormato(run);
+        if (empaquetado == FORMATO_INVALIDO) {
+            return FORMATO_INVALIDO;
+        }
+
+        if (calcularDigitoVerificador(cuerpoRUN(empaquetado)) != digitoVerificadorRUN(empaquetado)) {
+            return DIGITO_VERIFICADOR_INVALIDO;
+        }
+        return empaquetado;
+    }
+
+    /**
+     * Obtiene el cuerpo (sin dígito verificador) de un RUN empaquetado.
+     *
+     * @param empaquetado RUN retornado por parsearRUN
+     * @return Cuerpo del RUN, por ejemplo 12345678
+     */
+    public static int cuerpoRUN(int empaquetado) {
+        return empaquetado >>> 4;
+    }
+
+    /**
+     * Obtiene el dígito verificador de un RUN empaquetado.
+     *
+     * @param empaquetado RUN retornado por parsearRUN
+     * @return Dígito verificador de 0 a 9, o DV_K para 'K'
+     */
+    public static int digitoVerificadorRUN(int empaquetado) {
+        return empaquetado & 0xF;
+    }
+
+    /**
+     * Construye el RUN en formato XXXXXXXX-X a partir de su cuerpo.
+     *
+     * Los cuerpos de menos de 7 dígitos se completan con ceros a la izquierda.
+     *
+     * @param cuerpo Cuerpo del RUN sin dígito verificador
+     * @return RUN con guión y dígito verificador calculado
+     */
+    public static String formatearRUN(int cuerpo) {
+        int dv = calcularDigitoVerificador(cuerpo);
+        return String.format("%07d-%c", cuerpo, (dv == DV_K) ? 'K' : (char) (dv + '0'));
+    }
+
+    /**
+     * Recorre el RUN de derecha a izquierda verificando su estructura:
+     * dígito verificador, guión, 3 dígitos, punto opcional, 3 dígitos, punto opcional
+     * y 1 o 2 dígitos. Equivale a la expresión ^\d{1,2}\.?\d{3}\.?\d{3}-[\dkK]$.
+     *
+     * @param run RUN a analizar
+     * @return RUN empaquetado con el dígito verificador ingresado, o FORMATO_INVALIDO
+     */
+    private static int analizarFormato(CharSequence run) {
+        if (run == null) {
+            return FORMATO_INVALIDO;
         }
 
-        try {
-            // Limpiar y separar RUN del dígito verificador
-            String runLimpio = limpiarRUN(run);
-            String runSinDV = runLimpio.substring(0, runLimpio.length() - 1);
-            char dvIngresado = runLimpio.charAt(runLimpio.length() - 1);
+        // Largo mínimo: 1234567-8
+        if (run.length() < 9) {
+            return FORMATO_INVALIDO;
+        }
+        int pos = run.length() - 1;
 
-            // Calcular dígito verificador esperado
-            char dvCalculado = calcularDigitoVerificador(runSinDV);
+        // Dígito verificador
+        char c = run.charAt(pos--);
+        int dv;
+        if (c >= '0' && c <= '9') {
+            dv = c - '0';
+        } else if (c == 'k' || c == 'K') {
+            dv = DV_K;
+        } else {
+            return FORMATO_INVALIDO;
+        }
+
+        if (run.charAt(pos--) != '-') {
+            return FORMATO_INVALIDO;
+        }
 
-            // Comparar (convertir a mayúscula para caso de 'k' vs 'K')
-            return Character.toUpperCase(dvIngresado) == Character.toUpperCase(dvCalculado);
+        int cuerpo = 0;
+        int potencia = 1;
 
-        } catch (Exception e) {
-            return false;
+        // Dos grupos de 3 dígitos, cada uno precedido opcionalmente por un punto
+        for (int grupo = 0; grupo < 2; grupo++) {
+            for (int i = 0; i < 3; i++) {
+                if (pos < 0) {
+                    return FORMATO_INVALIDO;
+                }
+                c = run.charAt(pos--);
+                if (c < '0' || c > '9') {
+                    return FORMATO_INVALIDO;
+                }
+                cuerpo += (c - '0') * potencia;
+                potencia *= 10;
+            }
+            if (pos >= 0 && run.charAt(pos) == '.') {
+                pos--;
+            }
         }
+
+        // Grupo inicial de 1 o 2 dígitos
+        int digitosIniciales = 0;
+        while (pos >= 0) {
+            c = run.charAt(pos--);
+            if (c < '0' || c > '9' || digitosIniciales == 2) {
+                return FORMATO_INVALIDO;
+            }
+            cuerpo += (c - '0') * potencia;
+            potencia *= 10;
+            digitosIniciales++;
+        }
+        if (digitosIniciales == 0) {
+            return FORMATO_INVALIDO;
+        }
+
+        return (cuerpo << 4) | dv;
     }
 
     /**
-     * Calcula el dígito verificador esperado para un RUN dado.
-     * Método auxiliar privado que implementa el algoritmo módulo 11.
+     * Calcula el dígito verificador esperado para el cuerpo de un RUN.
+     * Implementa el algoritmo módulo 11 con aritmética entera.
      *
-     * @param runSinDV RUN sin el dígito verificador
-     * @return Dígito verificador calculado
+     * @param cuerpo Cuerpo del RUN sin dígito verificador
+     * @return Dígito verificador de 0 a 9, o DV_K para 'K'
      */
-    private static char calcularDigitoVerificador(String runSinDV) {
+    public static int calcularDigitoVerificador(int cuerpo) {
         int suma = 0;
         int multiplicador = 2;
 
         // Recorrer de derecha a izquierda
-        for (int i = runSinDV.length() - 1; i >= 0; i--) {
-            int digito = Character.getNumericValue(runSinDV.charAt(i));
-            suma += digito * multiplicador;
+        while (cuerpo > 0) {
+            suma += (cuerpo % 10) * multiplicador;
+            cuerpo /= 10;
 
             // Serie: 2,3,4,5,6,7,2,3,4,5,6,7...
             multiplicador++;
@@ -96,18 +211,21 @@ public class ValidadorRUN {
             }
         }
 
-        // Calcular dígito verificador
-        int resto = suma % 11;
-        int resultado = 11 - resto;
+        // Casos especiales: 11 → 0, 10 → K
+        int resultado = 11 - (suma % 11);
+        return (resultado == 11) ? 0 : resultado;
+    }
 
-        // Casos especiales
-        if (resultado == 11) {
-            return '0';
-        } else if (resultado == 10) {
-            return 'K';
-        } else {
-            return (char) (resultado + '0'); // Convertir número a carácter
-        }
+    /**
+     * Calcula el dígito verificador esperado para un RUN dado.
+     * Implementa el algoritmo módulo 11; también sirve para generar RUNs válidos.
+     *
+     * @param runSinDV RUN sin el dígito verificador, solo dígitos
+     * @return Dígito verificador calculado
+     */
+    public static char calcularDigitoVerificador(String runSinDV) {
+        int dv = calcularDigitoVerificador(Integer.parseInt(runSinDV));
+        return (dv == DV_K) ? 'K' : (char) (dv + '0');
     }
 
     /**
@@ -117,6 +235,6 @@ public class ValidadorRUN {
      * @return true si el RUN es válido, false en caso contrario
      */
     public static boolean validarRUN(String run) {
-        return validarFormato(run) && validarDigitoVerificador(run);
+        return parsearRUN(run) >= 0;
     }
 }
@@ -1,9 +1,18 @@
 package unab.biblioteca.views;
 
+import unab.biblioteca.controllers.EstadisticasCirculacion;
+import unab.biblioteca.controllers.OperacionCirculacion;
+import unab.biblioteca.controllers.Pagina;
+import unab.biblioteca.controllers.ResultadoCirculacion;
 import unab.biblioteca.controllers.SistemaBiblioteca;
 import unab.biblioteca.models.*;
+import unab.biblioteca.persistencia.ImportadorCatalogo;
+import unab.biblioteca.persistencia.ResultadoImportacion;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.function.Predicate;
 
 /**
  * Clase que maneja la interfaz de consola del sistema de biblioteca.
@@ -13,6 +22,9 @@ import java.util.Scanner;
  */
 public class MenuPrincipal {
 
+    private static final int MAXIMO_RESULTADOS_BUSQUEDA = 10;
+    private static final int TAMANO_PAGINA = 20;
+
     private SistemaBiblioteca sistema;
     private Scanner scanner;
 
@@ -55,6 +67,12 @@ public class MenuPrincipal {
                 case 6:
                     listarLibros();
                     break;
+                case 7:
+                    mostrarEstadisticas();
+                    break;
+                case 8:
+                    mostrarVencimientos();
+                    break;
                 case 0:
                     salir = true;
                     System.out.println("\nGracias por usar el Sistema de Biblioteca UNAB.");
@@ -78,6 +96,8 @@ public class MenuPrincipal {
         System.out.println("║  4. Realizar Devolución            ║");
         System.out.println("║  5. Listar Usuarios                ║");
         System.out.println("║  6. Listar Libros                  ║");
+        System.out.println("║  7. Estadísticas de Circulación    ║");
+        System.out.println("║  8. Préstamos Atrasados/por Vencer ║");
         System.out.println("║  0. Salir                          ║");
         System.out.println("╚════════════════════════════════════╝");
         System.out.print("Seleccione una opción: ");
@@ -92,7 +112,8 @@ public class MenuPrincipal {
         System.out.println("2. Crear Estudiante");
         System.out.println("3. Editar Usuario");
         System.out.println("4. Eliminar Usuario");
-        System.out.println("5. Volver");
+        System.out.println("5. Importar Usuarios desde Archivo");
+        System.out.println("6. Volver");
         System.out.print("Seleccione una opción: ");
 
         int opcion = leerOpcion();
@@ -111,6 +132,9 @@ public class MenuPrincipal {
                 eliminarUsuario();
                 break;
             case 5:
+                importarUsuarios();
+                break;
+            case 6:
                 return;
             default:
                 System.out.println("Opción inválida.");
@@ -124,7 +148,9 @@ public class MenuPrincipal {
         System.out.println("\n--- Gestión de Libros ---");
         System.out.println("1. Crear Libro");
         System.out.println("2. Eliminar Libro");
-        System.out.println("3. Volver");
+        System.out.println("3. Importar Libros desde Archivo");
+        System.out.println("4. Buscar Libros por Título o Autor");
+        System.out.println("5. Volver");
         System.out.print("Seleccione una opción: ");
 
         int opcion = leerOpcion();
@@ -137,6 +163,12 @@ public class MenuPrincipal {
                 eliminarLibro();
                 break;
             case 3:
+                importarLibros();
+                break;
+            case 4:
+                buscarLibros();
+                break;
+            case 5:
                 return;
             default:
                 System.out.println("Opción inválida.");
@@ -227,8 +259,7 @@ public class MenuPrincipal {
      */
     private void editarUsuario() {
         System.out.println("\n--- Editar Usuario ---");
-        System.out.print("Ingrese RUN del usuario a editar: ");
-        String run = scanner.nextLine();
+        String run = leerRUN("Ingrese RUN o nombre del usuario a editar: ");
 
         Usuario usuario = sistema.buscarUsuarioPorRUN(run);
 
@@ -246,8 +277,7 @@ public class MenuPrincipal {
      */
     private void eliminarUsuario() {
         System.out.println("\n--- Eliminar Usuario ---");
-        System.out.print("Ingrese RUN del usuario a eliminar: ");
-        String run = scanner.nextLine();
+        String run = leerRUN("Ingrese RUN o nombre del usuario a eliminar: ");
 
         if (sistema.eliminarUsuario(run)) {
             System.out.println("✓ Usuario eliminado exitosamente.");
@@ -299,8 +329,7 @@ public class MenuPrincipal {
      */
     private void eliminarLibro() {
         System.out.println("\n--- Eliminar Libro ---");
-        System.out.print("Ingrese ISBN del libro a eliminar: ");
-        String isbn = scanner.nextLine();
+        String isbn = leerISBN("Ingrese ISBN del libro a eliminar: ");
 
         if (sistema.eliminarLibro(isbn)) {
             System.out.println("✓ Libro eliminado exitosamente.");
@@ -309,28 +338,100 @@ public class MenuPrincipal {
         }
     }
 
+    /**
+     * Busca libros por palabras del título o del autor.
+     */
+    private void buscarLibros() {
+        System.out.println("\n--- Buscar Libros ---");
+        System.out.print("Título o autor: ");
+        String consulta = scanner.nextLine();
+
+        ArrayList<Libro> libros = sistema.buscarLibros(consulta, MAXIMO_RESULTADOS_BUSQUEDA);
+        if (libros.isEmpty()) {
+            System.out.println("No se encontraron libros.");
+            return;
+        }
+        for (int i = 0; i < libros.size(); i++) {
+            Libro libro = libros.get(i);
+            System.out.println((i + 1) + ". " + libro.getTitulo() + " - " + libro.getAutor() +
+                    " (ISBN: " + libro.getIsbn() + ", disponibles: " + libro.getCantidadDisponible() + ")");
+        }
+    }
+
+    /**
+     * Importa libros desde un archivo CSV.
+     */
+    private void importarLibros() {
+        System.out.println("\n--- Importar Libros ---");
+        System.out.println("Columnas: isbn,titulo,autor,cantidadBiblioteca,cantidadDisponible[,imagen]");
+        System.out.print("Ruta del archivo: ");
+        String ruta = scanner.nextLine();
+
+        try {
+            ResultadoImportacion resultado = new ImportadorCatalogo(sistema).importarLibros(Path.of(ruta.trim()));
+            mostrarResultadoImportacion(resultado);
+        } catch (Exception e) {
+            System.out.println("✗ Error al importar libros: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importa usuarios desde un archivo CSV.
+     */
+    private void importarUsuarios() {
+        System.out.println("\n--- Importar Usuarios ---");
+        System.out.println("Columnas: tipo(D/E),nombre,run,genero,profesion o carrera[,grados separados por |]");
+        System.out.print("Ruta del archivo: ");
+        String ruta = scanner.nextLine();
+
+        try {
+            ResultadoImportacion resultado = new ImportadorCatalogo(sistema).importarUsuarios(Path.of(ruta.trim()));
+            mostrarResultadoImportacion(resultado);
+        } catch (Exception e) {
+            System.out.println("✗ Error al importar usuarios: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Muestra el resumen de una importación y los primeros rechazos.
+     */
+    private void mostrarResultadoImportacion(ResultadoImportacion resultado) {
+        System.out.println("✓ Filas leídas: " + resultado.getFilasLeidas()
+                + ", aceptadas: " + resultado.getAceptadas()
+                + ", rechazadas: " + resultado.getTotalRechazos());
+
+        int mostrados = 0;
+        for (ResultadoImportacion.Rechazo rechazo : resultado.getRechazos()) {
+            if (mostrados == 20) {
+                System.out.println("  ...");
+                break;
+            }
+            System.out.println("  ✗ " + rechazo);
+            mostrados++;
+        }
+    }
+
     /**
      * Realiza un préstamo de libro.
      */
     private void realizarPrestamo() {
         System.out.println("\n--- Realizar Préstamo ---");
 
-        System.out.print("ISBN del libro: ");
-        String isbn = scanner.nextLine();
+        String isbn = leerISBN("ISBN del libro: ");
 
-        System.out.print("RUN del usuario: ");
-        String run = scanner.nextLine();
+        String run = leerRUN("RUN o nombre del usuario: ");
 
         System.out.print("Días de préstamo: ");
         int dias = Integer.parseInt(scanner.nextLine());
 
-        Prestamo prestamo = sistema.realizarPrestamo(isbn, run, dias);
+        ResultadoCirculacion resultado = sistema.realizarPrestamo(isbn, run, dias);
 
-        if (prestamo != null) {
+        if (resultado.esRealizado()) {
             System.out.println("\n✓ Préstamo realizado exitosamente.");
-            System.out.println(prestamo.generarTarjetaPrestamo());
+            System.out.println(resultado.getPrestamo().generarTarjetaPrestamo());
         } else {
-            System.out.println("\n✗ No se pudo realizar el préstamo. Verifique los mensajes de error anteriores.");
+            System.out.println(resultado.describir(OperacionCirculacion.prestamo(isbn, run, dias), sistema));
+            System.out.println("\n✗ No se pudo realizar el préstamo.");
         }
     }
 
@@ -340,58 +441,204 @@ public class MenuPrincipal {
     private void realizarDevolucion() {
         System.out.println("\n--- Realizar Devolución ---");
 
-        System.out.print("ISBN del libro: ");
-        String isbn = scanner.nextLine();
+        String isbn = leerISBN("ISBN del libro: ");
 
-        System.out.print("RUN del usuario: ");
-        String run = scanner.nextLine();
+        String run = leerRUN("RUN o nombre del usuario: ");
 
-        int multa = sistema.realizarDevolucion(isbn, run);
+        ResultadoCirculacion resultado = sistema.realizarDevolucion(isbn, run);
 
-        if (multa >= 0) {
+        if (resultado.esRealizado()) {
             System.out.println("\n✓ Devolución realizada exitosamente.");
-            if (multa > 0) {
-                System.out.println("⚠ Multa por retraso: $" + multa);
+            if (resultado.getMulta() > 0) {
+                System.out.println("⚠ Multa por retraso: $" + resultado.getMulta());
             } else {
                 System.out.println("✓ Devolución a tiempo, sin multa.");
             }
         } else {
-            System.out.println("\n✗ No se pudo realizar la devolución. Verifique los mensajes de error anteriores.");
+            System.out.println(resultado.describir(OperacionCirculacion.devolucion(isbn, run), sistema));
+            System.out.println("\n✗ No se pudo realizar la devolución.");
         }
     }
 
     /**
-     * Lista todos los usuarios del sistema.
+     * Lista los usuarios del sistema por páginas, opcionalmente solo los de un tipo.
      */
     private void listarUsuarios() {
         System.out.println("\n--- Lista de Usuarios ---");
-        ArrayList<Usuario> usuarios = sistema.listarUsuarios();
+        System.out.print("Tipo (1: Todos, 2: Docentes, 3: Estudiantes): ");
+        int tipo = leerOpcion();
+        Predicate<Usuario> filtro = (tipo == 2) ? Docente.class::isInstance
+                : (tipo == 3) ? Estudiante.class::isInstance : null;
+
+        int numero = 0;
+        long cursor = Pagina.INICIO;
+        do {
+            Pagina<Usuario> pagina = sistema.listarUsuarios(cursor, TAMANO_PAGINA, filtro);
+            for (Usuario usuario : pagina.getElementos()) {
+                System.out.println(++numero + ". " + usuario);
+            }
+            cursor = pagina.getSiguiente();
+        } while (cursor != Pagina.INICIO && continuarListado());
 
-        if (usuarios.isEmpty()) {
+        if (numero == 0) {
             System.out.println("No hay usuarios registrados.");
-            return;
-        }
-
-        for (int i = 0; i < usuarios.size(); i++) {
-            System.out.println((i + 1) + ". " + usuarios.get(i));
         }
     }
 
     /**
-     * Lista todos los libros del sistema.
+     * Lista los libros del sistema por páginas, opcionalmente solo los disponibles.
      */
     private void listarLibros() {
         System.out.println("\n--- Lista de Libros ---");
-        ArrayList<Libro> libros = sistema.listarLibros();
+        System.out.print("¿Solo libros disponibles? (s/n): ");
+        Predicate<Libro> filtro = scanner.nextLine().trim().equalsIgnoreCase("s") ? Libro::hayDisponible : null;
+
+        int numero = 0;
+        long cursor = Pagina.INICIO;
+        do {
+            Pagina<Libro> pagina = sistema.listarLibros(cursor, TAMANO_PAGINA, filtro);
+            for (Libro libro : pagina.getElementos()) {
+                System.out.println(++numero + ". " + libro);
+            }
+            cursor = pagina.getSiguiente();
+        } while (cursor != Pagina.INICIO && continuarListado());
 
-        if (libros.isEmpty()) {
+        if (numero == 0) {
             System.out.println("No hay libros registrados.");
+        }
+    }
+
+    /**
+     * Pregunta si se muestra la página siguiente de un listado.
+     *
+     * @return true si se pidió la página siguiente
+     */
+    private boolean continuarListado() {
+        System.out.print("-- Enter para ver más, 0 para volver: ");
+        return !scanner.nextLine().trim().equals("0");
+    }
+
+    /**
+     * Muestra las estadísticas de circulación.
+     */
+    private void mostrarEstadisticas() {
+        EstadisticasCirculacion estadisticas = sistema.getEstadisticas();
+        System.out.println("\n--- Estadísticas de Circulación ---");
+        System.out.println("Ejemplares totales: " + estadisticas.getTotalEjemplares());
+        System.out.println("Ejemplares prestados: " + estadisticas.getEjemplaresPrestados());
+        System.out.println("Préstamos activos de docentes: " + estadisticas.getPrestamosActivosDocentes());
+        System.out.println("Préstamos activos de estudiantes: " + estadisticas.getPrestamosActivosEstudiantes());
+        System.out.println("Préstamos atrasados: " + estadisticas.getPrestamosAtrasados());
+        System.out.println("Devoluciones con atraso (acumulado): " + estadisticas.getDevolucionesAtrasadas());
+        System.out.println("Multas recaudadas: $" + estadisticas.getMultasRecaudadas());
+    }
+
+    /**
+     * Muestra los préstamos atrasados a hoy y los que vencen en los próximos días.
+     */
+    private void mostrarVencimientos() {
+        System.out.println("\n--- Préstamos Atrasados y por Vencer ---");
+        System.out.print("Días hacia adelante: ");
+        int dias = leerOpcion();
+        if (dias < 0) {
+            System.out.println("✗ Cantidad de días inválida.");
             return;
         }
 
-        for (int i = 0; i < libros.size(); i++) {
-            System.out.println((i + 1) + ". " + libros.get(i));
+        LocalDate hoy = sistema.hoy();
+        ArrayList<Prestamo> atrasados = sistema.listarPrestamosAtrasados(hoy);
+        System.out.println("\nAtrasados: " + atrasados.size());
+        for (Prestamo prestamo : atrasados) {
+            System.out.println("  " + prestamo);
+        }
+
+        ArrayList<Prestamo> porVencer = sistema.listarPrestamosPorVencer(hoy, dias);
+        System.out.println("\nVencen en los próximos " + dias + " días: " + porVencer.size());
+        for (Prestamo prestamo : porVencer) {
+            System.out.println("  " + prestamo);
+        }
+    }
+
+    /**
+     * Lee el RUN de un usuario. Si lo ingresado no es el RUN de un usuario existente, se
+     * toma como el inicio de un RUN o como parte del nombre, y se ofrecen los usuarios
+     * que coinciden para elegir uno.
+     *
+     * @param mensaje Texto que se muestra al pedir el RUN
+     * @return RUN elegido, o lo ingresado si no se eligió ninguno
+     */
+    private String leerRUN(String mensaje) {
+        System.out.print(mensaje);
+        String texto = scanner.nextLine();
+        if (texto.isBlank() || sistema.buscarUsuarioPorRUN(texto) != null) {
+            return texto;
+        }
+
+        ArrayList<Usuario> candidatos = esNombre(texto)
+                ? sistema.completarNombre(texto, MAXIMO_RESULTADOS_BUSQUEDA)
+                : sistema.completarRUN(texto, MAXIMO_RESULTADOS_BUSQUEDA);
+        if (candidatos.isEmpty()) {
+            return texto;
+        }
+        for (int i = 0; i < candidatos.size(); i++) {
+            Usuario usuario = candidatos.get(i);
+            System.out.println((i + 1) + ". " + usuario.getRun() + " - " + usuario.getNombreCompleto());
+        }
+        int opcion = elegir(candidatos.size(), "usuario");
+        return (opcion > 0) ? candidatos.get(opcion - 1).getRun() : texto;
+    }
+
+    /**
+     * Lee el ISBN de un libro. Si lo ingresado no es el ISBN de un libro existente, se
+     * toma como el inicio de un ISBN y se ofrecen los libros que coinciden para elegir uno.
+     *
+     * @param mensaje Texto que se muestra al pedir el ISBN
+     * @return ISBN elegido, o lo ingresado si no se eligió ninguno
+     */
+    private String leerISBN(String mensaje) {
+        System.out.print(mensaje);
+        String texto = scanner.nextLine();
+        if (texto.isBlank() || sistema.buscarLibroPorISBN(texto) != null) {
+            return texto;
+        }
+
+        ArrayList<Libro> candidatos = sistema.completarISBN(texto, MAXIMO_RESULTADOS_BUSQUEDA);
+        if (candidatos.isEmpty()) {
+            return texto;
+        }
+        for (int i = 0; i < candidatos.size(); i++) {
+            Libro libro = candidatos.get(i);
+            System.out.println((i + 1) + ". " + libro.getIsbn() + " - " + libro.getTitulo());
+        }
+        int opcion = elegir(candidatos.size(), "libro");
+        return (opcion > 0) ? candidatos.get(opcion - 1).getIsbn() : texto;
+    }
+
+    /**
+     * Pide elegir uno de los candidatos mostrados.
+     *
+     * @return Número elegido, entre 1 y cantidad, o 0 si no se eligió ninguno
+     */
+    private int elegir(int cantidad, String tipo) {
+        System.out.print("Seleccione un " + tipo + " (0 para mantener lo ingresado): ");
+        int opcion = leerOpcion();
+        return (opcion >= 1 && opcion <= cantidad) ? opcion : 0;
+    }
+
+    /**
+     * Indica si un texto es parte de un nombre y no de un RUN: tiene alguna letra que no
+     * es la K del dígito verificador.
+     */
+    private static boolean esNombre(String texto) {
+        String recortado = texto.trim();
+        for (int i = 0; i < recortado.length(); i++) {
+            char c = recortado.charAt(i);
+            boolean esDigitoVerificador = i == recortado.length() - 1 && (c == 'k' || c == 'K');
+            if (Character.isLetter(c) && !esDigitoVerificador) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**